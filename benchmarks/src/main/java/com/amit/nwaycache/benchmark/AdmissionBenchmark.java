@@ -0,0 +1,122 @@
+package com.amit.nwaycache.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Hit rate and throughput of a cache-aside workload with and without the
+ * TinyLFU admission filter (<tt>cache.admission.implClass</tt>). The keys are
+ * Zipfian over four times the cache size, and every <tt>scanEvery</tt>-th access
+ * instead takes the next key of a sweep that never repeats. The <tt>hits</tt>
+ * and <tt>misses</tt> secondary results give the hit rate.
+ * 
+ * @author Amit
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdmissionBenchmark {
+
+	private static final int CACHE_SIZE = 1 << 14;
+
+	private static final int SAMPLES = 1 << 16;
+
+	@Param({ "none", "com.amit.nwaycache.admission.TinyLFUAdmission" })
+	public String admission;
+
+	@Param({ "com.amit.nwaycache.eviction.LRUPolicy" })
+	public String policy;
+
+	@Param({ "4" })
+	public int scanEvery;
+
+	NWayCache<Integer, Integer> cache;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", Integer.toString(CACHE_SIZE));
+		props.setProperty("cache.lineSize", "8");
+		props.setProperty("cache.evictionPolicy.implClass", policy);
+		if (!"none".equals(admission)) {
+			props.setProperty("cache.admission.implClass", admission);
+		}
+		cache = NWayCacheImpl.getCache(props);
+	}
+
+	/**
+	 * The keys and hit counters of one benchmark thread.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Accesses {
+		public long hits;
+
+		public long misses;
+
+		private Integer[] keys;
+
+		private int next;
+
+		private int scanKey = Integer.MIN_VALUE;
+
+		@Setup(Level.Trial)
+		public void setUp(AdmissionBenchmark benchmark) {
+			int[] sample = KeyDistribution.ZIPF.sample(4 * CACHE_SIZE, SAMPLES,
+					new Random(Thread.currentThread().getId()));
+			keys = new Integer[SAMPLES];
+			for (int i = 0; i < SAMPLES; i++) {
+				keys[i] = sample[i];
+			}
+			scanKey += (int) Thread.currentThread().getId() << 24;
+		}
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			hits = 0;
+			misses = 0;
+		}
+
+		Integer next(int scanEvery) {
+			Integer key = keys[next];
+			next = (next + 1) & (SAMPLES - 1);
+			// sweep keys are negative, so they never collide with the Zipfian ones
+			return (next % scanEvery == 0) ? Integer.valueOf(scanKey++) : key;
+		}
+	}
+
+	@Benchmark
+	public Integer getOrPut(Accesses accesses) {
+		Integer key = accesses.next(scanEvery);
+		Integer value = cache.get(key);
+		if (value == null) {
+			accesses.misses++;
+			cache.put(key, key);
+		} else {
+			accesses.hits++;
+		}
+		return value;
+	}
+}
@@ -0,0 +1,131 @@
+package com.amit.nwaycache.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amit.nwaycache.cache.AsyncNWayCache;
+import com.amit.nwaycache.cache.CacheLoader;
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Throughput of {@link AsyncNWayCache#getOrLoadAsync} with {@value #REQUESTS}
+ * requests in flight per invocation: Zipfian keys over four times the cache
+ * size, so that misses are frequent and many of them hit the same key at once,
+ * and a loader that waits <tt>loadMicros</tt> like a remote backend.
+ * <p>
+ * <tt>executor</tt> is <tt>fixed</tt> (a pool of 64 platform threads),
+ * <tt>cached</tt> (a platform thread per concurrent load) or, on Java 21 and
+ * later, <tt>virtual</tt> (a virtual thread per load):
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar AsyncBenchmark -p executor=virtual
+ * </pre>
+ *
+ * @author Amit
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncBenchmark {
+
+	private static final int CACHE_SIZE = 1 << 14;
+
+	private static final int REQUESTS = 4096;
+
+	private static final int SAMPLES = 1 << 16;
+
+	@Param({ "fixed", "cached" })
+	public String executor;
+
+	@Param({ "100" })
+	public int loadMicros;
+
+	private ExecutorService executorService;
+
+	private AsyncNWayCache<Integer, Integer> cache;
+
+	private CacheLoader<Integer, Integer> loader;
+
+	private Integer[] keys;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		executorService = newExecutor(executor);
+		long loadNanos = TimeUnit.MICROSECONDS.toNanos(loadMicros);
+		loader = key -> {
+			LockSupport.parkNanos(loadNanos);
+			return key;
+		};
+		int[] sample = KeyDistribution.ZIPF.sample(4 * CACHE_SIZE, SAMPLES, new Random(42));
+		keys = new Integer[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			keys[i] = sample[i];
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void newCache() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", Integer.toString(CACHE_SIZE));
+		props.setProperty("cache.lineSize", "8");
+		props.setProperty("cache.lockStripes", "64");
+		NWayCache<Integer, Integer> sync = NWayCacheImpl.getCache(props);
+		cache = new AsyncNWayCache<>(sync, executorService);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	private static ExecutorService newExecutor(String executor) throws Exception {
+		switch (executor) {
+		case "fixed":
+			return Executors.newFixedThreadPool(64);
+		case "cached":
+			return Executors.newCachedThreadPool();
+		case "virtual":
+			// looked up reflectively, so that the benchmarks still build for Java 16
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		default:
+			throw new IllegalArgumentException("unknown executor " + executor);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(REQUESTS)
+	public Object getOrLoadAsync() {
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[REQUESTS];
+		int start = ThreadLocalRandom.current().nextInt(SAMPLES);
+		for (int i = 0; i < REQUESTS; i++) {
+			futures[i] = cache.getOrLoadAsync(keys[(start + i) & (SAMPLES - 1)], loader);
+		}
+		return CompletableFuture.allOf(futures).join();
+	}
+}
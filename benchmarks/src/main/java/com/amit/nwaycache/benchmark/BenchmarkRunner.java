@@ -0,0 +1,44 @@
+package com.amit.nwaycache.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count, doubling from 1 up to
+ * the number of available processors, and writes every run as JSON to
+ * <tt>target/jmh-&lt;threads&gt;-threads.json</tt> for regression tracking.
+ * Any other JMH command line option can be passed as well, e.g.
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar com.amit.nwaycache.benchmark.BenchmarkRunner CacheBenchmark.get -p workload=HIT_HEAVY
+ * </pre>
+ * 
+ * @author Amit
+ *
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		int maxThreads = Integer.getInteger("maxThreads", Runtime.getRuntime().availableProcessors());
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int threads = 1; threads < maxThreads; threads *= 2) {
+			threadCounts.add(threads);
+		}
+		threadCounts.add(maxThreads);
+		for (int threads : threadCounts) {
+			Options options = new OptionsBuilder().parent(commandLine).threads(threads)
+					.resultFormat(ResultFormatType.JSON).result("target/jmh-" + threads + "-threads.json").build();
+			new Runner(options).run();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.amit.nwaycache.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Throughput of get / put / remove of {@link NWayCacheImpl} for hit-heavy,
+ * miss-heavy and eviction-heavy workloads, uniform and Zipfian keys, different
+ * cache geometries and the bundled eviction policies. The cache is shared by
+ * all benchmark threads, so running with more threads (<tt>-t</tt>, or
+ * {@link BenchmarkRunner}) measures the contention on the set locks.
+ * 
+ * @author Amit
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+	/**
+	 * Number of keys drawn per thread; the threads cycle through them.
+	 */
+	private static final int SAMPLES = 1 << 16;
+
+	@Param({ "1024", "65536" })
+	public int cacheSize;
+
+	@Param({ "4", "16" })
+	public int lineSize;
+
+	@Param({ "com.amit.nwaycache.eviction.LRUPolicy", "com.amit.nwaycache.eviction.MRUPolicy",
+			"com.amit.nwaycache.eviction.TreePLRUPolicy", "com.amit.nwaycache.eviction.BitPLRUPolicy",
+			"com.amit.nwaycache.eviction.LFUPolicy", "com.amit.nwaycache.eviction.ClockPolicy",
+			"com.amit.nwaycache.eviction.ARCPolicy" })
+	public String policy;
+
+	@Param({ "UNIFORM", "ZIPF" })
+	public KeyDistribution distribution;
+
+	@Param({ "HIT_HEAVY", "MISS_HEAVY", "EVICTION_HEAVY" })
+	public Workload workload;
+
+	@Param({ "1" })
+	public int lockStripes;
+
+	@Param({ "com.amit.nwaycache.hash.ModuloSetIndexer" })
+	public String setIndexer;
+
+	NWayCache<Integer, Integer> cache;
+
+	int keySpace;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", Integer.toString(cacheSize));
+		props.setProperty("cache.lineSize", Integer.toString(lineSize));
+		props.setProperty("cache.evictionPolicy.implClass", policy);
+		props.setProperty("cache.lockStripes", Integer.toString(lockStripes));
+		props.setProperty("cache.setIndexer.implClass", setIndexer);
+		cache = NWayCacheImpl.getCache(props);
+		keySpace = workload.keySpace(cacheSize);
+		for (int key = 0; key < Math.min(keySpace, cacheSize); key++) {
+			cache.put(key, key);
+		}
+	}
+
+	/**
+	 * The keys of one benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Keys {
+		private Integer[] keys;
+
+		private int next;
+
+		@Setup(Level.Trial)
+		public void setUp(CacheBenchmark benchmark) {
+			int[] sample = benchmark.distribution.sample(benchmark.keySpace, SAMPLES,
+					new Random(Thread.currentThread().getId()));
+			keys = new Integer[SAMPLES];
+			for (int i = 0; i < SAMPLES; i++) {
+				keys[i] = sample[i];
+			}
+		}
+
+		Integer next() {
+			Integer key = keys[next];
+			next = (next + 1) & (SAMPLES - 1);
+			return key;
+		}
+	}
+
+	@Benchmark
+	public Integer get(Keys keys) {
+		return cache.get(keys.next());
+	}
+
+	@Benchmark
+	public void put(Keys keys) {
+		Integer key = keys.next();
+		cache.put(key, key);
+	}
+
+	/**
+	 * Cache-aside access: a miss is followed by a put of the key.
+	 */
+	@Benchmark
+	public Integer getOrPut(Keys keys) {
+		Integer key = keys.next();
+		Integer value = cache.get(key);
+		if (value == null) {
+			cache.put(key, key);
+		}
+		return value;
+	}
+
+	/**
+	 * Removes the key and puts it back, so the cache stays in a steady state.
+	 */
+	@Benchmark
+	public boolean removeAndPut(Keys keys) {
+		Integer key = keys.next();
+		boolean removed = cache.remove(key);
+		cache.put(key, key);
+		return removed;
+	}
+}
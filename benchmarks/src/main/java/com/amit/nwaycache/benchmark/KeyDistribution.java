@@ -0,0 +1,60 @@
+package com.amit.nwaycache.benchmark;
+
+import java.util.Random;
+
+/**
+ * Key distributions used by the benchmarks. The keys are drawn up front so
+ * that generating them is not part of the measured time.
+ * 
+ * @author Amit
+ *
+ */
+public enum KeyDistribution {
+	/**
+	 * Every key of the key space is equally likely.
+	 */
+	UNIFORM {
+		@Override
+		int[] sample(int keySpace, int count, Random random) {
+			int[] keys = new int[count];
+			for (int i = 0; i < count; i++) {
+				keys[i] = random.nextInt(keySpace);
+			}
+			return keys;
+		}
+	},
+
+	/**
+	 * Zipfian distribution with exponent 0.99: a few keys take most of the
+	 * accesses, as in typical web caching workloads.
+	 */
+	ZIPF {
+		@Override
+		int[] sample(int keySpace, int count, Random random) {
+			double[] cdf = new double[keySpace];
+			double sum = 0.0d;
+			for (int rank = 0; rank < keySpace; rank++) {
+				sum += 1.0d / Math.pow(rank + 1, ZIPF_EXPONENT);
+				cdf[rank] = sum;
+			}
+			int[] keys = new int[count];
+			for (int i = 0; i < count; i++) {
+				int rank = java.util.Arrays.binarySearch(cdf, random.nextDouble() * sum);
+				keys[i] = (rank >= 0) ? rank : Math.min(-rank - 1, keySpace - 1);
+			}
+			return keys;
+		}
+	};
+
+	private static final double ZIPF_EXPONENT = 0.99d;
+
+	/**
+	 * Draws keys from <tt>[0, keySpace)</tt>.
+	 * 
+	 * @param keySpace number of distinct keys.
+	 * @param count    number of keys to draw.
+	 * @param random   source of randomness.
+	 * @return the drawn keys.
+	 */
+	abstract int[] sample(int keySpace, int count, Random random);
+}
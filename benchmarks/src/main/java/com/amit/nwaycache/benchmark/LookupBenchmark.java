@@ -0,0 +1,79 @@
+package com.amit.nwaycache.benchmark;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Compares the scalar and the Vector API probe of the ARRAYS storage engine
+ * for growing set widths. Every set is filled completely, so a hit scans half
+ * a set on average and a miss scans the whole set.
+ * 
+ * @author Amit
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class LookupBenchmark {
+
+	private static final int CACHE_SIZE = 1 << 16;
+
+	@Param({ "4", "8", "16", "32", "64" })
+	public int lineSize;
+
+	@Param({ "false", "true" })
+	public boolean vector;
+
+	private NWayCache<Integer, Integer> cache;
+
+	private Integer[] hitKeys;
+
+	private Integer[] missKeys;
+
+	@Setup
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", Integer.toString(CACHE_SIZE));
+		props.setProperty("cache.lineSize", Integer.toString(lineSize));
+		props.setProperty("cache.storage", "ARRAYS");
+		props.setProperty("cache.lookup.vector", Boolean.toString(vector));
+		cache = NWayCacheImpl.getCache(props);
+		hitKeys = new Integer[CACHE_SIZE];
+		missKeys = new Integer[CACHE_SIZE];
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			// keys i spread evenly over the sets, filling every set exactly
+			hitKeys[i] = i;
+			missKeys[i] = CACHE_SIZE + i;
+			cache.put(hitKeys[i], i);
+		}
+	}
+
+	@Benchmark
+	public Integer hit() {
+		return cache.get(hitKeys[ThreadLocalRandom.current().nextInt(CACHE_SIZE)]);
+	}
+
+	@Benchmark
+	public Integer miss() {
+		return cache.get(missKeys[ThreadLocalRandom.current().nextInt(CACHE_SIZE)]);
+	}
+}
@@ -0,0 +1,90 @@
+package com.amit.nwaycache.benchmark;
+
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Cost of the statistics counters and latency histograms when all threads hit
+ * the cache at once. The raw counter benchmarks compare one shared
+ * {@link AtomicLong} (what <tt>Stats</tt> used to be built on) with a
+ * {@link LongAdder}; the <tt>get</tt> benchmark shows a read-only hit workload
+ * with the statistics and the latency histograms switched on and off.
+ * 
+ * @author Amit
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class StatsBenchmark {
+
+	private static final int CACHE_SIZE = 1 << 16;
+
+	@Param({ "true", "false" })
+	public boolean statsEnabled;
+
+	@Param({ "false", "true" })
+	public boolean metricsEnabled;
+
+	private NWayCache<Integer, Integer> cache;
+
+	private Integer[] keys;
+
+	private final AtomicLong atomicCounter = new AtomicLong();
+
+	private final LongAdder adderCounter = new LongAdder();
+
+	@Setup
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", Integer.toString(CACHE_SIZE));
+		props.setProperty("cache.lineSize", "8");
+		props.setProperty("cache.lockStripes", "1024");
+		props.setProperty("cache.stats.enabled", Boolean.toString(statsEnabled));
+		props.setProperty("cache.metrics.enabled", Boolean.toString(metricsEnabled));
+		cache = NWayCacheImpl.getCache(props);
+		keys = new Integer[CACHE_SIZE];
+		for (int i = 0; i < CACHE_SIZE; i++) {
+			keys[i] = i;
+			cache.put(keys[i], i);
+		}
+	}
+
+	@Benchmark
+	public Integer get() {
+		return cache.get(keys[ThreadLocalRandom.current().nextInt(CACHE_SIZE)]);
+	}
+
+	@Benchmark
+	public long atomicLongIncrement() {
+		return atomicCounter.incrementAndGet();
+	}
+
+	@Benchmark
+	public void longAdderIncrement() {
+		adderCounter.increment();
+	}
+}
@@ -0,0 +1,39 @@
+package com.amit.nwaycache.benchmark;
+
+/**
+ * Size of the key space relative to the cache size, which decides whether the
+ * operations mostly hit, mostly miss or mostly evict.
+ * 
+ * @author Amit
+ *
+ */
+public enum Workload {
+	/**
+	 * Half as many keys as slots: after the warm up practically every get hits.
+	 */
+	HIT_HEAVY(0.5d),
+
+	/**
+	 * Sixteen times more keys than slots: most gets miss.
+	 */
+	MISS_HEAVY(16.0d),
+
+	/**
+	 * Four times more keys than slots: most puts have to evict.
+	 */
+	EVICTION_HEAVY(4.0d);
+
+	private final double keysPerSlot;
+
+	private Workload(double keysPerSlot) {
+		this.keysPerSlot = keysPerSlot;
+	}
+
+	/**
+	 * @param cacheSize number of slots of the cache.
+	 * @return the number of distinct keys of the workload.
+	 */
+	int keySpace(int cacheSize) {
+		return (int) Math.max(1, cacheSize * keysPerSlot);
+	}
+}
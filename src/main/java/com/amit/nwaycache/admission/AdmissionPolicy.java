@@ -0,0 +1,37 @@
+package com.amit.nwaycache.admission;
+
+/**
+ * AdmissionPolicy decides whether a new key may take the place of the element
+ * the {@link com.amit.nwaycache.eviction.EvictionPolicy} chose to evict, or is
+ * rejected and the victim stays. It only comes into play when the set of the
+ * new key is full; keys that find a free slot are always stored.
+ * <p>
+ * The cache creates one instance per cache through a constructor taking the
+ * cache size, <code>(int cacheSize)</code>. Both methods may be called without
+ * any lock and concurrently with each other.
+ * 
+ * @author Amit
+ *
+ */
+public interface AdmissionPolicy {
+
+	/**
+	 * Records an access (get or put) of the key with the given hash code.
+	 * 
+	 * @param hash
+	 *            hash code of the key.
+	 */
+	public void record(int hash);
+
+	/**
+	 * Decides whether the candidate replaces the victim.
+	 * 
+	 * @param candidateHash
+	 *            hash code of the key being put.
+	 * @param victimHash
+	 *            hash code of the key chosen for eviction.
+	 * @return true to evict the victim and store the candidate, false to
+	 *         reject the candidate.
+	 */
+	public boolean admit(int candidateHash, int victimHash);
+}
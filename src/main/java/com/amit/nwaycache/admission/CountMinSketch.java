@@ -0,0 +1,133 @@
+package com.amit.nwaycache.admission;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A count-min sketch of 4 bit counters estimating how often each hash code was
+ * seen recently. Every hash code maps to one counter in each of four rows and
+ * its frequency is the smallest of the four, so collisions can only make an
+ * estimate too high. Sixteen counters are packed in a <code>long</code>, and
+ * the four counters of a hash code share one word of each row's table
+ * position, which keeps the sketch at 8 bytes per cached element.
+ * <p>
+ * Counters saturate at 15. After <tt>10 * capacity</tt> increments every
+ * counter is halved, so that old popularity fades and the sketch follows a
+ * changing workload.
+ * <p>
+ * The words are updated with plain reads and writes, without locks; increments
+ * racing on the same word may be lost, which only makes the estimates a
+ * little lower.
+ * 
+ * @author Amit
+ *
+ */
+public class CountMinSketch {
+
+	private static final VarHandle TABLE = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Seeds of the four rows.
+	 */
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	/**
+	 * The lower three bits of every 4 bit counter, for halving them at once.
+	 */
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private final long[] table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	/**
+	 * Number of increments since the last aging, read and written racily.
+	 */
+	private int additions;
+
+	/**
+	 * @param capacity
+	 *            number of elements of the cache.
+	 */
+	public CountMinSketch(int capacity) {
+		int size = Math.max(Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1, 16);
+		this.table = new long[size];
+		this.tableMask = size - 1;
+		this.sampleSize = (int) Math.min(10L * Math.max(capacity, 16), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the estimated number of occurrences of the hash code, up to 15.
+	 * 
+	 * @param hash
+	 *            the hash code.
+	 * @return the estimated frequency.
+	 */
+	public int frequency(int hash) {
+		int spread = spread(hash);
+		int start = (spread & 3) << 2;
+		int frequency = 15;
+		for (int i = 0; i < 4; i++) {
+			long word = (long) TABLE.getOpaque(table, indexOf(spread, i));
+			int count = (int) (word >>> ((start + i) << 2)) & 0xF;
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Counts one occurrence of the hash code, aging the sketch when the sample
+	 * is full.
+	 * 
+	 * @param hash
+	 *            the hash code.
+	 */
+	public void increment(int hash) {
+		int spread = spread(hash);
+		int start = (spread & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(spread, i);
+			int shift = (start + i) << 2;
+			long word = (long) TABLE.getOpaque(table, index);
+			if (((word >>> shift) & 0xF) != 0xF) {
+				TABLE.setOpaque(table, index, word + (1L << shift));
+				added = true;
+			}
+		}
+		if (added && ++additions >= sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * Halves every counter.
+	 */
+	void reset() {
+		additions = sampleSize / 2;
+		for (int i = 0; i < table.length; i++) {
+			TABLE.setOpaque(table, i, ((long) TABLE.getOpaque(table, i) >>> 1) & RESET_MASK);
+		}
+	}
+
+	/**
+	 * Returns the table position of the hash code in the given row.
+	 */
+	private int indexOf(int spread, int row) {
+		long hash = (spread + SEEDS[row]) * SEEDS[row];
+		hash += hash >>> 32;
+		return (int) hash & tableMask;
+	}
+
+	/**
+	 * Scrambles the hash code, so that poor hash codes do not all collide.
+	 */
+	private static int spread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+}
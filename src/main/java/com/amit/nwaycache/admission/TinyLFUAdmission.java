@@ -0,0 +1,41 @@
+package com.amit.nwaycache.admission;
+
+/**
+ * Implements <tt>TinyLFU</tt> admission: a new key only replaces the eviction
+ * victim if it was seen more often recently, as estimated by a
+ * {@link CountMinSketch} of every get and put. A one-off sweep over the key
+ * space brings keys seen once, which lose against the hot working set, so the
+ * cache becomes scan resistant whatever the eviction policy.
+ * 
+ * @author Amit
+ *
+ */
+public class TinyLFUAdmission implements AdmissionPolicy {
+
+	private final CountMinSketch sketch;
+
+	/**
+	 * @param cacheSize
+	 *            number of elements of the cache.
+	 */
+	public TinyLFUAdmission(int cacheSize) {
+		this.sketch = new CountMinSketch(cacheSize);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void record(int hash) {
+		sketch.increment(hash);
+	}
+
+	/**
+	 * Admits the candidate if its estimated frequency is higher than the one of
+	 * the victim.
+	 */
+	@Override
+	public boolean admit(int candidateHash, int victimHash) {
+		return sketch.frequency(candidateHash) > sketch.frequency(victimHash);
+	}
+}
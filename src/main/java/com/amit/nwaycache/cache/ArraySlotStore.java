@@ -0,0 +1,132 @@
+package com.amit.nwaycache.cache;
+
+import com.amit.nwaycache.model.CacheConfig;
+
+/**
+ * Structure-of-arrays storage engine. The hashes of all slots live in one
+ * contiguous <code>int[]</code>, with the keys and values in parallel
+ * <code>Object[]</code> arrays, all indexed by
+ * <tt>setNum * cacheLines + index</tt>. Probing a set is a scan over adjacent
+ * ints, and the key is only loaded when the hash matches. A put writes the
+ * three arrays in place and allocates nothing.
+ * <p>
+ * An empty slot has a <code>null</code> key.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+class ArraySlotStore<K, V> implements SlotStore<K, V> {
+
+	/**
+	 * Hashes of the keys of all slots.
+	 */
+	protected final int[] hashes;
+
+	/**
+	 * Keys of all slots.
+	 */
+	private final Object[] keys;
+
+	/**
+	 * Values of all slots.
+	 */
+	private final Object[] values;
+
+	/**
+	 * Number of slots per set.
+	 */
+	protected final int cacheLines;
+
+	/**
+	 * @param config the configuration of the cache
+	 */
+	ArraySlotStore(CacheConfig config) {
+		this.cacheLines = config.getCacheLines();
+		this.hashes = new int[config.getCacheSize()];
+		this.keys = new Object[config.getCacheSize()];
+		this.values = new Object[config.getCacheSize()];
+	}
+
+	@Override
+	public int indexOf(int setNum, K key, int hash) {
+		int base = setNum * cacheLines;
+		for (int i = nextHashMatch(base, 0, hash); i != -1; i = nextHashMatch(base, i + 1, hash)) {
+			Object candidate = keys[base + i];
+			if (null != candidate && key.equals(candidate)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the first slot at or after <code>from</code> whose
+	 * stored hash equals <code>hash</code>.
+	 * 
+	 * @param base slot number of the first slot of the set.
+	 * @param from index inside the set to start from.
+	 * @param hash the hash to match.
+	 * @return the index of the matching slot inside the set, or -1.
+	 */
+	protected int nextHashMatch(int base, int from, int hash) {
+		for (int i = from; i < cacheLines; i++) {
+			if (hashes[base + i] == hash) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int freeIndex(int setNum) {
+		int base = setNum * cacheLines;
+		for (int i = 0; i < cacheLines; i++) {
+			if (null == keys[base + i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public K keyAt(int setNum, int index) {
+		return (K) keys[setNum * cacheLines + index];
+	}
+
+	@Override
+	public int hashAt(int setNum, int index) {
+		return hashes[setNum * cacheLines + index];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V valueAt(int setNum, int index) {
+		return (V) values[setNum * cacheLines + index];
+	}
+
+	@Override
+	public void store(int setNum, int index, K key, int hash, V value) {
+		int slot = setNum * cacheLines + index;
+		hashes[slot] = hash;
+		keys[slot] = key;
+		values[slot] = value;
+	}
+
+	@Override
+	public void clear(int setNum, int index) {
+		int slot = setNum * cacheLines + index;
+		hashes[slot] = 0;
+		keys[slot] = null;
+		values[slot] = null;
+	}
+
+	@Override
+	public void clear(int setNum) {
+		for (int i = 0; i < cacheLines; i++) {
+			clear(setNum, i);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.amit.nwaycache.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous view of a {@link NWayCache}, returning
+ * {@link CompletableFuture}s. The loads run on the executor given to the
+ * constructor, e.g. a virtual thread per task executor, and the concurrent
+ * misses on a key share one future with each other and with the synchronous
+ * {@link NWayCache#get(Object, CacheLoader)} of the same cache.
+ * <p>
+ * The in-memory operations run in the calling thread and return completed
+ * futures: they hold a set lock for a single scan of the set, much less than
+ * a hand-off to the executor costs. The locks are
+ * {@link java.util.concurrent.locks.StampedLock}s, which park rather than
+ * block on a monitor, so a virtual thread waiting for one does not pin its
+ * carrier thread.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+public class AsyncNWayCache<K, V> {
+
+	/**
+	 * The cache doing the work.
+	 */
+	private final NWayCache<K, V> cache;
+
+	/**
+	 * Runs the loads.
+	 */
+	private final Executor executor;
+
+	/**
+	 * @param cache    the cache to wrap.
+	 * @param executor runs the loaders.
+	 */
+	public AsyncNWayCache(NWayCache<K, V> cache, Executor executor) {
+		this.cache = cache;
+		this.executor = executor;
+	}
+
+	/**
+	 * Asynchronous version of {@link NWayCache#get(Object)}. A hit completes in
+	 * the calling thread; the loader of a cache created with one runs on the
+	 * executor of this cache.
+	 * 
+	 * @param key the key whose associated value is to be returned
+	 * @return the future of the value, completed with {@code null} on a
+	 *         cache-miss without a loader
+	 */
+	public CompletableFuture<V> getAsync(K key) {
+		try {
+			return cache.getAsync(key, executor);
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link NWayCache#get(Object, CacheLoader)}: the
+	 * loader runs on the executor of this cache.
+	 * 
+	 * @param key    the key whose associated value is to be returned
+	 * @param loader computes the value on a cache-miss
+	 * @return the future of the cached or loaded value
+	 */
+	public CompletableFuture<V> getOrLoadAsync(K key, CacheLoader<? super K, ? extends V> loader) {
+		try {
+			return cache.getAsync(key, loader, executor);
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link NWayCache#put(Object, Object)}.
+	 * 
+	 * @param key   the cache key
+	 * @param value the value
+	 * @return the future completed once the value is cached
+	 */
+	public CompletableFuture<Void> putAsync(K key, V value) {
+		try {
+			cache.put(key, value);
+			return CompletableFuture.completedFuture(null);
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link NWayCache#remove(Object)}.
+	 * 
+	 * @param key the key to be removed from cache.
+	 * @return the future of whether the mapping was found
+	 */
+	public CompletableFuture<Boolean> removeAsync(K key) {
+		try {
+			return CompletableFuture.completedFuture(cache.remove(key));
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * @return the synchronous cache behind this view.
+	 */
+	public NWayCache<K, V> synchronous() {
+		return cache;
+	}
+}
@@ -0,0 +1,24 @@
+package com.amit.nwaycache.cache;
+
+/**
+ * Computes the value of a key that is not in the cache, usually by reading it
+ * from the backing store the cache is in front of.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+	/**
+	 * Loads the value of the key.
+	 * 
+	 * @param key the key that missed the cache.
+	 * @return the value of the key, or <code>null</code> if it has none, in
+	 *         which case nothing is cached.
+	 * @throws Exception if the value can not be loaded.
+	 */
+	V load(K key) throws Exception;
+}
@@ -0,0 +1,21 @@
+package com.amit.nwaycache.cache;
+
+/**
+ * Thrown by the loading operations of the cache when the {@link CacheLoader}
+ * fails with a checked exception, which is the cause of this one.
+ * 
+ * @author Amit
+ *
+ */
+public class CacheLoaderException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @param message the detail message.
+	 * @param cause   the exception thrown by the loader.
+	 */
+	public CacheLoaderException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,261 @@
+package com.amit.nwaycache.cache;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.amit.nwaycache.admission.AdmissionPolicy;
+import com.amit.nwaycache.codec.Codec;
+import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.eviction.RecencyClock;
+import com.amit.nwaycache.hash.SetIndexer;
+import com.amit.nwaycache.model.CacheConfig;
+import com.amit.nwaycache.model.StorageType;
+
+/**
+ * Reads the cache configuration from the <tt>cache.properties</tt> file (or a
+ * caller supplied {@link Properties} object) and turns it into a
+ * {@link CacheConfig}.
+ *
+ * @author Amit
+ *
+ */
+final class CacheProperties {
+
+	/**
+	 * The properties file.
+	 */
+	static final String PROP_FILE_NAME = "cache.properties";
+
+	private CacheProperties() {
+	}
+
+	/**
+	 * Loads the <tt>cache.properties</tt> file from the CLASSPATH.
+	 *
+	 * @return the loaded properties.
+	 * @throws IOException if the file is not found or can not be read.
+	 */
+	static Properties load() throws IOException {
+		Properties cacheProps = new Properties();
+		try (InputStream inStream = CacheProperties.class.getClassLoader().getResourceAsStream(PROP_FILE_NAME)) {
+			if (inStream != null) {
+				cacheProps.load(inStream);
+			} else {
+				throw new FileNotFoundException("Property file: " + PROP_FILE_NAME + " was not found on classpath.");
+			}
+		}
+		return cacheProps;
+	}
+
+	/**
+	 * Extracts the properties of a tier of a tiered cache: every
+	 * <tt>cache.&lt;tier&gt;.name</tt> property becomes <tt>cache.name</tt>.
+	 *
+	 * @param cacheProps the cache properties.
+	 * @param tier       the name of the tier, e.g. <tt>l2</tt>.
+	 * @return the properties of the tier, empty if there are none.
+	 */
+	static Properties tier(Properties cacheProps, String tier) {
+		String prefix = "cache." + tier + ".";
+		Properties tierProps = new Properties();
+		for (String name : cacheProps.stringPropertyNames()) {
+			if (name.startsWith(prefix)) {
+				tierProps.setProperty("cache." + name.substring(prefix.length()), cacheProps.getProperty(name));
+			}
+		}
+		return tierProps;
+	}
+
+	/**
+	 * Validates the cache properties and creates the configuration, including the
+	 * eviction policy instance.
+	 *
+	 * @param cacheProps the cache properties.
+	 * @return the cache configuration.
+	 * @throws Exception if the properties are invalid or the eviction policy can
+	 *                   not be instantiated.
+	 */
+	static CacheConfig toConfig(Properties cacheProps) throws Exception {
+		EvictionPolicy evictionPolicy;
+		int cacheSize = 10240;
+		int lineSize = 2;
+		int lockStripes = 1;
+		String policyClass = "com.amit.nwaycache.eviction.LRUPolicy";
+		String indexerClass = "com.amit.nwaycache.hash.ModuloSetIndexer";
+
+		if (null != cacheProps.getProperty("cache.lineSize")) {
+			lineSize = Integer.parseInt(cacheProps.getProperty("cache.lineSize"));
+			if (!(lineSize >= 2)) {
+				throw new IllegalArgumentException("Line size must be greater than or equal to 2");
+			}
+		}
+
+		if (null != cacheProps.getProperty("cache.size")) {
+			cacheSize = Integer.parseInt(cacheProps.getProperty("cache.size"));
+			if (!(cacheSize >= lineSize && cacheSize % lineSize == 0)) {
+				throw new IllegalArgumentException("Cache size must be multiple of lineSize");
+			}
+		}
+
+		if (null != cacheProps.getProperty("cache.evictionPolicy.implClass")) {
+			policyClass = cacheProps.getProperty("cache.evictionPolicy.implClass");
+		}
+
+		if (null != cacheProps.getProperty("cache.lockStripes")) {
+			lockStripes = Integer.parseInt(cacheProps.getProperty("cache.lockStripes"));
+			if (!(lockStripes >= 1)) {
+				throw new IllegalArgumentException("Lock stripes must be greater than or equal to 1");
+			}
+		}
+
+		if (null != cacheProps.getProperty("cache.evictionPolicy.clock")) {
+			RecencyClock clock = RecencyClock
+					.valueOf(cacheProps.getProperty("cache.evictionPolicy.clock").trim().toUpperCase());
+			Constructor<EvictionPolicy> ct;
+			try {
+				ct = policyConstructor(policyClass, int.class, int.class, RecencyClock.class);
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException(policyClass + " does not support cache.evictionPolicy.clock", e);
+			}
+			evictionPolicy = ct.newInstance((cacheSize / lineSize), lineSize, clock);
+		} else {
+			Constructor<EvictionPolicy> ct = policyConstructor(policyClass, int.class, int.class);
+			evictionPolicy = ct.newInstance((cacheSize / lineSize), lineSize);
+		}
+
+		CacheConfig config = new CacheConfig(cacheSize, lineSize, evictionPolicy);
+		if (null != cacheProps.getProperty("cache.admission.implClass")) {
+			config.setAdmissionPolicy((AdmissionPolicy) Class
+					.forName(cacheProps.getProperty("cache.admission.implClass").trim())
+					.getDeclaredConstructor(int.class).newInstance(cacheSize));
+		}
+		if (null != cacheProps.getProperty("cache.setIndexer.implClass")) {
+			indexerClass = cacheProps.getProperty("cache.setIndexer.implClass").trim();
+		}
+		config.setSetIndexer((SetIndexer) Class.forName(indexerClass).getDeclaredConstructor(int.class)
+				.newInstance(config.getNumSets()));
+		// more stripes than sets would only leave locks unused
+		config.setLockStripes(Math.min(lockStripes, config.getNumSets()));
+		if (null != cacheProps.getProperty("cache.storage")) {
+			config.setStorage(StorageType.valueOf(cacheProps.getProperty("cache.storage").trim().toUpperCase()));
+		}
+		if (Boolean.parseBoolean(cacheProps.getProperty("cache.lookup.vector"))) {
+			if (config.getStorage() != StorageType.ARRAYS) {
+				throw new IllegalArgumentException("cache.lookup.vector requires cache.storage=ARRAYS");
+			}
+			config.setVectorLookup(true);
+		}
+		if (null != cacheProps.getProperty("cache.stats.enabled")) {
+			config.setStatsEnabled(Boolean.parseBoolean(cacheProps.getProperty("cache.stats.enabled").trim()));
+		}
+		if (null != cacheProps.getProperty("cache.name")) {
+			config.setName(cacheProps.getProperty("cache.name").trim());
+		}
+		config.setMetricsEnabled(Boolean.parseBoolean(cacheProps.getProperty("cache.metrics.enabled")));
+		config.setSetMetricsEnabled(Boolean.parseBoolean(cacheProps.getProperty("cache.setMetrics.enabled")));
+		if (Boolean.parseBoolean(cacheProps.getProperty("cache.metrics.jmx"))) {
+			if (!config.isMetricsEnabled() && !config.isSetMetricsEnabled()) {
+				throw new IllegalArgumentException(
+						"cache.metrics.jmx requires cache.metrics.enabled or cache.setMetrics.enabled");
+			}
+			config.setMetricsJmx(true);
+		}
+		config.setExpireAfterWriteNanos(millis(cacheProps, "cache.expireAfterWrite", 0L));
+		config.setExpireAfterAccessNanos(millis(cacheProps, "cache.expireAfterAccess", 0L));
+		config.setRefreshAfterWriteNanos(millis(cacheProps, "cache.refreshAfterWrite", 0L));
+		// a default time-to-live or time-to-idle implies expiry, and the refresh
+		// needs the write times kept with the deadlines
+		config.setExpiryEnabled(Boolean.parseBoolean(cacheProps.getProperty("cache.expiry.enabled"))
+				|| config.getExpireAfterWriteNanos() > 0 || config.getExpireAfterAccessNanos() > 0
+				|| config.getRefreshAfterWriteNanos() > 0);
+		if (null != cacheProps.getProperty("cache.refresh.threads")) {
+			config.setRefreshThreads(Integer.parseInt(cacheProps.getProperty("cache.refresh.threads").trim()));
+			if (!(config.getRefreshThreads() >= 1)) {
+				throw new IllegalArgumentException("cache.refresh.threads must be greater than or equal to 1");
+			}
+		}
+		if (null != cacheProps.getProperty("cache.refresh.queueSize")) {
+			config.setRefreshQueueSize(Integer.parseInt(cacheProps.getProperty("cache.refresh.queueSize").trim()));
+			if (!(config.getRefreshQueueSize() >= 1)) {
+				throw new IllegalArgumentException("cache.refresh.queueSize must be greater than or equal to 1");
+			}
+		}
+		if (config.isExpiryEnabled()) {
+			config.setExpiryClockTickNanos(millis(cacheProps, "cache.expiry.clockTick", 1L));
+			if (!(config.getExpiryClockTickNanos() > 0)) {
+				throw new IllegalArgumentException("cache.expiry.clockTick must be greater than 0");
+			}
+			config.setSweepIntervalNanos(millis(cacheProps, "cache.expiry.sweepInterval", 0L));
+		}
+		if (null != cacheProps.getProperty("cache.writeBehind.batchSize")) {
+			config.setWriteBehindBatchSize(Integer.parseInt(cacheProps.getProperty("cache.writeBehind.batchSize").trim()));
+			if (!(config.getWriteBehindBatchSize() >= 1)) {
+				throw new IllegalArgumentException("cache.writeBehind.batchSize must be greater than or equal to 1");
+			}
+		}
+		if (null != cacheProps.getProperty("cache.writeBehind.flushInterval")) {
+			config.setWriteBehindFlushIntervalNanos(millis(cacheProps, "cache.writeBehind.flushInterval", 0L));
+			if (!(config.getWriteBehindFlushIntervalNanos() > 0)) {
+				throw new IllegalArgumentException("cache.writeBehind.flushInterval must be greater than 0");
+			}
+		}
+		if (config.getStorage() == StorageType.MAPPED) {
+			String file = cacheProps.getProperty("cache.mapped.file");
+			if (null == file) {
+				throw new IllegalArgumentException("cache.mapped.file must be set for cache.storage=MAPPED");
+			}
+			config.setMappedFile(file.trim());
+		}
+		if (config.getStorage() == StorageType.OFF_HEAP || config.getStorage() == StorageType.MAPPED) {
+			if (null != cacheProps.getProperty("cache.offHeap.slotBytes")) {
+				config.setSlotBytes(Integer.parseInt(cacheProps.getProperty("cache.offHeap.slotBytes")));
+				if (!(config.getSlotBytes() > OffHeapSlotStore.HEADER_BYTES)) {
+					throw new IllegalArgumentException(
+							"Off-heap slot size must be greater than " + OffHeapSlotStore.HEADER_BYTES);
+				}
+			}
+			config.setKeyCodec(codec(cacheProps, "cache.offHeap.keyCodec"));
+			config.setValueCodec(codec(cacheProps, "cache.offHeap.valueCodec"));
+		}
+		return config;
+	}
+
+	/**
+	 * Reads a duration property given in milliseconds.
+	 *
+	 * @return the duration in nanoseconds, or the default (in milliseconds) if
+	 *         the property is not set.
+	 */
+	private static long millis(Properties cacheProps, String property, long defaultMillis) {
+		String value = cacheProps.getProperty(property);
+		long millis = (null != value) ? Long.parseLong(value.trim()) : defaultMillis;
+		if (millis < 0) {
+			throw new IllegalArgumentException(property + " must not be negative");
+		}
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * Instantiates the codec named by the property, which must be set.
+	 */
+	private static Codec<?> codec(Properties cacheProps, String property) throws Exception {
+		String codecClass = cacheProps.getProperty(property);
+		if (null == codecClass) {
+			throw new IllegalArgumentException(property + " must be set for cache.storage=OFF_HEAP or MAPPED");
+		}
+		return (Codec<?>) Class.forName(codecClass.trim()).getDeclaredConstructor().newInstance();
+	}
+
+	/**
+	 * Looks up the eviction policy constructor with the given parameter types.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Constructor<EvictionPolicy> policyConstructor(String policyClass, Class<?>... args)
+			throws ClassNotFoundException, NoSuchMethodException {
+		return (Constructor<EvictionPolicy>) Class.forName(policyClass).getDeclaredConstructor(args);
+	}
+}
@@ -0,0 +1,95 @@
+package com.amit.nwaycache.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amit.nwaycache.model.CacheConfig;
+import com.amit.nwaycache.model.CacheElement;
+
+/**
+ * The default storage engine. Keeps a list of one-dimensional arrays, one array
+ * per set, holding an immutable {@link CacheElement} per occupied slot.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+final class ElementSlotStore<K, V> implements SlotStore<K, V> {
+
+	/**
+	 * The Cache data structure. Its a list of arrays where sets are arrays and
+	 * there is a list of n such arrays.
+	 */
+	private final List<CacheElement<K, V>[]> cache;
+
+	/**
+	 * @param config the configuration of the cache
+	 */
+	@SuppressWarnings("unchecked")
+	ElementSlotStore(CacheConfig config) {
+		this.cache = new ArrayList<>(config.getNumSets());
+		for (int i = 0; i < config.getNumSets(); i++) {
+			cache.add(new CacheElement[config.getCacheLines()]);
+		}
+	}
+
+	@Override
+	public int indexOf(int setNum, K key, int hash) {
+		CacheElement<K, V>[] set = cache.get(setNum);
+		for (int i = 0; i < set.length; i++) {
+			CacheElement<K, V> element = set[i];
+			if (null != element && element.hashCode() == hash && key.equals(element.getKey())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int freeIndex(int setNum) {
+		CacheElement<K, V>[] set = cache.get(setNum);
+		for (int i = 0; i < set.length; i++) {
+			if (null == set[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public K keyAt(int setNum, int index) {
+		CacheElement<K, V> element = cache.get(setNum)[index];
+		return (element == null) ? null : element.getKey();
+	}
+
+	@Override
+	public int hashAt(int setNum, int index) {
+		CacheElement<K, V> element = cache.get(setNum)[index];
+		return (element == null) ? 0 : element.getHash();
+	}
+
+	@Override
+	public V valueAt(int setNum, int index) {
+		CacheElement<K, V> element = cache.get(setNum)[index];
+		return (element == null) ? null : element.getValue();
+	}
+
+	@Override
+	public void store(int setNum, int index, K key, int hash, V value) {
+		cache.get(setNum)[index] = new CacheElement<>(key, value);
+	}
+
+	@Override
+	public void clear(int setNum, int index) {
+		cache.get(setNum)[index] = null;
+	}
+
+	@Override
+	public void clear(int setNum) {
+		CacheElement<K, V>[] set = cache.get(setNum);
+		for (int i = 0; i < set.length; i++) {
+			set[i] = null;
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package com.amit.nwaycache.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import com.amit.nwaycache.expiry.CoarseClock;
+import com.amit.nwaycache.expiry.TimerWheel;
+import com.amit.nwaycache.model.CacheConfig;
+
+/**
+ * Expiry deadlines of the slots of a cache, addressed like the slots by
+ * <tt>setNum * cacheLines + index</tt>. Every slot has a write deadline (from
+ * its time-to-live), an access deadline (from its time-to-idle, pushed back on
+ * every hit) and its time-to-idle; the entry expires at the earlier of the
+ * two deadlines. Times come from a {@link CoarseClock}. With refresh-after-write
+ * the table also keeps the write time of every slot.
+ * <p>
+ * With a sweep interval the table also owns a {@link TimerWheel} of the sets
+ * holding entries with a deadline, advanced by a task on the sweeper thread
+ * shared by all the caches, which hands the due sets to the cache for
+ * reclamation.
+ * <p>
+ * Deadlines are written under the write lock of the set, except the access
+ * deadline which a hit pushes back with a compare-and-set. Hits read the
+ * table without a lock, along with the slot in the optimistic read of the
+ * set, so every element of the four arrays is read and written in opaque
+ * mode.
+ * 
+ * @author Amit
+ *
+ */
+final class ExpiryTable {
+
+	private static final VarHandle DEADLINES = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Number of buckets of the timer wheel.
+	 */
+	static final int WHEEL_BUCKETS = 64;
+
+	/**
+	 * Deadline of an entry that does not expire.
+	 */
+	static final long NEVER = Long.MAX_VALUE;
+
+	/**
+	 * Returned by {@link #accessDeadline(int, long)} for an expired entry.
+	 */
+	static final long EXPIRED = Long.MIN_VALUE;
+
+	private final long[] writeDeadlines;
+
+	private final long[] accessDeadlines;
+
+	private final long[] idleNanos;
+
+	/**
+	 * Write times of the slots, or null without refresh-after-write.
+	 */
+	private final long[] writeTimes;
+
+	private final long refreshNanos;
+
+	private final CoarseClock clock;
+
+	private final TimerWheel wheel;
+
+	/**
+	 * The sweep task of this table, or null.
+	 */
+	private ScheduledFuture<?> sweep;
+
+	private boolean closed;
+
+	/**
+	 * @param config the configuration of the cache
+	 */
+	ExpiryTable(CacheConfig config) {
+		int slots = config.getCacheSize();
+		this.writeDeadlines = new long[slots];
+		this.accessDeadlines = new long[slots];
+		this.idleNanos = new long[slots];
+		this.refreshNanos = config.getRefreshAfterWriteNanos();
+		this.writeTimes = (refreshNanos > 0) ? new long[slots] : null;
+		clear();
+		this.clock = CoarseClock.acquire(config.getExpiryClockTickNanos(), TimeUnit.NANOSECONDS);
+		long interval = config.getSweepIntervalNanos();
+		this.wheel = (interval > 0) ? new TimerWheel(config.getNumSets(), WHEEL_BUCKETS, interval, clock.nanoTime())
+				: null;
+	}
+
+	/**
+	 * Holder of the sweeper thread, started with the first sweep.
+	 */
+	private static final class Sweeper {
+		static final ScheduledExecutorService EXECUTOR = CoarseClock.newScheduler("nwaycache-sweeper");
+	}
+
+	/**
+	 * Starts the background sweep, if a sweep interval is configured.
+	 * 
+	 * @param interval  the sweep interval in nanoseconds.
+	 * @param sweepSet  reclaims the expired entries of a set.
+	 */
+	void startSweeper(long interval, IntConsumer sweepSet) {
+		if (wheel != null) {
+			sweep = Sweeper.EXECUTOR.scheduleWithFixedDelay(() -> wheel.advance(clock.nanoTime(), sweepSet), interval,
+					interval, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * @return the current time of the coarse clock.
+	 */
+	long now() {
+		return clock.nanoTime();
+	}
+
+	/**
+	 * Sets the deadlines of a newly written entry and schedules its set.
+	 * 
+	 * @param setNum            set of the slot.
+	 * @param slot              the slot.
+	 * @param now               the current time.
+	 * @param expireAfterWrite  time-to-live in nanoseconds, 0 for none.
+	 * @param expireAfterAccess time-to-idle in nanoseconds, 0 for none.
+	 */
+	void written(int setNum, int slot, long now, long expireAfterWrite, long expireAfterAccess) {
+		DEADLINES.setOpaque(writeDeadlines, slot, (expireAfterWrite > 0) ? now + expireAfterWrite : NEVER);
+		DEADLINES.setOpaque(idleNanos, slot, expireAfterAccess);
+		if (writeTimes != null) {
+			DEADLINES.setOpaque(writeTimes, slot, now);
+		}
+		DEADLINES.setOpaque(accessDeadlines, slot, (expireAfterAccess > 0) ? now + expireAfterAccess : NEVER);
+		schedule(setNum, deadlineOf(slot));
+	}
+
+	/**
+	 * Reads the access deadline of a hit entry, for
+	 * {@link #accessed(int, long, long)}. Must be read along with the slot, so
+	 * that it is the deadline of the key that was found.
+	 * 
+	 * @return the access deadline, or {@link #EXPIRED} if the entry has
+	 *         expired.
+	 */
+	long accessDeadline(int slot, long now) {
+		return isExpired(slot, now) ? EXPIRED : (long) DEADLINES.getOpaque(accessDeadlines, slot);
+	}
+
+	/**
+	 * Pushes back the access deadline of a hit entry, unless the slot has been
+	 * written since its deadline was read: then it may hold another entry,
+	 * whose deadline must not move.
+	 * 
+	 * @param seen the deadline read by {@link #accessDeadline(int, long)}.
+	 */
+	void accessed(int slot, long seen, long now) {
+		long idle = (long) DEADLINES.getOpaque(idleNanos, slot);
+		if (idle > 0 && now + idle != seen) {
+			DEADLINES.compareAndSet(accessDeadlines, slot, seen, now + idle);
+		}
+	}
+
+	/**
+	 * @return the write time of the entry of the slot with refresh-after-write,
+	 *         else 0.
+	 */
+	long writeTime(int slot) {
+		return (writeTimes != null) ? (long) DEADLINES.getOpaque(writeTimes, slot) : 0L;
+	}
+
+	/**
+	 * Pushes back the next reload of the entry of a slot by a whole refresh
+	 * interval, after a failed reload.
+	 */
+	void refreshFailed(int slot, long now) {
+		DEADLINES.setOpaque(writeTimes, slot, now);
+	}
+
+	/**
+	 * @param writeTime the write time of an entry, read by
+	 *                  {@link #writeTime(int)}.
+	 * @return whether the entry is old enough to be reloaded.
+	 */
+	boolean isRefreshDue(long writeTime, long now) {
+		return writeTimes != null && now - writeTime >= refreshNanos;
+	}
+
+	/**
+	 * Clears the deadlines of an emptied slot, so that it never expires.
+	 */
+	void removed(int slot) {
+		DEADLINES.setOpaque(writeDeadlines, slot, NEVER);
+		DEADLINES.setOpaque(idleNanos, slot, 0L);
+		DEADLINES.setOpaque(accessDeadlines, slot, NEVER);
+	}
+
+	/**
+	 * Clears the deadlines of all the slots. The caller must hold every lock.
+	 */
+	void clear() {
+		for (int slot = 0; slot < writeDeadlines.length; slot++) {
+			removed(slot);
+		}
+	}
+
+	/**
+	 * @return whether the entry of the slot has expired.
+	 */
+	boolean isExpired(int slot, long now) {
+		long deadline = deadlineOf(slot);
+		return deadline != NEVER && now - deadline >= 0;
+	}
+
+	/**
+	 * @return the time the entry of the slot expires at, or {@link #NEVER}.
+	 */
+	long deadlineOf(int slot) {
+		long write = (long) DEADLINES.getOpaque(writeDeadlines, slot);
+		long access = (long) DEADLINES.getOpaque(accessDeadlines, slot);
+		return (write == NEVER) ? access : (access == NEVER) ? write : (write - access < 0) ? write : access;
+	}
+
+	/**
+	 * Schedules the set to be swept at the deadline, if there is a sweeper and
+	 * a deadline.
+	 */
+	void schedule(int setNum, long deadline) {
+		if (wheel != null && deadline != NEVER) {
+			wheel.schedule(setNum, deadline);
+		}
+	}
+
+	/**
+	 * Cancels the sweep task and releases the clock.
+	 */
+	synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (sweep != null) {
+			sweep.cancel(false);
+		}
+		clock.close();
+	}
+}
@@ -0,0 +1,273 @@
+package com.amit.nwaycache.cache;
+
+import java.util.Properties;
+import java.util.concurrent.locks.StampedLock;
+
+import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.hash.SetIndexer;
+import com.amit.nwaycache.model.CacheConfig;
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * N-Way Set Associative cache specialized for <code>int</code> keys and
+ * values. It has the same sets, locking, statistics and eviction policies as
+ * {@link NWayCacheImpl}, but keeps keys and values in parallel
+ * <code>int[]</code>s, so nothing is boxed on any operation.
+ * <p>
+ * The <tt>cache.storage</tt> property does not apply.
+ * 
+ * @author Amit
+ *
+ */
+public class IntIntNWayCache {
+
+	/**
+	 * Keys of all slots, indexed by <tt>setNum * cacheLines + index</tt>.
+	 */
+	private final int[] keys;
+
+	/**
+	 * Values of all slots.
+	 */
+	private final int[] values;
+
+	/**
+	 * Whether a slot holds a mapping.
+	 */
+	private final boolean[] used;
+
+	/**
+	 * Configuration class
+	 */
+	private final CacheConfig config;
+
+	/**
+	 * Class for maintaining the cache statistics.
+	 */
+	private final Stats stats;
+
+	/**
+	 * Locks guarding the sets.
+	 */
+	private final StripedLocks locks;
+
+	/**
+	 * Maps the key hash codes to sets.
+	 */
+	private final SetIndexer setIndexer;
+
+	/**
+	 * Static factory method for instantiation the cache. The cache properties are
+	 * read from the <tt>cache.properties</tt> file which must be available on the
+	 * CLASSPATH.
+	 * 
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static IntIntNWayCache getCache() throws Exception {
+		return getCache(CacheProperties.load());
+	}
+
+	/**
+	 * Static factory method for instantiation the cache from the given
+	 * properties.
+	 * 
+	 * @param cacheProps the cache properties.
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static IntIntNWayCache getCache(Properties cacheProps) throws Exception {
+		return new IntIntNWayCache(CacheProperties.toConfig(cacheProps));
+	}
+
+	/**
+	 * @param config the configuration of the cache
+	 */
+	private IntIntNWayCache(final CacheConfig config) {
+		this.config = config;
+		this.keys = new int[config.getCacheSize()];
+		this.values = new int[config.getCacheSize()];
+		this.used = new boolean[config.getCacheSize()];
+		this.stats = new Stats(0, 0, 0, 0, config.getCacheSize(), config.isStatsEnabled());
+		this.locks = new StripedLocks(config.getLockStripes());
+		this.setIndexer = config.getSetIndexer();
+	}
+
+	/**
+	 * Puts the specified value with the specified key in this cache, evicting an
+	 * element of the set if it is full.
+	 * 
+	 * @param key   the cache key
+	 * @param value the value
+	 */
+	public void put(final int key, final int value) {
+		int setNum = getSetNum(key);
+		int base = setNum * config.getCacheLines();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.writeLock();
+		try {
+			EvictionPolicy policy = getCachePolicy();
+			int index = indexOf(base, key);
+			boolean inserted = false;
+			if (index == -1) {
+				index = freeIndex(base);
+				inserted = (index != -1);
+			}
+			if (index == -1) {
+				index = policy.evict(setNum);
+				policy.onEvict(setNum, index, keys[base + index]);
+				stats.incrementNumEvictions();
+				inserted = true;
+			}
+			keys[base + index] = key;
+			values[base + index] = value;
+			used[base + index] = true;
+			if (inserted) {
+				policy.onInsert(setNum, index, key);
+			} else {
+				policy.update(setNum, index);
+			}
+			stats.incrementNumUpdates();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped (cache-hit), or
+	 * <code>missingValue</code> if the cache contains no mapping for the key
+	 * (cache-miss).
+	 * 
+	 * @param key          the key whose associated value is to be returned
+	 * @param missingValue the value to return on a cache-miss
+	 * @return the value, or <code>missingValue</code> if the cache contains no
+	 *         mapping.
+	 */
+	public int get(final int key, final int missingValue) {
+		int setNum = getSetNum(key);
+		int base = setNum * config.getCacheLines();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.tryOptimisticRead();
+		int index = indexOf(base, key);
+		int value = (index != -1) ? values[base + index] : missingValue;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				index = indexOf(base, key);
+				value = (index != -1) ? values[base + index] : missingValue;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		if (index == -1) {
+			stats.incrementCacheMisses();
+			return missingValue;
+		}
+		stats.incrementCacheHits();
+		update(setNum, base, key, index);
+		return value;
+	}
+
+	/**
+	 * Removes the mapping of the key from the cache if the mapping is found.
+	 * 
+	 * @param key the key to be removed from cache.
+	 * @return true if mapping is found, false otherwise.
+	 */
+	public boolean remove(final int key) {
+		int setNum = getSetNum(key);
+		int base = setNum * config.getCacheLines();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.writeLock();
+		try {
+			int index = indexOf(base, key);
+			if (index != -1) {
+				used[base + index] = false;
+				getCachePolicy().onRemove(setNum, index);
+				stats.incrementNumUpdates();
+				return true;
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		return false;
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public void clear() {
+		locks.lockAll();
+		try {
+			for (int i = 0; i < used.length; i++) {
+				used[i] = false;
+			}
+			stats.clear();
+		} finally {
+			locks.unlockAll();
+		}
+	}
+
+	/**
+	 * Returns the EvictionPolicy class for the current instance of Cache.
+	 * 
+	 * @return EvictionPolicy
+	 */
+	public EvictionPolicy getCachePolicy() {
+		return config.getEvictionPolicy();
+	}
+
+	/**
+	 * Reports a hit found without the write lock to the eviction policy, under
+	 * the lock if the policy requires it and only if the key is still there.
+	 */
+	private void update(int setNum, int base, int key, int index) {
+		EvictionPolicy policy = getCachePolicy();
+		if (!policy.requiresLockedUpdate()) {
+			policy.update(setNum, index);
+			return;
+		}
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.writeLock();
+		try {
+			int current = indexOf(base, key);
+			if (current != -1) {
+				policy.update(setNum, current);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the statistics object for the cache
+	 * 
+	 * @return the statistics object for the cache
+	 */
+	public Stats getStats() {
+		// the counters are summed without blocking the cache operations
+		return (Stats) stats.clone();
+	}
+
+	private int getSetNum(int hash) {
+		return setIndexer.setOf(hash);
+	}
+
+	private int indexOf(int base, int key) {
+		for (int i = 0; i < config.getCacheLines(); i++) {
+			if (keys[base + i] == key && used[base + i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int freeIndex(int base) {
+		for (int i = 0; i < config.getCacheLines(); i++) {
+			if (!used[base + i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
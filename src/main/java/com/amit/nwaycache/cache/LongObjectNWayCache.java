@@ -0,0 +1,270 @@
+package com.amit.nwaycache.cache;
+
+import java.util.Properties;
+import java.util.concurrent.locks.StampedLock;
+
+import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.hash.SetIndexer;
+import com.amit.nwaycache.model.CacheConfig;
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * N-Way Set Associative cache specialized for <code>long</code> keys. It has
+ * the same sets, locking, statistics and eviction policies as
+ * {@link NWayCacheImpl}, but keeps the keys in a <code>long[]</code> next to a
+ * parallel array of values, so neither a lookup nor a put boxes the key or
+ * calls <code>hashCode()</code> / <code>equals()</code>.
+ * <p>
+ * Values can not be <code>null</code>; an empty slot has a <code>null</code>
+ * value. The <tt>cache.storage</tt> property does not apply.
+ * 
+ * @author Amit
+ *
+ * @param <V> value class of the cache element.
+ */
+public class LongObjectNWayCache<V> {
+
+	/**
+	 * Keys of all slots, indexed by <tt>setNum * cacheLines + index</tt>.
+	 */
+	private final long[] keys;
+
+	/**
+	 * Values of all slots, <code>null</code> for an empty slot.
+	 */
+	private final Object[] values;
+
+	/**
+	 * Configuration class
+	 */
+	private final CacheConfig config;
+
+	/**
+	 * Class for maintaining the cache statistics.
+	 */
+	private final Stats stats;
+
+	/**
+	 * Locks guarding the sets.
+	 */
+	private final StripedLocks locks;
+
+	/**
+	 * Maps the key hash codes to sets.
+	 */
+	private final SetIndexer setIndexer;
+
+	/**
+	 * Static factory method for instantiation the cache. The cache properties are
+	 * read from the <tt>cache.properties</tt> file which must be available on the
+	 * CLASSPATH.
+	 * 
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static <V> LongObjectNWayCache<V> getCache() throws Exception {
+		return getCache(CacheProperties.load());
+	}
+
+	/**
+	 * Static factory method for instantiation the cache from the given
+	 * properties.
+	 * 
+	 * @param cacheProps the cache properties.
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static <V> LongObjectNWayCache<V> getCache(Properties cacheProps) throws Exception {
+		return new LongObjectNWayCache<V>(CacheProperties.toConfig(cacheProps));
+	}
+
+	/**
+	 * @param config the configuration of the cache
+	 */
+	private LongObjectNWayCache(final CacheConfig config) {
+		this.config = config;
+		this.keys = new long[config.getCacheSize()];
+		this.values = new Object[config.getCacheSize()];
+		this.stats = new Stats(0, 0, 0, 0, config.getCacheSize(), config.isStatsEnabled());
+		this.locks = new StripedLocks(config.getLockStripes());
+		this.setIndexer = config.getSetIndexer();
+	}
+
+	/**
+	 * Puts the specified value with the specified key in this cache, evicting an
+	 * element of the set if it is full.
+	 * 
+	 * @param key   the cache key
+	 * @param value the value
+	 * @throws IllegalArgumentException if the value is <code>null</code>
+	 */
+	public void put(final long key, final V value) {
+		if (null == value)
+			throw new IllegalArgumentException("value can not be null!");
+		int setNum = getSetNum(Long.hashCode(key));
+		int base = setNum * config.getCacheLines();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.writeLock();
+		try {
+			EvictionPolicy policy = getCachePolicy();
+			int index = indexOf(base, key);
+			boolean inserted = false;
+			if (index == -1) {
+				index = freeIndex(base);
+				inserted = (index != -1);
+			}
+			if (index == -1) {
+				index = policy.evict(setNum);
+				policy.onEvict(setNum, index, Long.hashCode(keys[base + index]));
+				stats.incrementNumEvictions();
+				inserted = true;
+			}
+			keys[base + index] = key;
+			values[base + index] = value;
+			if (inserted) {
+				policy.onInsert(setNum, index, Long.hashCode(key));
+			} else {
+				policy.update(setNum, index);
+			}
+			stats.incrementNumUpdates();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the value to which the specified key is mapped (cache-hit), or
+	 * {@code null} if the cache contains no mapping for the key (cache-miss).
+	 * 
+	 * @param key the key whose associated value is to be returned
+	 * @return the value, or {@code null} if the cache contains no mapping.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(final long key) {
+		int setNum = getSetNum(Long.hashCode(key));
+		int base = setNum * config.getCacheLines();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.tryOptimisticRead();
+		int index = indexOf(base, key);
+		Object value = (index != -1) ? values[base + index] : null;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				index = indexOf(base, key);
+				value = (index != -1) ? values[base + index] : null;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		if (index == -1) {
+			stats.incrementCacheMisses();
+			return null;
+		}
+		stats.incrementCacheHits();
+		update(setNum, base, key, index);
+		return (V) value;
+	}
+
+	/**
+	 * Removes the mapping of the key from the cache if the mapping is found.
+	 * 
+	 * @param key the key to be removed from cache.
+	 * @return true if mapping is found, false otherwise.
+	 */
+	public boolean remove(final long key) {
+		int setNum = getSetNum(Long.hashCode(key));
+		int base = setNum * config.getCacheLines();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.writeLock();
+		try {
+			int index = indexOf(base, key);
+			if (index != -1) {
+				values[base + index] = null;
+				getCachePolicy().onRemove(setNum, index);
+				stats.incrementNumUpdates();
+				return true;
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		return false;
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public void clear() {
+		locks.lockAll();
+		try {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = null;
+			}
+			stats.clear();
+		} finally {
+			locks.unlockAll();
+		}
+	}
+
+	/**
+	 * Returns the EvictionPolicy class for the current instance of Cache.
+	 * 
+	 * @return EvictionPolicy
+	 */
+	public EvictionPolicy getCachePolicy() {
+		return config.getEvictionPolicy();
+	}
+
+	/**
+	 * Reports a hit found without the write lock to the eviction policy, under
+	 * the lock if the policy requires it and only if the key is still there.
+	 */
+	private void update(int setNum, int base, long key, int index) {
+		EvictionPolicy policy = getCachePolicy();
+		if (!policy.requiresLockedUpdate()) {
+			policy.update(setNum, index);
+			return;
+		}
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.writeLock();
+		try {
+			int current = indexOf(base, key);
+			if (current != -1) {
+				policy.update(setNum, current);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the statistics object for the cache
+	 * 
+	 * @return the statistics object for the cache
+	 */
+	public Stats getStats() {
+		// the counters are summed without blocking the cache operations
+		return (Stats) stats.clone();
+	}
+
+	private int getSetNum(int hash) {
+		return setIndexer.setOf(hash);
+	}
+
+	private int indexOf(int base, long key) {
+		for (int i = 0; i < config.getCacheLines(); i++) {
+			if (keys[base + i] == key && values[base + i] != null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int freeIndex(int base) {
+		for (int i = 0; i < config.getCacheLines(); i++) {
+			if (values[base + i] == null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
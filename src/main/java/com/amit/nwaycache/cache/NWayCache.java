@@ -1,6 +1,18 @@
 package com.amit.nwaycache.cache;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.amit.nwaycache.codec.Codec;
 import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.metrics.MetricsSnapshot;
+import com.amit.nwaycache.metrics.SetMetricsSnapshot;
 import com.amit.nwaycache.model.Stats;
 
 /**
@@ -16,7 +28,7 @@ import com.amit.nwaycache.model.Stats;
  * @author Amit
  *
  */
-public interface NWayCache<K, V> {
+public interface NWayCache<K, V> extends AutoCloseable {
 	/**
 	 * Clears the cache.
 	 */
@@ -25,6 +37,8 @@ public interface NWayCache<K, V> {
 	/**
 	 * Returns the value to which the specified key is mapped (cache-hit), or
 	 * {@code null} if the cache contains no mapping for the key (cache-miss).
+	 * A cache created with a {@link CacheLoader} instead loads the value of a
+	 * missing key, as {@link #get(Object, CacheLoader)} does.
 	 * 
 	 * @param key
 	 *            key the key whose associated value is to be returned
@@ -35,6 +49,73 @@ public interface NWayCache<K, V> {
 	 */
 	public V get(K key);
 
+	/**
+	 * Returns the value to which the specified key is mapped, loading it with
+	 * the loader and caching it on a cache-miss. Concurrent misses on the same
+	 * key share a single load: one thread runs the loader, outside any lock of
+	 * the cache, and the others wait for its result. The load time and the
+	 * failed loads are recorded in the {@link Stats}.
+	 * <p>
+	 * The loader must not load the same key from this cache.
+	 * 
+	 * @param key
+	 *            the key whose associated value is to be returned
+	 * @param loader
+	 *            computes the value on a cache-miss
+	 * @return the cached or loaded value, or {@code null} if the loader
+	 *         returned {@code null}
+	 * @throws CacheLoaderException
+	 *             if the loader throws a checked exception; unchecked ones are
+	 *             thrown as they are
+	 */
+	public V get(K key, CacheLoader<? super K, ? extends V> loader);
+
+	/**
+	 * Asynchronous version of {@link #get(Object, CacheLoader)}. A hit returns
+	 * a completed future; on a miss the loader runs on the executor and the
+	 * future completes once the loaded value is cached. Concurrent misses on
+	 * the same key, synchronous or not, share a single load.
+	 * 
+	 * @param key
+	 *            the key whose associated value is to be returned
+	 * @param loader
+	 *            computes the value on a cache-miss
+	 * @param executor
+	 *            runs the loader
+	 * @return the future of the cached or loaded value
+	 */
+	public CompletableFuture<V> getAsync(K key, CacheLoader<? super K, ? extends V> loader, Executor executor);
+
+	/**
+	 * Asynchronous version of {@link #get(Object)}. A hit returns a completed
+	 * future, as does a miss of a cache without a {@link CacheLoader}; a cache
+	 * created with one loads the missing value on the executor, as
+	 * {@link #getAsync(Object, CacheLoader, Executor)} does.
+	 * 
+	 * @param key
+	 *            the key whose associated value is to be returned
+	 * @param executor
+	 *            runs the loader of the cache
+	 * @return the future of the value, completed with {@code null} on a
+	 *         cache-miss without a loader
+	 */
+	public CompletableFuture<V> getAsync(K key, Executor executor);
+
+	/**
+	 * Same as {@link #get(Object, CacheLoader)}, following the contract of
+	 * {@link java.util.Map#computeIfAbsent(Object, Function)}.
+	 * 
+	 * @param key
+	 *            the key whose associated value is to be returned
+	 * @param mappingFunction
+	 *            computes the value on a cache-miss
+	 * @return the cached or computed value, or {@code null} if the function
+	 *         returned {@code null}
+	 */
+	public default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		return get(key, mappingFunction::apply);
+	}
+
 	/**
 	 * Returns the EvictionPolicy class for the current instance of Cache.
 	 * 
@@ -46,6 +127,8 @@ public interface NWayCache<K, V> {
 	 * Puts the specified value with the specified key in this cache. If all the
 	 * cache slots of the set are full, eviction algorithm will be used to evict
 	 * the old element to make room for the new element.
+	 * With an admission policy configured, a new key that would evict an
+	 * element may instead be rejected, leaving the cache unchanged.
 	 * 
 	 * @param key
 	 *            the cache key
@@ -56,6 +139,27 @@ public interface NWayCache<K, V> {
 	 */
 	public void put(K key, V value);
 
+	/**
+	 * Puts the specified value with the specified key in this cache, as
+	 * {@link #put(Object, Object)} does, with its own time-to-live and
+	 * time-to-idle instead of the defaults of the cache. An expired mapping is
+	 * a cache-miss, and its slot is the first one reused in its set.
+	 * 
+	 * @param key
+	 *            the cache key
+	 * @param value
+	 *            the value
+	 * @param expireAfterWrite
+	 *            time after the put when the mapping expires, 0 for never
+	 * @param expireAfterAccess
+	 *            time after the last get when the mapping expires, 0 for never
+	 * @param unit
+	 *            unit of the two times
+	 * @exception IllegalStateException
+	 *                if expiry is not enabled for the cache
+	 */
+	public void put(K key, V value, long expireAfterWrite, long expireAfterAccess, TimeUnit unit);
+
 	/**
 	 * Removes the mapping of the <tt>element</tt> from the cache if the mapping
 	 * is found.
@@ -68,10 +172,114 @@ public interface NWayCache<K, V> {
 	 */
 	public boolean remove(K key);
 
+	/**
+	 * Returns the values of all the given keys that are in the cache. The keys
+	 * are grouped by set, so every lock is taken once per call rather than once
+	 * per key.
+	 * 
+	 * @param keys
+	 *            the keys whose values are to be returned.
+	 * @return a map of the keys that were found (cache-hits) to their values.
+	 * @throws IllegalArgumentException
+	 *             if one of the keys is <code>null</code>
+	 */
+	public Map<K, V> getAll(Collection<? extends K> keys);
+
+	/**
+	 * Puts all the given mappings in this cache, evicting as
+	 * {@link #put(Object, Object)} does. The mappings are grouped by set, so
+	 * every lock is taken once per call rather than once per key.
+	 * 
+	 * @param entries
+	 *            the mappings to be put.
+	 * @throws IllegalArgumentException
+	 *             if one of the keys is <code>null</code>
+	 */
+	public void putAll(Map<? extends K, ? extends V> entries);
+
+	/**
+	 * Removes the mappings of all the given keys from the cache. The keys are
+	 * grouped by set, so every lock is taken once per call rather than once per
+	 * key.
+	 * 
+	 * @param keys
+	 *            the keys to be removed from cache.
+	 * @return the number of mappings removed.
+	 * @throws IllegalArgumentException
+	 *             if one of the keys is <code>null</code>
+	 */
+	public int removeAll(Collection<? extends K> keys);
+
 	/**
 	 * Returns the statistics object for the cache
 	 * 
 	 * @return the statistics object for the cache
 	 */
 	public Stats getStats();
+
+	/**
+	 * Returns a copy of the latency histograms of the cache. The histograms are
+	 * only recorded with <tt>cache.metrics.enabled=true</tt>; otherwise the
+	 * snapshot is empty.
+	 * 
+	 * @return the latency histograms of the cache
+	 */
+	public MetricsSnapshot getMetrics();
+
+	/**
+	 * Returns a copy of the per set occupancy, eviction and miss counters of
+	 * the cache, with the hottest sets and an estimate of the conflict misses.
+	 * The counters are only recorded with
+	 * <tt>cache.setMetrics.enabled=true</tt>; otherwise the snapshot has no
+	 * sets.
+	 * 
+	 * @return the per set counters of the cache
+	 */
+	public SetMetricsSnapshot getSetMetrics();
+
+	/**
+	 * Writes the live elements of the cache to a file, with the slot and the
+	 * eviction state of each. The sets are copied one at a time under their
+	 * read lock, so the cache stays available while the snapshot is written.
+	 * The file is written next to <tt>file</tt> and moved over it once
+	 * complete.
+	 * 
+	 * @param file
+	 *            the snapshot file
+	 * @param keyCodec
+	 *            encodes the keys
+	 * @param valueCodec
+	 *            encodes the values
+	 * @return the number of elements written
+	 * @throws IOException
+	 *             if the file can not be written
+	 */
+	public long snapshot(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException;
+
+	/**
+	 * Loads the elements of a snapshot written by
+	 * {@link #snapshot(Path, Codec, Codec)} into the cache. When the cache has
+	 * the geometry of the snapshot each element goes back to its slot with its
+	 * eviction state; otherwise, or when the slot is taken, it is put as a new
+	 * element. Restored elements get the default time-to-live of the cache and
+	 * are not written to a {@link com.amit.nwaycache.writer.CacheWriter}.
+	 * 
+	 * @param file
+	 *            the snapshot file
+	 * @param keyCodec
+	 *            decodes the keys
+	 * @param valueCodec
+	 *            decodes the values
+	 * @return the number of elements restored
+	 * @throws IOException
+	 *             if the file can not be read or is not a snapshot
+	 */
+	public long restore(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException;
+
+	/**
+	 * Stops the background threads of the cache and unregisters its MBeans.
+	 * The cache can still be used afterwards, but nothing is swept.
+	 */
+	@Override
+	public void close();
 }
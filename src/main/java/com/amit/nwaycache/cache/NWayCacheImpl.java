@@ -1,22 +1,53 @@
 package com.amit.nwaycache.cache;
 
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.lang.reflect.Constructor;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
+import javax.management.JMException;
+
+import com.amit.nwaycache.admission.AdmissionPolicy;
+import com.amit.nwaycache.codec.Codec;
 import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.hash.SetIndexer;
+import com.amit.nwaycache.metrics.CacheMetrics;
+import com.amit.nwaycache.metrics.MetricsSnapshot;
+import com.amit.nwaycache.metrics.SetMetrics;
+import com.amit.nwaycache.metrics.SetMetricsSnapshot;
 import com.amit.nwaycache.model.CacheConfig;
-import com.amit.nwaycache.model.CacheElement;
 import com.amit.nwaycache.model.Stats;
+import com.amit.nwaycache.writer.CacheWriter;
+import com.amit.nwaycache.writer.WriteBehindQueue;
 
 /**
- * Implementation class for NWayCache. Implements the cache using a list of
- * one-dimensional arrays. Each array is a cache line (slot).
+ * Implementation class for NWayCache. The slots are kept by a
+ * {@link SlotStore}: by default a list of one-dimensional arrays, each array
+ * being a cache line (slot), or, with <tt>cache.storage=ARRAYS</tt>, parallel
+ * hash / key / value arrays, or, with <tt>cache.storage=OFF_HEAP</tt>, encoded
+ * slots in direct byte buffers.
  * 
  * @author Amit
  *
@@ -26,10 +57,9 @@ import com.amit.nwaycache.model.Stats;
 public class NWayCacheImpl<K, V> implements NWayCache<K, V> {
 
 	/**
-	 * The Cache data structure. Its a list of arrays where sets are arrays and
-	 * there is a list of n such arrays.
+	 * The Cache data structure.
 	 */
-	private List<CacheElement<K, V>[]> cache;
+	private final SlotStore<K, V> cache;
 
 	/**
 	 * Configuration class
@@ -42,11 +72,68 @@ public class NWayCacheImpl<K, V> implements NWayCache<K, V> {
 	private final Stats stats;
 
 	/**
-	 * The properties file.
+	 * Locks guarding the sets. A key only ever touches one set, so operations on
+	 * sets of different stripes run in parallel.
+	 */
+	private final StripedLocks locks;
+
+	/**
+	 * Maps the key hash codes to sets.
+	 */
+	private final SetIndexer setIndexer;
+
+	/**
+	 * Filter of the keys that would evict an element, or null to admit all.
+	 */
+	private final AdmissionPolicy admission;
+
+	/**
+	 * Outcomes of {@link #putLocked(int, Object, int, Object, long, long, List)}.
+	 */
+	private static final int STORED = 0, EVICTED = 1, REJECTED = 2;
+
+	/**
+	 * Latency histograms, or null when <tt>cache.metrics.enabled</tt> is off.
+	 */
+	private final CacheMetrics metrics;
+
+	/**
+	 * Per set counters, or null when <tt>cache.setMetrics.enabled</tt> is off.
 	 */
-	private static final String propFileName = "cache.properties";
+	private final SetMetrics setMetrics;
 
-	ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+	/**
+	 * Expiry deadlines of the slots, or null when expiry is not enabled.
+	 */
+	private final ExpiryTable expiry;
+
+	/**
+	 * The loads in progress, so that concurrent misses on a key share one.
+	 */
+	private final ConcurrentHashMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+	/**
+	 * Loads the values on a miss of {@link #get(Object)}, or null.
+	 */
+	private final CacheLoader<? super K, ? extends V> loader;
+
+	/**
+	 * Runs the background reloads, or null without refresh-after-write.
+	 */
+	private final ThreadPoolExecutor refresher;
+
+	/**
+	 * Changes not written to the backing store yet, or null if the cache is
+	 * not write-behind.
+	 */
+	private final WriteBehindQueue<K, V> writeBehind;
+
+	/**
+	 * Receives the elements evicted from this cache and the new keys the
+	 * admission policy rejects, to keep them in the next tier of a
+	 * {@link TieredNWayCache}; or null.
+	 */
+	private final BiConsumer<? super K, ? super V> demoter;
 
 	/**
 	 * Static factory method for instantiation the cache. The cache properties are
@@ -57,61 +144,157 @@ public class NWayCacheImpl<K, V> implements NWayCache<K, V> {
 	 * @throws Exception
 	 */
 	public static <K, V> NWayCache<K, V> getCache() throws Exception {
-		Properties cacheProps = new Properties();
-		InputStream inStream = NWayCacheImpl.class.getClassLoader().getResourceAsStream(propFileName);
-		if (inStream != null) {
-			cacheProps.load(inStream);
-		} else {
-			throw new FileNotFoundException("Property file: " + propFileName + " was not found on classpath.");
-		}
-		EvictionPolicy evictionPolicy;
-		int cacheSize = 10240;
-		int lineSize = 2;
-		String policyClass = "com.amit.nwaycache.eviction.LRUPolicy";
+		return getCache(CacheProperties.load());
+	}
 
-		if (null != cacheProps.getProperty("cache.lineSize")) {
-			lineSize = Integer.parseInt(cacheProps.getProperty("cache.lineSize"));
-			if (!(lineSize >= 2)) {
-				throw new IllegalArgumentException("Line size must be greater than or equal to 2");
-			}
-		}
+	/**
+	 * Static factory method for instantiation the cache from the given
+	 * properties. The property names are the same as in the
+	 * <tt>cache.properties</tt> file.
+	 * 
+	 * @param cacheProps the cache properties.
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static <K, V> NWayCache<K, V> getCache(Properties cacheProps) throws Exception {
+		return getCache(cacheProps, null);
+	}
 
-		if (null != cacheProps.getProperty("cache.size")) {
-			cacheSize = Integer.parseInt(cacheProps.getProperty("cache.size"));
-			if (!(cacheSize >= lineSize && cacheSize % lineSize == 0)) {
-				throw new IllegalArgumentException("Cache size must be multiple of lineSize");
-			}
-		}
+	/**
+	 * Static factory method for instantiation a loading cache from the given
+	 * properties: {@link #get(Object)} loads the value of a key that misses
+	 * with the loader, and with <tt>cache.refreshAfterWrite</tt> a hit on an
+	 * older element reloads it in the background.
+	 * 
+	 * @param cacheProps the cache properties.
+	 * @param loader     loads the values of the keys that miss, or null.
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static <K, V> NWayCache<K, V> getCache(Properties cacheProps, CacheLoader<? super K, ? extends V> loader)
+			throws Exception {
+		return getCache(cacheProps, loader, null);
+	}
 
-		if (null != cacheProps.getProperty("cache.evictionPolicy.implClass")) {
-			policyClass = cacheProps.getProperty("cache.evictionPolicy.implClass");
+	/**
+	 * Static factory method for instantiation a write-behind cache from the
+	 * given properties: the puts and removes are queued, coalesced per key and
+	 * written to the writer in batches of <tt>cache.writeBehind.batchSize</tt>,
+	 * at least every <tt>cache.writeBehind.flushInterval</tt>. An element the
+	 * eviction policy chooses is written before it is dropped.
+	 * 
+	 * @param cacheProps the cache properties.
+	 * @param loader     loads the values of the keys that miss, or null.
+	 * @param writer     the backing store, or null.
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static <K, V> NWayCache<K, V> getCache(Properties cacheProps, CacheLoader<? super K, ? extends V> loader,
+			CacheWriter<K, V> writer) throws Exception {
+		CacheConfig config = CacheProperties.toConfig(cacheProps);
+		if (config.getRefreshAfterWriteNanos() > 0 && null == loader) {
+			throw new IllegalArgumentException("cache.refreshAfterWrite requires a CacheLoader");
+		}
+		NWayCacheImpl<K, V> cache = new NWayCacheImpl<K, V>(config, loader, writer, null);
+		if (config.isMetricsJmx()) {
+			String name = config.getName();
+			if (null == name) {
+				name = "NWayCache@" + Integer.toHexString(cache.hashCode());
+			}
+			if (cache.metrics != null) {
+				cache.metrics.register(name);
+			}
+			if (cache.setMetrics != null) {
+				cache.setMetrics.register(name);
+			}
 		}
+		return cache;
+	}
 
-		Class<?>[] args = new Class[2];
-		args[0] = int.class;
-		args[1] = int.class;
-		@SuppressWarnings("unchecked")
-		Constructor<EvictionPolicy> ct = (Constructor<EvictionPolicy>) Class.forName(policyClass)
-				.getDeclaredConstructor(args);
+	/**
+	 * Creates a tier of a {@link TieredNWayCache}.
+	 * 
+	 * @param config  the configuration of the tier.
+	 * @param demoter receives the elements the tier drops, or null for the last
+	 *                tier.
+	 * @return the tier.
+	 */
+	static <K, V> NWayCacheImpl<K, V> tier(CacheConfig config, BiConsumer<? super K, ? super V> demoter) {
+		return new NWayCacheImpl<K, V>(config, null, null, demoter);
+	}
 
-		evictionPolicy = ct.newInstance((cacheSize / lineSize), lineSize);
+	/**
+	 * @param config  the configuration of the cache
+	 * @param loader  loads the values of the keys that miss, or null
+	 * @param writer  the backing store of a write-behind cache, or null
+	 * @param demoter receives the evicted and rejected elements, or null
+	 */
+	private NWayCacheImpl(final CacheConfig config, CacheLoader<? super K, ? extends V> loader,
+			CacheWriter<K, V> writer, BiConsumer<? super K, ? super V> demoter) {
+		this.config = config;
+		this.loader = loader;
+		this.demoter = demoter;
+		switch (config.getStorage()) {
+		case ARRAYS:
+			this.cache = config.isVectorLookup() ? vectorStore(config) : new ArraySlotStore<>(config);
+			break;
+		case OFF_HEAP:
+		case MAPPED:
+			this.cache = new OffHeapSlotStore<>(config);
+			break;
+		default:
+			this.cache = new ElementSlotStore<>(config);
+			break;
+		}
+		this.stats = new Stats(0, 0, 0, 0, config.getCacheSize(), config.isStatsEnabled());
+		this.locks = new StripedLocks(config.getLockStripes());
+		this.setIndexer = config.getSetIndexer();
+		this.admission = config.getAdmissionPolicy();
+		this.metrics = config.isMetricsEnabled() ? new CacheMetrics() : null;
+		this.setMetrics = config.isSetMetricsEnabled() ? new SetMetrics(config.getNumSets(), config.getCacheLines())
+				: null;
+		this.expiry = config.isExpiryEnabled() ? new ExpiryTable(config) : null;
+		if (expiry != null) {
+			expiry.startSweeper(config.getSweepIntervalNanos(), this::sweepSet);
+		}
+		this.refresher = (config.getRefreshAfterWriteNanos() > 0) ? newRefresher(config) : null;
+		this.writeBehind = (writer != null) ? new WriteBehindQueue<>(writer, config.getWriteBehindBatchSize(),
+				config.getWriteBehindFlushIntervalNanos(), stats) : null;
+	}
 
-		CacheConfig config = new CacheConfig(cacheSize, lineSize, evictionPolicy);
-		NWayCache<K, V> cache = new NWayCacheImpl<K, V>(config);
-		return cache;
+	/**
+	 * Creates the bounded executor of the background reloads. A reload that
+	 * finds the queue full is dropped; the next hit on the key tries again.
+	 */
+	private static ThreadPoolExecutor newRefresher(CacheConfig config) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getRefreshThreads(), config.getRefreshThreads(),
+				1L, TimeUnit.MINUTES, new ArrayBlockingQueue<>(config.getRefreshQueueSize()), r -> {
+					Thread thread = new Thread(r, "nwaycache-refresh");
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
 	}
 
 	/**
-	 * @param config the configuration of the cache
+	 * Creates the vectorized storage engine. It is looked up by name so that
+	 * the rest of the cache compiles without the incubator module.
+	 * 
+	 * @throws IllegalArgumentException if it was not built (see the
+	 *                                  <tt>vector</tt> Maven profile) or the
+	 *                                  <tt>jdk.incubator.vector</tt> module is
+	 *                                  not available at run time.
 	 */
 	@SuppressWarnings("unchecked")
-	private NWayCacheImpl(final CacheConfig config) {
-		this.config = config;
-		this.cache = new ArrayList<>(config.getNumSets());
-		for (int i = 0; i < config.getNumSets(); i++) {
-			cache.add(new CacheElement[config.getCacheLines()]);
+	private static <K, V> SlotStore<K, V> vectorStore(CacheConfig config) {
+		try {
+			return (SlotStore<K, V>) Class.forName("com.amit.nwaycache.cache.VectorSlotStore")
+					.getDeclaredConstructor(CacheConfig.class).newInstance(config);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			throw new IllegalArgumentException("cache.lookup.vector requires the library built with -Pvector"
+					+ " and the JVM started with --add-modules jdk.incubator.vector", e);
 		}
-		this.stats = new Stats(0, 0, 0, 0, config.getCacheSize());
 	}
 
 	/**
@@ -119,59 +302,635 @@ public class NWayCacheImpl<K, V> implements NWayCache<K, V> {
 	 */
 	@Override
 	public void put(final K key, final V value) {
+		put(key, value, null);
+	}
+
+	/**
+	 * Same as {@link #put(Object, Object)}; unless the key is rejected, the
+	 * action then gets the key under the write lock of its set. A tiered cache
+	 * drops the older value of the key from the next tier this way, so that no
+	 * demotion or promotion of the key can slip in between.
+	 * 
+	 * @param stored runs after the store, or null.
+	 */
+	void put(K key, V value, Consumer<? super K> stored) {
+		write(key, value);
+		put(key, value, config.getExpireAfterWriteNanos(), config.getExpireAfterAccessNanos(), stored);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(K key, V value, long expireAfterWrite, long expireAfterAccess, TimeUnit unit) {
+		put(key, value, expireAfterWrite, expireAfterAccess, unit, null);
+	}
+
+	/**
+	 * Same as {@link #put(Object, Object, long, long, TimeUnit)}, with the
+	 * action of {@link #put(Object, Object, Consumer)}.
+	 * 
+	 * @param stored runs after the store, or null.
+	 */
+	void put(K key, V value, long expireAfterWrite, long expireAfterAccess, TimeUnit unit,
+			Consumer<? super K> stored) {
+		if (null == expiry)
+			throw new IllegalStateException("expiry is not enabled, see cache.expiry.enabled");
+		write(key, value);
+		put(key, value, Math.max(0L, unit.toNanos(expireAfterWrite)), Math.max(0L, unit.toNanos(expireAfterAccess)),
+				stored);
+	}
+
+	/**
+	 * Queues the put of a mapping for the backing store of a write-behind
+	 * cache. Queued before the mapping is stored, so that the mapping can not be
+	 * evicted before it is queued.
+	 */
+	private void write(K key, V value) {
+		if (null == key)
+			throw new IllegalArgumentException("key can not be null!");
+		if (writeBehind != null) {
+			writeBehind.write(key, value);
+		}
+	}
+
+	/**
+	 * Puts the mapping with the given time-to-live and time-to-idle, in
+	 * nanoseconds. The loads put their values this way, so they are not
+	 * written back to the backing store.
+	 */
+	private void put(K key, V value, long expireAfterWrite, long expireAfterAccess) {
+		put(key, value, expireAfterWrite, expireAfterAccess, (Consumer<? super K>) null);
+	}
+
+	/**
+	 * Same as {@link #put(Object, Object, long, long)}, with the action of
+	 * {@link #put(Object, Object, Consumer)}.
+	 * 
+	 * @param stored gets the key under the lock once it is stored, or null.
+	 */
+	private void put(K key, V value, long expireAfterWrite, long expireAfterAccess, Consumer<? super K> stored) {
 		if (null == key)
 			throw new IllegalArgumentException("key can not be null!");
+		long start = (metrics != null) ? System.nanoTime() : 0L;
 		int hash = key.hashCode();
 		int setNum = getSetNum(hash);
-		boolean putSucceeded = false;
-		CacheElement<K, V> element = new CacheElement<>(key, value);
-		CacheElement<K, V>[] set = cache.get(setNum);
-		readWriteLock.writeLock().lock();
+		StampedLock lock = locks.forSet(setNum);
+		List<K> dropped = droppedKeys();
+		long stamp = writeLock(lock);
 		try {
-			for (int i = 0; i < set.length && !putSucceeded; i++) {
-				if (set[i] == null || (set[i].hashCode() == hash && set[i].getKey().equals(key))) {
-					set[i] = element;
-					getCachePolicy().update(setNum, i);
-					putSucceeded = true;
+			int outcome = putLocked(setNum, key, hash, value, expireAfterWrite, expireAfterAccess, dropped);
+			if (outcome == REJECTED) {
+				stats.incrementNumRejections();
+			} else {
+				if (stored != null) {
+					stored.accept(key);
+				}
+				if (outcome == EVICTED) {
+					stats.incrementNumEvictions();
 				}
+				stats.incrementNumUpdates();
 			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		flush(dropped);
+		if (metrics != null) {
+			metrics.recordPut(System.nanoTime() - start);
+		}
+	}
 
-			if (!putSucceeded) {
-				EvictionPolicy policy = getCachePolicy();
-				int index = policy.evict(setNum);
-				set[index] = element;
-				policy.update(setNum, index);
-				putSucceeded = true;
+	/**
+	 * Stores the mapping in its set, evicting an element if the set is full and
+	 * the admission policy lets the key in. An expired element is reclaimed
+	 * before anything is evicted. The caller must hold the write lock of the
+	 * set.
+	 * 
+	 * @param dropped collects the evicted or rejected keys whose pending
+	 *                changes the caller must {@link #flush(List)} once it has
+	 *                released the lock, or null without write-behind.
+	 * @return {@link #STORED}, {@link #EVICTED} if an element was evicted, or
+	 *         {@link #REJECTED} if the key was not admitted.
+	 */
+	private int putLocked(int setNum, K key, int hash, V value, long expireAfterWrite, long expireAfterAccess,
+			List<K> dropped) {
+		// a mapping the store can not hold fails here, before anything is evicted
+		Object prepared = cache.prepare(key, value);
+		EvictionPolicy policy = getCachePolicy();
+		if (admission != null) {
+			admission.record(hash);
+		}
+		int index = cache.indexOf(setNum, key, hash);
+		boolean inserted = false;
+		long now = 0L;
+		if (expiry != null) {
+			now = expiry.now();
+			if (index != -1 && expiry.isExpired(slotOf(setNum, index), now)) {
+				// the expired mapping is gone, the new one is an insert
+				expire(setNum, index);
+				inserted = true;
+			}
+		}
+		if (index == -1) {
+			index = cache.freeIndex(setNum);
+			if (index == -1 && expiry != null) {
+				index = reclaimExpired(setNum, now);
+			}
+			inserted = (index != -1);
+		}
+		boolean evicted = false;
+		if (index == -1) {
+			if (metrics != null) {
+				long start = System.nanoTime();
+				index = policy.evict(setNum);
+				metrics.recordEvict(System.nanoTime() - start);
+			} else {
+				index = policy.evict(setNum);
+			}
+			evicted = true;
+		}
+		int evictedHash = evicted ? cache.hashAt(setNum, index) : 0;
+		if (evicted && admission != null && !admission.admit(hash, evictedHash)) {
+			if (demoter != null) {
+				demoter.accept(key, value);
+			}
+			if (dropped != null) {
+				// not cached, so it must be in the backing store for the next miss
+				dropped.add(key);
 			}
+			return REJECTED;
+		}
+		if (evicted && dropped != null) {
+			// a miss on the victim must find its latest value in the backing store
+			dropped.add(cache.keyAt(setNum, index));
+		}
+		if (evicted && demoter != null) {
+			demoter.accept(cache.keyAt(setNum, index), cache.valueAt(setNum, index));
+		}
+		cache.store(setNum, index, key, hash, value, prepared);
+		if (expiry != null) {
+			expiry.written(setNum, slotOf(setNum, index), now, expireAfterWrite, expireAfterAccess);
+		}
+		if (evicted) {
+			policy.onEvict(setNum, index, evictedHash);
+		}
+		if (inserted || evicted) {
+			policy.onInsert(setNum, index, hash);
+		} else {
+			policy.update(setNum, index);
+		}
+		if (setMetrics != null) {
+			if (inserted) {
+				setMetrics.recordInsert(setNum);
+			} else if (evicted) {
+				setMetrics.recordEvict(setNum, evictedHash);
+			}
+		}
+		return evicted ? EVICTED : STORED;
+	}
 
-			stats.incrementNumUpdates();
-			stats.incrementNumEvictions();
+	/**
+	 * @return a list for {@link #putLocked(int, Object, int, Object, long, long, List)}
+	 *         to collect the dropped keys in, or null without write-behind.
+	 */
+	private List<K> droppedKeys() {
+		return (writeBehind != null) ? new ArrayList<>(2) : null;
+	}
+
+	/**
+	 * Writes the pending changes of the keys dropped by a put to the backing
+	 * store. Called once the set lock is released, so that the writer never
+	 * runs under a lock of the cache.
+	 */
+	private void flush(List<K> dropped) {
+		if (dropped != null) {
+			for (K key : dropped) {
+				writeBehind.flush(key);
+			}
+		}
+	}
+
+	/**
+	 * @return the position of the slot in the expiry table.
+	 */
+	private int slotOf(int setNum, int index) {
+		return setNum * config.getCacheLines() + index;
+	}
+
+	/**
+	 * Empties the slot of an expired element. The caller must hold the write
+	 * lock of the set.
+	 */
+	private void expire(int setNum, int index) {
+		clearSlot(setNum, index);
+		stats.incrementNumExpirations();
+	}
+
+	/**
+	 * Empties the first expired slot of a full set. The caller must hold the
+	 * write lock of the set.
+	 * 
+	 * @return the index of the emptied slot, or -1 if nothing has expired.
+	 */
+	private int reclaimExpired(int setNum, long now) {
+		int base = slotOf(setNum, 0);
+		for (int i = 0; i < config.getCacheLines(); i++) {
+			if (expiry.isExpired(base + i, now)) {
+				expire(setNum, i);
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Empties all the expired slots of a set and schedules the next sweep of
+	 * the set at its earliest remaining deadline. Run by the background sweeper,
+	 * it only locks the stripe of the set.
+	 */
+	private void sweepSet(int setNum) {
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.writeLock();
+		try {
+			long now = expiry.now();
+			long next = ExpiryTable.NEVER;
+			int base = slotOf(setNum, 0);
+			for (int i = 0; i < config.getCacheLines(); i++) {
+				if (expiry.isExpired(base + i, now)) {
+					expire(setNum, i);
+				} else {
+					next = Math.min(next, expiry.deadlineOf(base + i));
+				}
+			}
+			expiry.schedule(setNum, next);
 		} finally {
-			readWriteLock.writeLock().unlock();
+			lock.unlockWrite(stamp);
 		}
 	}
 
+	/**
+	 * @return whether the element in the slot has expired.
+	 */
+	private boolean isExpired(int setNum, int index) {
+		return expiry != null && expiry.isExpired(slotOf(setNum, index), expiry.now());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public V get(K key) {
+		V value = getIfPresent(key);
+		return (value != null || null == loader) ? value : load(key, loader);
+	}
+
+	/**
+	 * Reports a hit found without the write lock to the eviction policy. A
+	 * policy that requires it gets the hit under the lock, and only if the key
+	 * is still in the set.
+	 */
+	private void update(int setNum, K key, int hash, int index) {
+		EvictionPolicy policy = getCachePolicy();
+		if (!policy.requiresLockedUpdate()) {
+			policy.update(setNum, index);
+			return;
+		}
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = writeLock(lock);
+		try {
+			int current = cache.indexOf(setNum, key, hash);
+			if (current != -1) {
+				policy.update(setNum, current);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Looks up the value of a key, recording the hit or miss.
+	 */
+	private V getIfPresent(K key) {
 		if (null == key)
 			throw new IllegalArgumentException("key can not be null!");
+		long start = (metrics != null) ? System.nanoTime() : 0L;
+		int hash = key.hashCode();
+		int setNum = getSetNum(hash);
+		StampedLock lock = locks.forSet(setNum);
+		int elementIndex = -1;
 		V value = null;
+		long now = (expiry != null) ? expiry.now() : 0L;
+		// the deadlines are read with the slot, before a writer can reuse it
+		long seen = 0L;
+		long writeTime = 0L;
+		// Scan without locking first; the stamp tells whether a writer got in.
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0L) {
+			try {
+				elementIndex = cache.indexOf(setNum, key, hash);
+				value = (elementIndex != -1) ? cache.valueAt(setNum, elementIndex) : null;
+				if (elementIndex != -1 && expiry != null) {
+					seen = expiry.accessDeadline(slotOf(setNum, elementIndex), now);
+					writeTime = expiry.writeTime(slotOf(setNum, elementIndex));
+				}
+			} catch (RuntimeException e) {
+				// a racing writer left the slot inconsistent; retried under the lock
+				stamp = 0L;
+			}
+		}
+		if (!lock.validate(stamp)) {
+			stamp = readLock(lock);
+			try {
+				elementIndex = cache.indexOf(setNum, key, hash);
+				value = (elementIndex != -1) ? cache.valueAt(setNum, elementIndex) : null;
+				if (elementIndex != -1 && expiry != null) {
+					seen = expiry.accessDeadline(slotOf(setNum, elementIndex), now);
+					writeTime = expiry.writeTime(slotOf(setNum, elementIndex));
+				}
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		if (admission != null) {
+			admission.record(hash);
+		}
+		if (elementIndex != -1 && expiry != null) {
+			if (seen == ExpiryTable.EXPIRED) {
+				// left for the next put into the set or the sweeper to reclaim
+				elementIndex = -1;
+				value = null;
+			} else {
+				expiry.accessed(slotOf(setNum, elementIndex), seen, now);
+				if (refresher != null && expiry.isRefreshDue(writeTime, now)) {
+					refresh(key, writeTime);
+				}
+			}
+		}
+		if (elementIndex == -1) {
+			stats.incrementCacheMisses();
+			if (setMetrics != null) {
+				setMetrics.recordMiss(setNum, hash);
+			}
+		} else {
+			stats.incrementCacheHits();
+			update(setNum, key, hash, elementIndex);
+		}
+		if (metrics != null) {
+			// a hit scanned the slots up to its own, a miss all of them
+			metrics.recordGet(System.nanoTime() - start,
+					(elementIndex != -1) ? elementIndex + 1 : config.getCacheLines());
+		}
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(K key, CacheLoader<? super K, ? extends V> loader) {
+		V value = getIfPresent(key);
+		return (value != null) ? value : load(key, loader);
+	}
+
+	/**
+	 * Loads and caches the value of a key that missed. The first thread to
+	 * miss runs the loader, the others wait for its future.
+	 */
+	V load(K key, CacheLoader<? super K, ? extends V> loader) {
+		CompletableFuture<V> loading = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loads.putIfAbsent(key, loading);
+		if (inFlight != null) {
+			return await(inFlight);
+		}
+		return runLoad(key, loader, loading);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<V> getAsync(K key, CacheLoader<? super K, ? extends V> loader, Executor executor) {
+		V value = getIfPresent(key);
+		return (value != null) ? CompletableFuture.completedFuture(value) : loadAsync(key, loader, executor);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<V> getAsync(K key, Executor executor) {
+		V value = getIfPresent(key);
+		return (value != null || null == loader) ? CompletableFuture.completedFuture(value)
+				: loadAsync(key, loader, executor);
+	}
+
+	/**
+	 * Loads the value of a key that missed on the executor, or joins the load
+	 * of the key in progress.
+	 */
+	CompletableFuture<V> loadAsync(K key, CacheLoader<? super K, ? extends V> loader, Executor executor) {
+		CompletableFuture<V> loading = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loads.putIfAbsent(key, loading);
+		if (inFlight != null) {
+			return inFlight.copy();
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					runLoad(key, loader, loading);
+				} catch (RuntimeException e) {
+					// already delivered through the future
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			loads.remove(key, loading);
+			loading.completeExceptionally(e);
+		}
+		// a copy, so that no caller can complete the future shared by the others
+		return loading.copy();
+	}
+
+	/**
+	 * Runs the load registered in the map of loads in progress, caches its
+	 * value, then unregisters and completes its future. The future is
+	 * unregistered first, so that a caller that has seen it complete can not
+	 * find it again.
+	 */
+	private V runLoad(K key, CacheLoader<? super K, ? extends V> loader, CompletableFuture<V> loading) {
+		V value;
+		try {
+			// a load may have completed between the miss and putIfAbsent
+			value = peek(key);
+			if (value == null) {
+				Map.Entry<K, V> change = pending(key);
+				value = (change != null) ? change.getValue() : loadValue(key, loader);
+				if (value != null) {
+					put(key, value, config.getExpireAfterWriteNanos(), config.getExpireAfterAccessNanos());
+				}
+			}
+		} catch (RuntimeException | Error e) {
+			loads.remove(key, loading);
+			loading.completeExceptionally(e);
+			throw e;
+		}
+		loads.remove(key, loading);
+		loading.complete(value);
+		return value;
+	}
+
+	/**
+	 * Reloads the value of a key in the background, unless a load or reload of
+	 * the key is already in progress. The reload is registered as a load, so a
+	 * miss on the key meanwhile waits for it instead of loading again.
+	 * 
+	 * @param writeTime the write time of the entry to reload.
+	 */
+	private void refresh(K key, long writeTime) {
+		// every hit on a stale key gets here while its reload runs
+		if (loads.containsKey(key)) {
+			return;
+		}
+		CompletableFuture<V> reloading = new CompletableFuture<>();
+		if (loads.putIfAbsent(key, reloading) != null) {
+			return;
+		}
+		try {
+			refresher.execute(() -> reload(key, writeTime, reloading));
+		} catch (RejectedExecutionException e) {
+			loads.remove(key, reloading);
+			reloading.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Runs a background reload, recording its time and outcome, and applies it
+	 * to the entry it was scheduled for.
+	 */
+	private void reload(K key, long writeTime, CompletableFuture<V> reloading) {
+		long start = System.nanoTime();
+		V value;
+		try {
+			Map.Entry<K, V> change = pending(key);
+			value = (change != null) ? change.getValue() : loader.load(key);
+			stats.incrementNumRefreshes();
+		} catch (Exception e) {
+			stats.incrementNumRefreshFailures();
+			stats.addTotalRefreshTime(System.nanoTime() - start);
+			applyReload(key, writeTime, null, true);
+			loads.remove(key, reloading);
+			reloading.completeExceptionally(e);
+			return;
+		}
+		stats.addTotalRefreshTime(System.nanoTime() - start);
+		try {
+			applyReload(key, writeTime, value, false);
+		} catch (RuntimeException e) {
+			loads.remove(key, reloading);
+			reloading.completeExceptionally(e);
+			return;
+		}
+		loads.remove(key, reloading);
+		reloading.complete(value);
+	}
+
+	/**
+	 * Applies the outcome of a reload under the write lock of the set, only if
+	 * the entry has not been written since the reload was scheduled: a value
+	 * replaces the entry, a key the loader has no value for any more is
+	 * removed, and a failure pushes back the next reload. An entry put or
+	 * removed meanwhile is left alone.
+	 */
+	private void applyReload(K key, long writeTime, V value, boolean failed) {
 		int hash = key.hashCode();
 		int setNum = getSetNum(hash);
-		CacheElement<K, V>[] set = cache.get(setNum);
-		readWriteLock.readLock().lock();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = writeLock(lock);
 		try {
-			int elementIndex = getElementIndex(setNum, key, hash);
-			if (elementIndex != -1) {
-				value = set[elementIndex].getValue();
+			int index = cache.indexOf(setNum, key, hash);
+			if (index == -1 || expiry.writeTime(slotOf(setNum, index)) != writeTime) {
+				return;
+			}
+			if (failed) {
+				expiry.refreshFailed(slotOf(setNum, index), expiry.now());
+			} else if (value != null) {
+				// the key has a slot, so nothing is evicted
+				putLocked(setNum, key, hash, value, config.getExpireAfterWriteNanos(),
+						config.getExpireAfterAccessNanos(), null);
+				stats.incrementNumUpdates();
+			} else {
+				clearSlot(setNum, index);
+				stats.incrementNumUpdates();
 			}
 		} finally {
-			readWriteLock.readLock().unlock();
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Looks up the change of a key that a write-behind cache has not written to
+	 * the backing store yet. Such a change is newer than anything a loader can
+	 * read from the store: the value of an evicted key, or the removal of a
+	 * removed one.
+	 * 
+	 * @return null if there is none, else an entry with the value of the put
+	 *         or a null value for a removal.
+	 */
+	private Map.Entry<K, V> pending(K key) {
+		return (writeBehind != null) ? writeBehind.pending(key) : null;
+	}
+
+	/**
+	 * Runs the loader, recording the load time and the outcome.
+	 */
+	private V loadValue(K key, CacheLoader<? super K, ? extends V> loader) {
+		long start = System.nanoTime();
+		try {
+			V value = loader.load(key);
+			stats.incrementNumLoads();
+			return value;
+		} catch (Exception e) {
+			stats.incrementNumLoadFailures();
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			throw new CacheLoaderException("could not load the value of " + key, e);
+		} finally {
+			stats.addTotalLoadTime(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Waits for the load of another thread and returns its result.
+	 */
+	private static <V> V await(CompletableFuture<V> loading) {
+		try {
+			return loading.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new CacheLoaderException("could not load the value", cause);
+		}
+	}
+
+	/**
+	 * Looks up the value of a key without recording anything.
+	 */
+	private V peek(K key) {
+		int hash = key.hashCode();
+		int setNum = getSetNum(hash);
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = lock.readLock();
+		try {
+			int index = cache.indexOf(setNum, key, hash);
+			return (index != -1 && !isExpired(setNum, index)) ? cache.valueAt(setNum, index) : null;
+		} finally {
+			lock.unlockRead(stamp);
 		}
-		return value;
 	}
 
 	/**
@@ -179,23 +938,436 @@ public class NWayCacheImpl<K, V> implements NWayCache<K, V> {
 	 */
 	@Override
 	public boolean remove(K key) {
+		return remove(key, null);
+	}
+
+	/**
+	 * Same as {@link #remove(Object)}; the key is then also removed from the
+	 * next tier under the write lock of its set, so that no promotion of the
+	 * key can slip in between and bring the removed element back.
+	 * 
+	 * @param next removes the key from the next tier, or null.
+	 * @return whether the mapping was found in either tier.
+	 */
+	boolean remove(K key, Predicate<? super K> next) {
 		if (null == key)
 			throw new IllegalArgumentException("key can not be null!");
+		if (writeBehind != null) {
+			writeBehind.delete(key);
+		}
+		return invalidate(key, next);
+	}
+
+	/**
+	 * Removes the mapping of the key from the cache only, and from the next
+	 * tier if there is one.
+	 */
+	private boolean invalidate(K key, Predicate<? super K> next) {
+		long start = (metrics != null) ? System.nanoTime() : 0L;
 		int hash = key.hashCode();
 		int setNum = getSetNum(hash);
-		CacheElement<K, V>[] set = cache.get(setNum);
-		readWriteLock.writeLock().lock();
+		StampedLock lock = locks.forSet(setNum);
+		boolean removed = false;
+		long stamp = writeLock(lock);
 		try {
-			int elementIndex = getElementIndex(setNum, key, hash);
-			if (elementIndex != -1) {
-				set[elementIndex] = null;
+			int elementIndex = cache.indexOf(setNum, key, hash);
+			if (elementIndex != -1 && isExpired(setNum, elementIndex)) {
+				expire(setNum, elementIndex);
+			} else if (elementIndex != -1) {
+				clearSlot(setNum, elementIndex);
 				stats.incrementNumUpdates();
-				return true;
+				removed = true;
+			}
+			if (next != null && next.test(key)) {
+				removed = true;
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		if (metrics != null) {
+			metrics.recordRemove(System.nanoTime() - start);
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes the mapping of the key and returns its value, counting a hit or a
+	 * miss as {@link #get(Object)} does. The elements of the next tier of a
+	 * {@link TieredNWayCache} go back to the first tier this way.
+	 * 
+	 * @return the value, or null if the key is not in the cache.
+	 */
+	V take(K key) {
+		long start = (metrics != null) ? System.nanoTime() : 0L;
+		int hash = key.hashCode();
+		int setNum = getSetNum(hash);
+		StampedLock lock = locks.forSet(setNum);
+		int elementIndex;
+		V value = null;
+		long stamp = writeLock(lock);
+		try {
+			elementIndex = cache.indexOf(setNum, key, hash);
+			if (elementIndex != -1 && isExpired(setNum, elementIndex)) {
+				expire(setNum, elementIndex);
+			} else if (elementIndex != -1) {
+				value = cache.valueAt(setNum, elementIndex);
+				clearSlot(setNum, elementIndex);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		if (value == null) {
+			stats.incrementCacheMisses();
+			if (setMetrics != null) {
+				setMetrics.recordMiss(setNum, hash);
+			}
+		} else {
+			stats.incrementCacheHits();
+		}
+		if (metrics != null) {
+			metrics.recordGet(System.nanoTime() - start,
+					(elementIndex != -1) ? elementIndex + 1 : config.getCacheLines());
+		}
+		return value;
+	}
+
+	/**
+	 * Moves a key that missed up from the next tier: under the write lock of
+	 * its set, unless it was put in the meantime, takes the value from the next
+	 * tier and stores it. A put of the key can not slip in between and be
+	 * overwritten by the older value.
+	 * 
+	 * @param key  the key that missed.
+	 * @param next takes the value of the key from the next tier.
+	 * @return the value, or null if neither tier has the key.
+	 */
+	V promote(K key, Function<? super K, ? extends V> next) {
+		int hash = key.hashCode();
+		int setNum = getSetNum(hash);
+		StampedLock lock = locks.forSet(setNum);
+		V value;
+		int outcome = STORED;
+		List<K> dropped = droppedKeys();
+		long stamp = writeLock(lock);
+		try {
+			int index = cache.indexOf(setNum, key, hash);
+			if (index != -1 && !isExpired(setNum, index)) {
+				value = cache.valueAt(setNum, index);
+			} else {
+				value = next.apply(key);
+				if (value != null) {
+					outcome = putLocked(setNum, key, hash, value, config.getExpireAfterWriteNanos(),
+							config.getExpireAfterAccessNanos(), dropped);
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		flush(dropped);
+		if (outcome == REJECTED) {
+			stats.incrementNumRejections();
+		} else if (outcome == EVICTED) {
+			stats.incrementNumEvictions();
+		}
+		return value;
+	}
+
+	/**
+	 * Empties the slot of a removed element. The caller must hold the write
+	 * lock of the set.
+	 */
+	private void clearSlot(int setNum, int index) {
+		cache.clear(setNum, index);
+		if (expiry != null) {
+			expiry.removed(slotOf(setNum, index));
+		}
+		getCachePolicy().onRemove(setNum, index);
+		if (setMetrics != null) {
+			setMetrics.recordRemove(setNum);
+		}
+	}
+
+	/**
+	 * Takes the write lock, recording the wait when metrics are on. An
+	 * uncontended lock is recorded as no wait without reading the clock.
+	 */
+	private long writeLock(StampedLock lock) {
+		if (metrics == null) {
+			return lock.writeLock();
+		}
+		long stamp = lock.tryWriteLock();
+		if (stamp == 0L) {
+			long start = System.nanoTime();
+			stamp = lock.writeLock();
+			metrics.recordLockWait(System.nanoTime() - start);
+		} else {
+			metrics.recordLockWait(0L);
+		}
+		return stamp;
+	}
+
+	/**
+	 * Takes the read lock, recording the wait when metrics are on.
+	 */
+	private long readLock(StampedLock lock) {
+		if (metrics == null) {
+			return lock.readLock();
+		}
+		long stamp = lock.tryReadLock();
+		if (stamp == 0L) {
+			long start = System.nanoTime();
+			stamp = lock.readLock();
+			metrics.recordLockWait(System.nanoTime() - start);
+		} else {
+			metrics.recordLockWait(0L);
+		}
+		return stamp;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<K, V> getAll(Collection<? extends K> keys) {
+		Object[] batch = keys.toArray();
+		int[] hashes = new int[batch.length];
+		int[] setNums = new int[batch.length];
+		long[] order = groupBySet(batch, hashes, setNums);
+		int[] indexes = new int[batch.length];
+		Object[] values = new Object[batch.length];
+		long now = (expiry != null) ? expiry.now() : 0L;
+		long[] seen = (expiry != null) ? new long[batch.length] : null;
+		for (int from = 0, to; from < order.length; from = to) {
+			int stripe = locks.stripeOf(setNums[(int) order[from]]);
+			to = runEnd(order, setNums, from);
+			StampedLock lock = locks.forStripe(stripe);
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0L) {
+				try {
+					lookupRun(batch, hashes, setNums, order, from, to, indexes, values, now, seen);
+				} catch (RuntimeException e) {
+					// a racing writer left a slot inconsistent; retried under the lock
+					stamp = 0L;
+				}
+			}
+			if (!lock.validate(stamp)) {
+				stamp = readLock(lock);
+				try {
+					lookupRun(batch, hashes, setNums, order, from, to, indexes, values, now, seen);
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+		}
+		Map<K, V> result = new HashMap<>((int) (batch.length / 0.75f) + 1);
+		EvictionPolicy policy = getCachePolicy();
+		long hits = 0;
+		for (int i = 0; i < batch.length; i++) {
+			if (admission != null) {
+				admission.record(hashes[i]);
+			}
+			if (indexes[i] != -1 && expiry != null) {
+				if (seen[i] == ExpiryTable.EXPIRED) {
+					indexes[i] = -1;
+				} else {
+					expiry.accessed(slotOf(setNums[i], indexes[i]), seen[i], now);
+				}
+			}
+			if (indexes[i] != -1) {
+				hits++;
+				result.put((K) batch[i], (V) values[i]);
+				if (policy.requiresLockedUpdate()) {
+					update(setNums[i], (K) batch[i], hashes[i], indexes[i]);
+				} else {
+					policy.update(setNums[i], indexes[i]);
+				}
+			} else if (setMetrics != null) {
+				setMetrics.recordMiss(setNums[i], hashes[i]);
+			}
+		}
+		stats.addCacheHits(hits);
+		stats.addCacheMisses(batch.length - hits);
+		return result;
+	}
+
+	/**
+	 * Looks up the keys of one stripe of a batch, with the access deadlines of
+	 * the hits when expiry is enabled.
+	 */
+	@SuppressWarnings("unchecked")
+	private void lookupRun(Object[] batch, int[] hashes, int[] setNums, long[] order, int from, int to,
+			int[] indexes, Object[] values, long now, long[] seen) {
+		for (int j = from; j < to; j++) {
+			int i = (int) order[j];
+			int index = cache.indexOf(setNums[i], (K) batch[i], hashes[i]);
+			indexes[i] = index;
+			values[i] = (index != -1) ? cache.valueAt(setNums[i], index) : null;
+			if (index != -1 && seen != null) {
+				seen[i] = expiry.accessDeadline(slotOf(setNums[i], index), now);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> entries) {
+		putAll(entries, null);
+	}
+
+	/**
+	 * Same as {@link #putAll(Map)}, with the action of
+	 * {@link #put(Object, Object, Consumer)} for every stored key.
+	 * 
+	 * @param stored runs after each store, or null.
+	 */
+	@SuppressWarnings("unchecked")
+	void putAll(Map<? extends K, ? extends V> entries, Consumer<? super K> stored) {
+		Object[] batch = new Object[entries.size()];
+		Object[] values = new Object[batch.length];
+		int n = 0;
+		for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+			batch[n] = entry.getKey();
+			values[n++] = entry.getValue();
+		}
+		int[] hashes = new int[batch.length];
+		int[] setNums = new int[batch.length];
+		long[] order = groupBySet(batch, hashes, setNums);
+		if (writeBehind != null) {
+			for (int i = 0; i < batch.length; i++) {
+				writeBehind.write((K) batch[i], (V) values[i]);
+			}
+		}
+		long updates = 0;
+		long evictions = 0;
+		long rejections = 0;
+		List<K> dropped = droppedKeys();
+		try {
+			for (int from = 0, to; from < order.length; from = to) {
+				StampedLock lock = locks.forStripe(locks.stripeOf(setNums[(int) order[from]]));
+				to = runEnd(order, setNums, from);
+				long stamp = writeLock(lock);
+				try {
+					for (int j = from; j < to; j++) {
+						int i = (int) order[j];
+						int outcome = putLocked(setNums[i], (K) batch[i], hashes[i], (V) values[i],
+								config.getExpireAfterWriteNanos(), config.getExpireAfterAccessNanos(), dropped);
+						if (outcome == REJECTED) {
+							rejections++;
+							continue;
+						}
+						if (stored != null) {
+							stored.accept((K) batch[i]);
+						}
+						if (outcome == EVICTED) {
+							evictions++;
+						}
+						updates++;
+					}
+				} finally {
+					lock.unlockWrite(stamp);
+				}
+				flush(dropped);
+				if (dropped != null) {
+					dropped.clear();
+				}
 			}
 		} finally {
-			readWriteLock.writeLock().unlock();
+			stats.addNumUpdates(updates);
+			stats.addNumEvictions(evictions);
+			stats.addNumRejections(rejections);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int removeAll(Collection<? extends K> keys) {
+		return removeAll(keys, null);
+	}
+
+	/**
+	 * Same as {@link #removeAll(Collection)}, removing every key from the next
+	 * tier as {@link #remove(Object, Predicate)} does.
+	 * 
+	 * @param next removes a key from the next tier, or null.
+	 * @return the number of mappings removed from both tiers.
+	 */
+	@SuppressWarnings("unchecked")
+	int removeAll(Collection<? extends K> keys, Predicate<? super K> next) {
+		Object[] batch = keys.toArray();
+		int[] hashes = new int[batch.length];
+		int[] setNums = new int[batch.length];
+		long[] order = groupBySet(batch, hashes, setNums);
+		if (writeBehind != null) {
+			for (Object key : batch) {
+				writeBehind.delete((K) key);
+			}
+		}
+		int removed = 0;
+		int removedFromNext = 0;
+		for (int from = 0, to; from < order.length; from = to) {
+			StampedLock lock = locks.forStripe(locks.stripeOf(setNums[(int) order[from]]));
+			to = runEnd(order, setNums, from);
+			long stamp = writeLock(lock);
+			try {
+				for (int j = from; j < to; j++) {
+					int i = (int) order[j];
+					int index = cache.indexOf(setNums[i], (K) batch[i], hashes[i]);
+					if (index != -1 && isExpired(setNums[i], index)) {
+						expire(setNums[i], index);
+					} else if (index != -1) {
+						clearSlot(setNums[i], index);
+						removed++;
+					}
+					if (next != null && next.test((K) batch[i])) {
+						removedFromNext++;
+					}
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+		stats.addNumUpdates(removed);
+		return removed + removedFromNext;
+	}
+
+	/**
+	 * Computes the hash and set of every key of a batch and orders the batch so
+	 * that the keys of one stripe, and within it of one set, are adjacent.
+	 * 
+	 * @return the batch positions, in the low 32 bits, sorted by stripe and set.
+	 */
+	private long[] groupBySet(Object[] batch, int[] hashes, int[] setNums) {
+		int stripes = locks.size();
+		int setsPerStripe = (config.getNumSets() + stripes - 1) / stripes;
+		long[] order = new long[batch.length];
+		for (int i = 0; i < batch.length; i++) {
+			if (null == batch[i])
+				throw new IllegalArgumentException("key can not be null!");
+			hashes[i] = batch[i].hashCode();
+			setNums[i] = getSetNum(hashes[i]);
+			long rank = (long) locks.stripeOf(setNums[i]) * setsPerStripe + setNums[i] / stripes;
+			order[i] = (rank << 32) | i;
+		}
+		Arrays.sort(order);
+		return order;
+	}
+
+	/**
+	 * @return the end (exclusive) of the run of batch positions, starting at
+	 *         <code>from</code>, that belong to the same stripe.
+	 */
+	private int runEnd(long[] order, int[] setNums, int from) {
+		int stripe = locks.stripeOf(setNums[(int) order[from]]);
+		int to = from + 1;
+		while (to < order.length && locks.stripeOf(setNums[(int) order[to]]) == stripe) {
+			to++;
 		}
-		return false;
+		return to;
 	}
 
 	/**
@@ -206,52 +1378,219 @@ public class NWayCacheImpl<K, V> implements NWayCache<K, V> {
 	 * @return the index of set in which the element should be placed / searched.
 	 */
 	private int getSetNum(int hash) {
-		return (hash % config.getNumSets());
+		return setIndexer.setOf(hash);
 	}
 
 	/**
-	 * Returns the index of the key in the cache, if found, -1 otherwise.
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		clear(null);
+	}
+
+	/**
+	 * Same as {@link #clear()}; the next tier is then cleared under all the
+	 * locks, so that no promotion can refill the cache from it in between.
 	 * 
-	 * @param setNum the set number to be searched.
-	 * @param key    key of the element whose index is required.
-	 * @param hash   hash of the key
-	 * @return the index of the element in the cache, if found, -1 otherwise
-	 */
-	private int getElementIndex(int setNum, K key, int hash) {
-		int index = -1;
-		CacheElement<K, V>[] set = cache.get(setNum);
-		for (int i = 0; i < set.length; i++) {
-			if (null == set[i] || set[i].hashCode() != hash) {
-				continue;
-			} else if (set[i].hashCode() == hash) {
-				if (key.equals(set[i].getKey())) {
-					index = i;
-					stats.incrementCacheHits();
-					getCachePolicy().update(setNum, i);
-					break;
+	 * @param next clears the next tier, or null.
+	 */
+	void clear(Runnable next) {
+		locks.lockAll();
+		try {
+			for (int setNum = 0; setNum < config.getNumSets(); setNum++) {
+				cache.clear(setNum);
+			}
+			if (expiry != null) {
+				expiry.clear();
+			}
+			stats.clear();
+			if (metrics != null) {
+				metrics.reset();
+			}
+			if (setMetrics != null) {
+				setMetrics.clear();
+			}
+			if (next != null) {
+				next.run();
+			}
+		} finally {
+			locks.unlockAll();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public long snapshot(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+		int cacheLines = config.getCacheLines();
+		Object[] keys = new Object[cacheLines];
+		Object[] values = new Object[cacheLines];
+		int[] indexes = new int[cacheLines];
+		long[] states = new long[cacheLines];
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		long count;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				SnapshotWriter out = new SnapshotWriter(channel, config.getNumSets(), cacheLines)) {
+			for (int setNum = 0; setNum < config.getNumSets(); setNum++) {
+				// only the copy of the set is made under its lock, the encoding and I/O are not
+				int n = 0;
+				StampedLock lock = locks.forSet(setNum);
+				long stamp = readLock(lock);
+				try {
+					EvictionPolicy policy = getCachePolicy();
+					for (int i = 0; i < cacheLines; i++) {
+						K key = cache.keyAt(setNum, i);
+						if (key != null && !isExpired(setNum, i)) {
+							keys[n] = key;
+							values[n] = cache.valueAt(setNum, i);
+							indexes[n] = i;
+							states[n++] = policy.stateOf(setNum, i);
+						}
+					}
+				} finally {
+					lock.unlockRead(stamp);
+				}
+				for (int j = 0; j < n; j++) {
+					out.write(setNum, indexes[j], states[j], keyCodec.encode((K) keys[j]),
+							valueCodec.encode((V) values[j]));
+					keys[j] = null;
+					values[j] = null;
 				}
 			}
+			count = out.count();
 		}
-		if (index == -1)
-			stats.incrementCacheMisses();
-		return index;
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return count;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void clear() {
-		readWriteLock.writeLock().lock();
+	public long restore(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			SnapshotReader in = new SnapshotReader(channel);
+			boolean sameGeometry = in.numSets() == config.getNumSets() && in.cacheLines() == config.getCacheLines();
+			long restored = 0;
+			int cacheLines = in.cacheLines();
+			List<K> keys = new ArrayList<>(cacheLines);
+			List<V> values = new ArrayList<>(cacheLines);
+			int[] indexes = new int[cacheLines];
+			long[] states = new long[cacheLines];
+			for (int setNum = in.peekSet(); setNum != -1; setNum = in.peekSet()) {
+				keys.clear();
+				values.clear();
+				while (in.peekSet() == setNum && in.next()) {
+					if (keys.size() == cacheLines) {
+						throw new IOException("corrupt snapshot: set " + setNum + " has too many elements");
+					}
+					indexes[keys.size()] = in.index;
+					states[keys.size()] = in.state;
+					keys.add(keyCodec.decode(in.key));
+					values.add(valueCodec.decode(in.value));
+				}
+				restored += sameGeometry ? restoreSet(setNum, keys, values, indexes, states)
+						: putAll(keys, values, 0, keys.size());
+			}
+			return restored;
+		}
+	}
+
+	/**
+	 * Restores the elements of one set of a snapshot into their slots, in
+	 * increasing order of their policy state. An element whose slot is taken,
+	 * or that now maps to another set, is put as a new element instead.
+	 * 
+	 * @return the number of elements restored.
+	 */
+	private long restoreSet(int setNum, List<K> keys, List<V> values, int[] indexes, long[] states) {
+		int n = keys.size();
+		// insertion sort by state, the sets are small
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			int j = i;
+			while (j > 0 && states[order[j - 1]] > states[i]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		long restored = 0;
+		List<K> misplacedKeys = new ArrayList<>();
+		List<V> misplacedValues = new ArrayList<>();
+		EvictionPolicy policy = getCachePolicy();
+		StampedLock lock = locks.forSet(setNum);
+		long stamp = writeLock(lock);
 		try {
-			for (CacheElement<K, V>[] set : cache) {
-				for (int i = 0; i < set.length; i++) {
-					set[i] = null;
+			long now = (expiry != null) ? expiry.now() : 0L;
+			for (int i : order) {
+				K key = keys.get(i);
+				int hash = key.hashCode();
+				int index = indexes[i];
+				if (getSetNum(hash) != setNum || cache.keyAt(setNum, index) != null
+						|| cache.indexOf(setNum, key, hash) != -1) {
+					misplacedKeys.add(key);
+					misplacedValues.add(values.get(i));
+					continue;
+				}
+				cache.store(setNum, index, key, hash, values.get(i));
+				if (expiry != null) {
+					expiry.written(setNum, slotOf(setNum, index), now, config.getExpireAfterWriteNanos(),
+							config.getExpireAfterAccessNanos());
 				}
+				policy.restore(setNum, index, hash, states[i]);
+				if (setMetrics != null) {
+					setMetrics.recordInsert(setNum);
+				}
+				restored++;
 			}
-			stats.clear();
 		} finally {
-			readWriteLock.writeLock().unlock();
+			lock.unlockWrite(stamp);
+		}
+		// put once the lock is released, it is not reentrant
+		return restored + putAll(misplacedKeys, misplacedValues, 0, misplacedKeys.size());
+	}
+
+	/**
+	 * Puts the elements of a snapshot that can not be restored into their
+	 * slots, without writing them back to a backing store.
+	 * 
+	 * @return the number of elements put.
+	 */
+	private long putAll(List<K> keys, List<V> values, int from, int to) {
+		for (int i = from; i < to; i++) {
+			put(keys.get(i), values.get(i), config.getExpireAfterWriteNanos(), config.getExpireAfterAccessNanos());
+		}
+		return to - from;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		if (writeBehind != null) {
+			writeBehind.close();
+		}
+		if (expiry != null) {
+			expiry.close();
+		}
+		if (refresher != null) {
+			refresher.shutdownNow();
+		}
+		try {
+			if (metrics != null) {
+				metrics.unregister();
+			}
+			if (setMetrics != null) {
+				setMetrics.unregister();
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("could not unregister the cache MBeans", e);
 		}
 	}
 
@@ -268,7 +1607,23 @@ public class NWayCacheImpl<K, V> implements NWayCache<K, V> {
 	 */
 	@Override
 	public Stats getStats() {
-		final Stats statsCopy = (Stats) stats.clone();
-		return statsCopy;
+		// the counters are summed without blocking the cache operations
+		return (Stats) stats.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MetricsSnapshot getMetrics() {
+		return (metrics != null) ? metrics.snapshot() : MetricsSnapshot.EMPTY;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SetMetricsSnapshot getSetMetrics() {
+		return (setMetrics != null) ? setMetrics.snapshot() : SetMetricsSnapshot.EMPTY;
 	}
 }
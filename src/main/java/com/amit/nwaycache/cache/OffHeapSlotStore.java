@@ -0,0 +1,259 @@
+package com.amit.nwaycache.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.amit.nwaycache.codec.Codec;
+import com.amit.nwaycache.model.CacheConfig;
+
+/**
+ * Storage engine that keeps the whole set table outside the Java heap in
+ * direct {@link ByteBuffer}s, so the cached entries add nothing for the garbage
+ * collector to trace. Keys and values are converted with the configured
+ * {@link Codec}s.
+ * <p>
+ * Every slot has the same size and starts with a fixed header:
+ * 
+ * <pre>
+ * offset  0  int   hash of the key
+ * offset  4  int   key length, -1 for an empty slot
+ * offset  8  int   value length
+ * offset 12        key bytes followed by the value bytes
+ * </pre>
+ * 
+ * The recency of a slot is kept by the {@link
+ * com.amit.nwaycache.eviction.EvictionPolicy}, not in the slot.
+ * 
+ * A set occupies adjacent slots; the sets are spread over as many buffers as
+ * needed to stay below the 2GB limit of a single buffer. With
+ * {@link com.amit.nwaycache.model.StorageType#MAPPED} the buffers are mappings
+ * of consecutive regions of one file; the file is emptied when the cache is
+ * created, so it is a swap area for the slots and not a persistent copy.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+final class OffHeapSlotStore<K, V> implements SlotStore<K, V> {
+
+	static final int HASH_OFFSET = 0;
+
+	static final int KEY_LENGTH_OFFSET = 4;
+
+	static final int VALUE_LENGTH_OFFSET = 8;
+
+	static final int HEADER_BYTES = 12;
+
+	/**
+	 * Largest buffer allocated for a group of sets.
+	 */
+	private static final int MAX_BUFFER_BYTES = 1 << 30;
+
+	private final ByteBuffer[] buffers;
+
+	private final int setsPerBuffer;
+
+	private final int cacheLines;
+
+	private final int slotBytes;
+
+	private final Codec<K> keyCodec;
+
+	private final Codec<V> valueCodec;
+
+	/**
+	 * @param config the configuration of the cache
+	 */
+	@SuppressWarnings("unchecked")
+	OffHeapSlotStore(CacheConfig config) {
+		this.cacheLines = config.getCacheLines();
+		this.slotBytes = config.getSlotBytes();
+		this.keyCodec = (Codec<K>) config.getKeyCodec();
+		this.valueCodec = (Codec<V>) config.getValueCodec();
+		int setBytes = cacheLines * slotBytes;
+		this.setsPerBuffer = Math.max(1, MAX_BUFFER_BYTES / setBytes);
+		int numBuffers = (config.getNumSets() + setsPerBuffer - 1) / setsPerBuffer;
+		this.buffers = new ByteBuffer[numBuffers];
+		if (config.getMappedFile() != null) {
+			map(config.getMappedFile(), config.getNumSets(), setBytes);
+		} else {
+			for (int i = 0; i < numBuffers; i++) {
+				int sets = Math.min(setsPerBuffer, config.getNumSets() - i * setsPerBuffer);
+				buffers[i] = ByteBuffer.allocateDirect(sets * setBytes);
+			}
+		}
+		for (int setNum = 0; setNum < config.getNumSets(); setNum++) {
+			clear(setNum);
+		}
+	}
+
+	/**
+	 * Maps the file of the slots, one region per group of sets. The mappings
+	 * stay valid once the channel is closed.
+	 */
+	private void map(String file, int numSets, int setBytes) {
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (int i = 0; i < buffers.length; i++) {
+				int sets = Math.min(setsPerBuffer, numSets - i * setsPerBuffer);
+				buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * setsPerBuffer * setBytes,
+						(long) sets * setBytes);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Can not map " + file, e);
+		}
+	}
+
+	private ByteBuffer buffer(int setNum) {
+		return buffers[setNum / setsPerBuffer];
+	}
+
+	private int offset(int setNum, int index) {
+		return ((setNum % setsPerBuffer) * cacheLines + index) * slotBytes;
+	}
+
+	@Override
+	public int indexOf(int setNum, K key, int hash) {
+		ByteBuffer buffer = buffer(setNum);
+		byte[] encodedKey = null;
+		for (int i = 0; i < cacheLines; i++) {
+			int offset = offset(setNum, i);
+			if (buffer.getInt(offset + HASH_OFFSET) != hash) {
+				continue;
+			}
+			if (encodedKey == null) {
+				encodedKey = keyCodec.encode(key);
+			}
+			if (buffer.getInt(offset + KEY_LENGTH_OFFSET) == encodedKey.length
+					&& sameBytes(buffer, offset + HEADER_BYTES, encodedKey)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean sameBytes(ByteBuffer buffer, int offset, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			if (buffer.get(offset + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int freeIndex(int setNum) {
+		ByteBuffer buffer = buffer(setNum);
+		for (int i = 0; i < cacheLines; i++) {
+			if (buffer.getInt(offset(setNum, i) + KEY_LENGTH_OFFSET) < 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int hashAt(int setNum, int index) {
+		return buffer(setNum).getInt(offset(setNum, index) + HASH_OFFSET);
+	}
+
+	@Override
+	public K keyAt(int setNum, int index) {
+		ByteBuffer buffer = buffer(setNum);
+		int offset = offset(setNum, index);
+		int keyLength = buffer.getInt(offset + KEY_LENGTH_OFFSET);
+		if (keyLength < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[keyLength];
+		buffer.get(offset + HEADER_BYTES, bytes);
+		return keyCodec.decode(bytes);
+	}
+
+	@Override
+	public V valueAt(int setNum, int index) {
+		ByteBuffer buffer = buffer(setNum);
+		int offset = offset(setNum, index);
+		int keyLength = buffer.getInt(offset + KEY_LENGTH_OFFSET);
+		if (keyLength < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[buffer.getInt(offset + VALUE_LENGTH_OFFSET)];
+		buffer.get(offset + HEADER_BYTES + keyLength, bytes);
+		return valueCodec.decode(bytes);
+	}
+
+	/**
+	 * The encoded key and value of a mapping about to be stored.
+	 */
+	private static final class Encoded {
+		final byte[] key;
+		final byte[] value;
+
+		Encoded(byte[] key, byte[] value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalArgumentException if the encoded key and value do not fit
+	 *                                  in a slot.
+	 */
+	@Override
+	public Object prepare(K key, V value) {
+		byte[] keyBytes = keyCodec.encode(key);
+		byte[] valueBytes = valueCodec.encode(value);
+		if (HEADER_BYTES + keyBytes.length + valueBytes.length > slotBytes) {
+			throw new IllegalArgumentException("Entry of " + (keyBytes.length + valueBytes.length)
+					+ " bytes does not fit in a slot of " + (slotBytes - HEADER_BYTES) + " bytes");
+		}
+		return new Encoded(keyBytes, valueBytes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalArgumentException if the encoded key and value do not fit
+	 *                                  in a slot.
+	 */
+	@Override
+	public void store(int setNum, int index, K key, int hash, V value) {
+		store(setNum, index, key, hash, value, prepare(key, value));
+	}
+
+	@Override
+	public void store(int setNum, int index, K key, int hash, V value, Object prepared) {
+		Encoded encoded = (Encoded) prepared;
+		ByteBuffer buffer = buffer(setNum);
+		int offset = offset(setNum, index);
+		buffer.putInt(offset + HASH_OFFSET, hash);
+		buffer.putInt(offset + KEY_LENGTH_OFFSET, encoded.key.length);
+		buffer.putInt(offset + VALUE_LENGTH_OFFSET, encoded.value.length);
+		buffer.put(offset + HEADER_BYTES, encoded.key);
+		buffer.put(offset + HEADER_BYTES + encoded.key.length, encoded.value);
+	}
+
+	@Override
+	public void clear(int setNum, int index) {
+		ByteBuffer buffer = buffer(setNum);
+		int offset = offset(setNum, index);
+		buffer.putInt(offset + HASH_OFFSET, 0);
+		buffer.putInt(offset + KEY_LENGTH_OFFSET, -1);
+		buffer.putInt(offset + VALUE_LENGTH_OFFSET, 0);
+	}
+
+	@Override
+	public void clear(int setNum) {
+		for (int i = 0; i < cacheLines; i++) {
+			clear(setNum, i);
+		}
+	}
+}
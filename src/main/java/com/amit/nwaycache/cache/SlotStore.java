@@ -0,0 +1,114 @@
+package com.amit.nwaycache.cache;
+
+/**
+ * Storage engine behind {@link NWayCacheImpl}. A store holds
+ * <tt>numSets * cacheLines</tt> slots and addresses them by set number and
+ * index inside the set. The store does no locking; the cache guards every set
+ * with its stripe lock.
+ * <p>
+ * The lookup methods must be pure reads so that the cache can call them under
+ * an optimistic read and discard the result if a writer got in.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+interface SlotStore<K, V> {
+
+	/**
+	 * Returns the index of the key in the set, if found, -1 otherwise.
+	 * 
+	 * @param setNum the set number to be searched.
+	 * @param key    key of the element whose index is required.
+	 * @param hash   hash of the key.
+	 * @return the index of the element in the set, if found, -1 otherwise.
+	 */
+	int indexOf(int setNum, K key, int hash);
+
+	/**
+	 * Returns the index of the first empty slot of the set, or -1 if the set is
+	 * full.
+	 * 
+	 * @param setNum the set number.
+	 * @return the index of an empty slot, or -1.
+	 */
+	int freeIndex(int setNum);
+
+	/**
+	 * @param setNum the set number.
+	 * @param index  index of the slot inside the set.
+	 * @return the key stored in the slot, or <code>null</code> if it is empty.
+	 */
+	K keyAt(int setNum, int index);
+
+	/**
+	 * @param setNum the set number.
+	 * @param index  index of the slot inside the set.
+	 * @return the hash of the key stored in the slot; undefined if it is empty.
+	 */
+	int hashAt(int setNum, int index);
+
+	/**
+	 * @param setNum the set number.
+	 * @param index  index of the slot inside the set.
+	 * @return the value stored in the slot, or <code>null</code> if it is empty.
+	 */
+	V valueAt(int setNum, int index);
+
+	/**
+	 * Stores the mapping in the slot, replacing whatever was there.
+	 * 
+	 * @param setNum the set number.
+	 * @param index  index of the slot inside the set.
+	 * @param key    the key.
+	 * @param hash   hash of the key.
+	 * @param value  the value.
+	 */
+	void store(int setNum, int index, K key, int hash, V value);
+
+	/**
+	 * Converts the mapping to the form the store keeps, before the cache makes
+	 * room for it, so that a mapping the store can not hold is refused while
+	 * the set is untouched.
+	 * 
+	 * @param key   the key.
+	 * @param value the value.
+	 * @return the argument of
+	 *         {@link #store(int, int, Object, int, Object, Object)}, or
+	 *         <code>null</code> if the store keeps the objects as they are.
+	 */
+	default Object prepare(K key, V value) {
+		return null;
+	}
+
+	/**
+	 * Stores a mapping converted by {@link #prepare(Object, Object)} in the
+	 * slot, replacing whatever was there.
+	 * 
+	 * @param setNum   the set number.
+	 * @param index    index of the slot inside the set.
+	 * @param key      the key.
+	 * @param hash     hash of the key.
+	 * @param value    the value.
+	 * @param prepared what {@link #prepare(Object, Object)} returned.
+	 */
+	default void store(int setNum, int index, K key, int hash, V value, Object prepared) {
+		store(setNum, index, key, hash, value);
+	}
+
+	/**
+	 * Empties the slot.
+	 * 
+	 * @param setNum the set number.
+	 * @param index  index of the slot inside the set.
+	 */
+	void clear(int setNum, int index);
+
+	/**
+	 * Empties every slot of the set.
+	 * 
+	 * @param setNum the set number.
+	 */
+	void clear(int setNum);
+}
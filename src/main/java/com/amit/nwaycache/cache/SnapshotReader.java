@@ -0,0 +1,182 @@
+package com.amit.nwaycache.cache;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a snapshot written by {@link SnapshotWriter}, record by record, from
+ * a memory mapping of the file. Only the key and value bytes of a record are
+ * copied out of the mapping.
+ * <p>
+ * A mapping is limited to 2 GB, so a larger file is mapped one window at a
+ * time. A window always starts at a record, and is moved to the next record
+ * that does not fit in it whole.
+ * 
+ * @author Amit
+ *
+ */
+final class SnapshotReader {
+
+	/**
+	 * Largest window of the file mapped at once.
+	 */
+	static final int WINDOW_BYTES = Integer.MAX_VALUE;
+
+	private final FileChannel channel;
+
+	private final long size;
+
+	private final int windowBytes;
+
+	/**
+	 * The mapped window of the file.
+	 */
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Position of the window in the file.
+	 */
+	private long base;
+
+	private final int numSets;
+
+	private final int cacheLines;
+
+	private long remaining;
+
+	int setNum;
+
+	int index;
+
+	long state;
+
+	byte[] key;
+
+	byte[] value;
+
+	/**
+	 * Maps the first window of the file and reads the header.
+	 * 
+	 * @throws IOException if the file is not a snapshot.
+	 */
+	SnapshotReader(FileChannel channel) throws IOException {
+		this(channel, WINDOW_BYTES);
+	}
+
+	/**
+	 * @param windowBytes the largest window of the file to map at once.
+	 */
+	SnapshotReader(FileChannel channel, int windowBytes) throws IOException {
+		this.channel = channel;
+		this.size = channel.size();
+		this.windowBytes = windowBytes;
+		if (size < SnapshotWriter.HEADER_BYTES) {
+			throw new IOException("not a cache snapshot");
+		}
+		map(0L);
+		if (buffer.getInt() != SnapshotWriter.MAGIC) {
+			throw new IOException("not a cache snapshot");
+		}
+		int version = buffer.getInt();
+		if (version != SnapshotWriter.VERSION) {
+			throw new IOException("unsupported snapshot version " + version);
+		}
+		numSets = buffer.getInt();
+		cacheLines = buffer.getInt();
+		remaining = buffer.getLong();
+	}
+
+	/**
+	 * Maps the window of the file starting at the position.
+	 */
+	private void map(long position) throws IOException {
+		base = position;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowBytes, size - position));
+	}
+
+	/**
+	 * Makes sure that the next bytes of the file are in the window, moving the
+	 * window to the current position if they are not.
+	 * 
+	 * @return false if the file ends before.
+	 */
+	private boolean ensure(long bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return true;
+		}
+		long position = base + buffer.position();
+		if (size - position < bytes) {
+			return false;
+		}
+		if (bytes > windowBytes) {
+			throw new IOException("snapshot record of " + bytes + " bytes is larger than a mapping");
+		}
+		map(position);
+		return true;
+	}
+
+	/**
+	 * @return number of sets of the cache the snapshot was taken of.
+	 */
+	int numSets() {
+		return numSets;
+	}
+
+	/**
+	 * @return number of slots per set of the cache the snapshot was taken of.
+	 */
+	int cacheLines() {
+		return cacheLines;
+	}
+
+	/**
+	 * @return the set of the next record, without reading it, or -1 at the end.
+	 */
+	int peekSet() throws IOException {
+		if (remaining == 0) {
+			return -1;
+		}
+		if (!ensure(Integer.BYTES)) {
+			throw new IOException("truncated snapshot");
+		}
+		return buffer.getInt(buffer.position());
+	}
+
+	/**
+	 * Reads the next record into the fields of this reader.
+	 * 
+	 * @return false at the end of the snapshot.
+	 * @throws IOException if the record is truncated or out of the geometry
+	 *                     of the snapshot.
+	 */
+	boolean next() throws IOException {
+		if (remaining == 0) {
+			return false;
+		}
+		if (!ensure(SnapshotWriter.RECORD_HEADER_BYTES)) {
+			throw new IOException("truncated snapshot");
+		}
+		// the lengths follow the set, the index and the state
+		int start = buffer.position();
+		int keyLength = buffer.getInt(start + 16);
+		int valueLength = buffer.getInt(start + 20);
+		if (keyLength < 0 || valueLength < 0
+				|| !ensure((long) SnapshotWriter.RECORD_HEADER_BYTES + keyLength + valueLength)) {
+			throw new IOException("truncated snapshot");
+		}
+		remaining--;
+		setNum = buffer.getInt();
+		index = buffer.getInt();
+		state = buffer.getLong();
+		buffer.position(buffer.position() + 2 * Integer.BYTES);
+		if (setNum < 0 || setNum >= numSets || index < 0 || index >= cacheLines) {
+			throw new IOException("corrupt snapshot: slot " + index + " of set " + setNum);
+		}
+		key = new byte[keyLength];
+		value = new byte[valueLength];
+		buffer.get(key);
+		buffer.get(value);
+		return true;
+	}
+}
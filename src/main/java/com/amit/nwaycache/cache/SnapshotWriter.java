@@ -0,0 +1,110 @@
+package com.amit.nwaycache.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a snapshot of the cache to a file. A snapshot starts with a header
+ * of the magic number, the format version, the number of sets and of slots
+ * per set and the number of elements, followed by one record per element:
+ * 
+ * <pre>
+ * int setNum | int index | long policy state | int key length | int value length | key | value
+ * </pre>
+ * 
+ * The records of a set are adjacent. Keys and values are encoded with
+ * {@link com.amit.nwaycache.codec.Codec}s and the records go through one
+ * direct buffer, so taking a snapshot allocates little beyond the encoded
+ * bytes.
+ * 
+ * @author Amit
+ *
+ */
+final class SnapshotWriter implements AutoCloseable {
+
+	/**
+	 * "NWSN".
+	 */
+	static final int MAGIC = 0x4E57534E;
+
+	static final int VERSION = 1;
+
+	static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8;
+
+	static final int RECORD_HEADER_BYTES = 4 + 4 + 8 + 4 + 4;
+
+	/**
+	 * Position of the element count in the header.
+	 */
+	private static final int COUNT_OFFSET = 16;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+	private long count;
+
+	/**
+	 * Writes the header, with no elements yet.
+	 * 
+	 * @param channel    the file, empty and open for writing.
+	 * @param numSets    number of sets of the cache.
+	 * @param cacheLines number of slots per set.
+	 */
+	SnapshotWriter(FileChannel channel, int numSets, int cacheLines) {
+		this.channel = channel;
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(numSets).putInt(cacheLines).putLong(0L);
+	}
+
+	/**
+	 * Appends the record of an element.
+	 */
+	void write(int setNum, int index, long state, byte[] key, byte[] value) throws IOException {
+		int length = RECORD_HEADER_BYTES + key.length + value.length;
+		if (buffer.remaining() < length) {
+			drain();
+		}
+		ByteBuffer target = (buffer.capacity() >= length) ? buffer : ByteBuffer.allocate(length);
+		target.putInt(setNum).putInt(index).putLong(state).putInt(key.length).putInt(value.length).put(key)
+				.put(value);
+		if (target != buffer) {
+			target.flip();
+			writeFully(target);
+		}
+		count++;
+	}
+
+	/**
+	 * @return the number of elements written.
+	 */
+	long count() {
+		return count;
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer source) throws IOException {
+		while (source.hasRemaining()) {
+			channel.write(source);
+		}
+	}
+
+	/**
+	 * Writes the buffered records, fills in the element count and forces the
+	 * file to the disk.
+	 */
+	@Override
+	public void close() throws IOException {
+		drain();
+		ByteBuffer countBytes = ByteBuffer.allocate(8).putLong(0, count);
+		while (countBytes.hasRemaining()) {
+			channel.write(countBytes, COUNT_OFFSET + countBytes.position());
+		}
+		channel.force(false);
+	}
+}
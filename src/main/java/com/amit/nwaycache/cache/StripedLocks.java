@@ -0,0 +1,85 @@
+package com.amit.nwaycache.cache;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A fixed group of stamped locks shared by the sets of the cache. Set
+ * <tt>s</tt> is guarded by lock <tt>s % stripes</tt>, so operations on sets
+ * guarded by different stripes never contend with each other. With a single
+ * stripe this is the same as one global lock.
+ * <p>
+ * {@link StampedLock} is used so that readers can scan a set optimistically
+ * and only validate the stamp afterwards, without writing to the lock.
+ *
+ * @author Amit
+ *
+ */
+final class StripedLocks {
+
+	/**
+	 * The lock stripes.
+	 */
+	private final StampedLock[] locks;
+
+	/**
+	 * @param stripes number of locks, must be greater than 0.
+	 */
+	StripedLocks(int stripes) {
+		locks = new StampedLock[stripes];
+		for (int i = 0; i < stripes; i++) {
+			locks[i] = new StampedLock();
+		}
+	}
+
+	/**
+	 * Returns the lock guarding the given set.
+	 *
+	 * @param setNum the set number.
+	 * @return the lock of the stripe the set belongs to.
+	 */
+	StampedLock forSet(int setNum) {
+		return locks[setNum % locks.length];
+	}
+
+	/**
+	 * @param setNum the set number.
+	 * @return the number of the stripe the set belongs to.
+	 */
+	int stripeOf(int setNum) {
+		return setNum % locks.length;
+	}
+
+	/**
+	 * @param stripe the stripe number.
+	 * @return the lock of the stripe.
+	 */
+	StampedLock forStripe(int stripe) {
+		return locks[stripe];
+	}
+
+	/**
+	 * Acquires the write lock of every stripe, always in the same order so that
+	 * two threads doing this can not deadlock.
+	 */
+	void lockAll() {
+		for (int i = 0; i < locks.length; i++) {
+			locks[i].writeLock();
+		}
+	}
+
+	/**
+	 * Releases the write locks acquired by {@link #lockAll()}.
+	 */
+	void unlockAll() {
+		for (int i = locks.length - 1; i >= 0; i--) {
+			locks[i].tryUnlockWrite();
+		}
+	}
+
+	/**
+	 * @return the number of stripes.
+	 */
+	int size() {
+		return locks.length;
+	}
+}
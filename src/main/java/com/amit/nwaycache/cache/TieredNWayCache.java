@@ -0,0 +1,347 @@
+package com.amit.nwaycache.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.amit.nwaycache.codec.Codec;
+import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.metrics.MetricsSnapshot;
+import com.amit.nwaycache.metrics.SetMetricsSnapshot;
+import com.amit.nwaycache.metrics.TieredMetrics;
+import com.amit.nwaycache.metrics.TieredMetricsSnapshot;
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * A cache of two set associative tiers: a small first tier, normally on the
+ * heap, in front of a larger second tier, normally
+ * {@link com.amit.nwaycache.model.StorageType#OFF_HEAP} or
+ * {@link com.amit.nwaycache.model.StorageType#MAPPED}, that holds the encoded
+ * elements outside the heap.
+ * <p>
+ * The element the eviction policy of the first tier chooses is demoted into
+ * the second tier instead of being dropped, as is a new key its admission
+ * policy rejects. A get that misses the first tier takes the key out of the
+ * second tier and promotes it, so a key is in at most one tier. Each tier is
+ * configured on its own, with its own size, storage and eviction policy: the
+ * <tt>cache.*</tt> properties configure the first tier and the
+ * <tt>cache.l2.*</tt> properties the second, e.g.
+ * <tt>cache.l2.evictionPolicy.implClass</tt>.
+ * <p>
+ * The first tier takes the lock of the second tier while it holds its own, and
+ * never the other way around.
+ *
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+public class TieredNWayCache<K, V> implements NWayCache<K, V> {
+
+	/**
+	 * Prefix of the properties of the second tier.
+	 */
+	static final String L2_PREFIX = "l2";
+
+	/**
+	 * The small, fast tier every get probes first.
+	 */
+	private final NWayCacheImpl<K, V> l1;
+
+	/**
+	 * The large tier the first one demotes into.
+	 */
+	private final NWayCacheImpl<K, V> l2;
+
+	private final TieredMetrics metrics = new TieredMetrics();
+
+	/**
+	 * Static factory method for instantiation the cache. The cache properties are
+	 * read from the <tt>cache.properties</tt> file which must be available on the
+	 * CLASSPATH.
+	 *
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static <K, V> TieredNWayCache<K, V> getCache() throws Exception {
+		return getCache(CacheProperties.load());
+	}
+
+	/**
+	 * Static factory method for instantiation the cache from the given
+	 * properties: the <tt>cache.*</tt> properties configure the first tier and
+	 * the <tt>cache.l2.*</tt> properties the second tier.
+	 *
+	 * @param cacheProps the cache properties.
+	 * @return cache object.
+	 * @throws Exception
+	 */
+	public static <K, V> TieredNWayCache<K, V> getCache(Properties cacheProps) throws Exception {
+		Properties l2Props = CacheProperties.tier(cacheProps, L2_PREFIX);
+		if (l2Props.isEmpty()) {
+			throw new IllegalArgumentException("cache.l2.* properties must be set for a tiered cache");
+		}
+		return new TieredNWayCache<>(cacheProps, l2Props);
+	}
+
+	private TieredNWayCache(Properties l1Props, Properties l2Props) throws Exception {
+		this.l2 = NWayCacheImpl.tier(CacheProperties.toConfig(l2Props), null);
+		this.l1 = NWayCacheImpl.tier(CacheProperties.toConfig(l1Props), this::demote);
+	}
+
+	/**
+	 * Moves an element dropped by the first tier into the second. Runs under the
+	 * lock of the set of the first tier.
+	 */
+	private void demote(K key, V value) {
+		try {
+			l2.put(key, value);
+			metrics.recordDemotion();
+		} catch (IllegalArgumentException e) {
+			// the encoded element does not fit in a slot of the second tier
+			metrics.recordDemotionFailure();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A key that misses the first tier is taken from the second and promoted.
+	 */
+	@Override
+	public V get(K key) {
+		long start = System.nanoTime();
+		V value = l1.get(key);
+		if (value != null) {
+			metrics.recordL1Hit(System.nanoTime() - start);
+			return value;
+		}
+		value = l1.promote(key, l2::take);
+		if (value != null) {
+			metrics.recordL2Hit(System.nanoTime() - start);
+		} else {
+			metrics.recordMiss(System.nanoTime() - start);
+		}
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The loaded value is put into the first tier.
+	 */
+	@Override
+	public V get(K key, CacheLoader<? super K, ? extends V> loader) {
+		V value = get(key);
+		return (value != null) ? value : l1.load(key, loader);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CompletableFuture<V> getAsync(K key, CacheLoader<? super K, ? extends V> loader, Executor executor) {
+		V value = get(key);
+		return (value != null) ? CompletableFuture.completedFuture(value) : l1.loadAsync(key, loader, executor);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * A tiered cache has no loader of its own, so the lookup always completes
+	 * in the calling thread.
+	 */
+	@Override
+	public CompletableFuture<V> getAsync(K key, Executor executor) {
+		return CompletableFuture.completedFuture(get(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys) {
+		long start = System.nanoTime();
+		Map<K, V> found = l1.getAll(keys);
+		if (!found.isEmpty()) {
+			// the batch lookup is shared by its hits
+			long perHit = (System.nanoTime() - start) / found.size();
+			for (int i = 0; i < found.size(); i++) {
+				metrics.recordL1Hit(perHit);
+			}
+		}
+		if (found.size() == keys.size()) {
+			return found;
+		}
+		Map<K, V> result = new HashMap<>(found);
+		for (K key : keys) {
+			if (found.containsKey(key)) {
+				continue;
+			}
+			start = System.nanoTime();
+			V value = l1.promote(key, l2::take);
+			if (value != null) {
+				metrics.recordL2Hit(System.nanoTime() - start);
+				result.put(key, value);
+			} else {
+				metrics.recordMiss(System.nanoTime() - start);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The mapping goes into the first tier; an older value in the second tier
+	 * is then removed under the lock of the set of the first tier, as
+	 * {@link #get(Object)} promotes.
+	 */
+	@Override
+	public void put(K key, V value) {
+		l1.put(key, value, l2::remove);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The times only apply while the element is in the first tier; once demoted
+	 * it has the default times of the second tier.
+	 */
+	@Override
+	public void put(K key, V value, long expireAfterWrite, long expireAfterAccess, TimeUnit unit) {
+		l1.put(key, value, expireAfterWrite, expireAfterAccess, unit, l2::remove);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void putAll(Map<? extends K, ? extends V> entries) {
+		l1.putAll(entries, l2::remove);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The key is removed from the second tier under the lock of its set in the
+	 * first tier, so that a concurrent get can not promote it back.
+	 */
+	@Override
+	public boolean remove(K key) {
+		return l1.remove(key, l2::remove);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int removeAll(Collection<? extends K> keys) {
+		return l1.removeAll(keys, l2::remove);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		l1.clear(l2::clear);
+		metrics.reset();
+	}
+
+	/**
+	 * Returns the eviction policy of the first tier.
+	 */
+	@Override
+	public EvictionPolicy getCachePolicy() {
+		return l1.getCachePolicy();
+	}
+
+	/**
+	 * Returns the eviction policy of the second tier.
+	 *
+	 * @return EvictionPolicy
+	 */
+	public EvictionPolicy getL2CachePolicy() {
+		return l2.getCachePolicy();
+	}
+
+	/**
+	 * Returns the statistics of the first tier; {@link #getTieredMetrics()}
+	 * has those of both tiers.
+	 */
+	@Override
+	public Stats getStats() {
+		return l1.getStats();
+	}
+
+	/**
+	 * Returns the hit ratios and get latencies of each tier and the number of
+	 * elements moved between them.
+	 *
+	 * @return the per tier statistics of the cache
+	 */
+	public TieredMetricsSnapshot getTieredMetrics() {
+		return metrics.snapshot(l1.getStats(), l2.getStats());
+	}
+
+	/**
+	 * Returns the latency histograms of the first tier.
+	 */
+	@Override
+	public MetricsSnapshot getMetrics() {
+		return l1.getMetrics();
+	}
+
+	/**
+	 * Returns the per set counters of the first tier.
+	 */
+	@Override
+	public SetMetricsSnapshot getSetMetrics() {
+		return l1.getSetMetrics();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The second tier is written to <tt>file</tt> with <tt>.l2</tt> appended.
+	 */
+	@Override
+	public long snapshot(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+		return l1.snapshot(file, keyCodec, valueCodec) + l2.snapshot(l2File(file), keyCodec, valueCodec);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The second tier is read from <tt>file</tt> with <tt>.l2</tt> appended,
+	 * if there is one. It is restored first, so that the elements the first
+	 * tier can not take are demoted into a warm second tier.
+	 */
+	@Override
+	public long restore(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+		Path l2File = l2File(file);
+		long restored = Files.exists(l2File) ? l2.restore(l2File, keyCodec, valueCodec) : 0L;
+		return restored + l1.restore(file, keyCodec, valueCodec);
+	}
+
+	private static Path l2File(Path file) {
+		return file.resolveSibling(file.getFileName() + "." + L2_PREFIX);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		l1.close();
+		l2.close();
+	}
+}
@@ -0,0 +1,52 @@
+package com.amit.nwaycache.cache;
+
+import com.amit.nwaycache.model.CacheConfig;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ArraySlotStore} that matches the probe hash against a whole vector of
+ * stored hashes per instruction using the incubating Vector API. Slots that do
+ * not fill a whole vector at the end of the set are compared one by one.
+ * <p>
+ * Needs <tt>--add-modules jdk.incubator.vector</tt> at run time; the cache
+ * falls back to the scalar scan when the module is not present.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+final class VectorSlotStore<K, V> extends ArraySlotStore<K, V> {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/**
+	 * @param config the configuration of the cache
+	 */
+	VectorSlotStore(CacheConfig config) {
+		super(config);
+	}
+
+	@Override
+	protected int nextHashMatch(int base, int from, int hash) {
+		int i = from;
+		int upperBound = cacheLines - SPECIES.length();
+		for (; i <= upperBound; i += SPECIES.length()) {
+			VectorMask<Integer> matches = IntVector.fromArray(SPECIES, hashes, base + i).compare(VectorOperators.EQ,
+					hash);
+			if (matches.anyTrue()) {
+				return i + matches.firstTrue();
+			}
+		}
+		for (; i < cacheLines; i++) {
+			if (hashes[base + i] == hash) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,21 @@
+package com.amit.nwaycache.codec;
+
+/**
+ * Stores already serialized records as they are. Meant for values: arrays do
+ * not make usable keys, their hashCode is identity based.
+ * 
+ * @author Amit
+ *
+ */
+public class ByteArrayCodec implements Codec<byte[]> {
+
+	@Override
+	public byte[] encode(byte[] object) {
+		return object;
+	}
+
+	@Override
+	public byte[] decode(byte[] bytes) {
+		return bytes;
+	}
+}
@@ -0,0 +1,32 @@
+package com.amit.nwaycache.codec;
+
+/**
+ * Converts keys or values to and from bytes, for storage engines that keep the
+ * cache data outside the Java heap. Implementations must be stateless and
+ * thread safe, and must have a public no-argument constructor so that they can
+ * be named in the <tt>cache.properties</tt> file.
+ * 
+ * @author Amit
+ *
+ * @param <T> the class of the encoded objects.
+ */
+public interface Codec<T> {
+
+	/**
+	 * Encodes the object.
+	 * 
+	 * @param object
+	 *            the object to encode, never <code>null</code>.
+	 * @return the encoded bytes.
+	 */
+	public byte[] encode(T object);
+
+	/**
+	 * Decodes the bytes produced by {@link #encode(Object)}.
+	 * 
+	 * @param bytes
+	 *            the encoded bytes.
+	 * @return the decoded object.
+	 */
+	public T decode(byte[] bytes);
+}
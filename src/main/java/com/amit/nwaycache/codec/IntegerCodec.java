@@ -0,0 +1,21 @@
+package com.amit.nwaycache.codec;
+
+/**
+ * Encodes integers as 4 big-endian bytes.
+ * 
+ * @author Amit
+ *
+ */
+public class IntegerCodec implements Codec<Integer> {
+
+	@Override
+	public byte[] encode(Integer object) {
+		int value = object;
+		return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+	}
+
+	@Override
+	public Integer decode(byte[] bytes) {
+		return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+	}
+}
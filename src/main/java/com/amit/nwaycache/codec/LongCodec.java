@@ -0,0 +1,30 @@
+package com.amit.nwaycache.codec;
+
+/**
+ * Encodes longs as 8 big-endian bytes.
+ * 
+ * @author Amit
+ *
+ */
+public class LongCodec implements Codec<Long> {
+
+	@Override
+	public byte[] encode(Long object) {
+		long value = object;
+		byte[] bytes = new byte[8];
+		for (int i = 7; i >= 0; i--) {
+			bytes[i] = (byte) value;
+			value >>>= 8;
+		}
+		return bytes;
+	}
+
+	@Override
+	public Long decode(byte[] bytes) {
+		long value = 0L;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes[i] & 0xFF);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,22 @@
+package com.amit.nwaycache.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes strings as UTF-8.
+ * 
+ * @author Amit
+ *
+ */
+public class StringCodec implements Codec<String> {
+
+	@Override
+	public byte[] encode(String object) {
+		return object.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String decode(byte[] bytes) {
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,258 @@
+package com.amit.nwaycache.eviction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Implements <tt>ARC</tt>, the "Adaptive Replacement Cache" policy, for every
+ * set on its own. The elements of a set are split in two lists: <tt>T1</tt>
+ * holds the elements seen once since they were inserted, <tt>T2</tt> the ones
+ * hit again. Two ghost lists, <tt>B1</tt> and <tt>B2</tt>, remember the key
+ * hashes of the elements recently evicted from <tt>T1</tt> and <tt>T2</tt>.
+ * <p>
+ * A target size <tt>p</tt> for <tt>T1</tt> decides which list loses an
+ * element: the least recently used of <tt>T1</tt> if <tt>T1</tt> is larger
+ * than <tt>p</tt>, the least recently used of <tt>T2</tt> otherwise. A new key
+ * found in <tt>B1</tt> means recency was undervalued and grows <tt>p</tt>; one
+ * found in <tt>B2</tt> means frequency was undervalued and shrinks it. So the
+ * split between the two follows the workload without any tuning.
+ * <p>
+ * Per slot the policy keeps the list of the element and a logical access
+ * stamp; per set the target and two rings of <tt>ways</tt> ghost hashes. A hit
+ * runs without the set lock: it moves the element from <tt>T1</tt> to
+ * <tt>T2</tt> with a compare-and-set of its list, so a slot emptied since the
+ * lookup stays free, and stores its stamp. Like a racing LRU hit refreshes
+ * the key that took over its slot, a hit racing the reuse of its slot may
+ * promote the new element. The ghost lists and the target only change under
+ * the lock, when an element is inserted or evicted. As the incoming key is not known when the victim is
+ * chosen, the <tt>T1</tt> / <tt>T2</tt> tie of the original algorithm (a key
+ * in <tt>B2</tt> while <tt>T1</tt> has exactly <tt>p</tt> elements) is not
+ * considered.
+ * 
+ * @author Amit
+ *
+ */
+public final class ARCPolicy implements EvictionPolicy {
+
+	private static final VarHandle LISTS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+	/**
+	 * Name of the policy.
+	 */
+	public static final String POLICY_NAME = "ARC";
+
+	/**
+	 * The list a slot belongs to.
+	 */
+	private static final byte FREE = 0, T1 = 1, T2 = 2;
+
+	/**
+	 * Ghost list numbers, used as offsets into the per set ghost arrays.
+	 */
+	private static final int B1 = 0, B2 = 1;
+
+	/**
+	 * Access stamps of all slots, for the LRU order inside each list.
+	 */
+	private final RecencyStamps stamps;
+
+	/**
+	 * The list of every slot of every set.
+	 */
+	private final byte[] lists;
+
+	/**
+	 * The target size of T1 of every set, from 0 to <tt>ways</tt>.
+	 */
+	private final int[] targets;
+
+	/**
+	 * Ghost hashes: <tt>ways</tt> entries of B1 then <tt>ways</tt> entries of B2
+	 * for every set.
+	 */
+	private final int[] ghosts;
+
+	/**
+	 * Whether each ghost entry holds a hash.
+	 */
+	private final boolean[] ghostUsed;
+
+	/**
+	 * Number of entries and next ring position of B1 and B2 of every set.
+	 */
+	private final int[] ghostSizes, ghostNext;
+
+	/**
+	 * Number of slots per set.
+	 */
+	private final int cacheLines;
+
+	/**
+	 * @param numSets
+	 * @param cacheLines
+	 */
+	public ARCPolicy(int numSets, int cacheLines) {
+		this.stamps = new RecencyStamps(numSets, cacheLines, RecencyClock.LOGICAL);
+		this.lists = new byte[numSets * cacheLines];
+		this.targets = new int[numSets];
+		this.ghosts = new int[numSets * 2 * cacheLines];
+		this.ghostUsed = new boolean[ghosts.length];
+		this.ghostSizes = new int[numSets * 2];
+		this.ghostNext = new int[numSets * 2];
+		this.cacheLines = cacheLines;
+	}
+
+	/**
+	 * Chooses the least recently used element of T1 if T1 is over its target,
+	 * of T2 otherwise.
+	 * 
+	 * @return the index of the chosen element in the set.
+	 */
+	@Override
+	public int evict(int setNum) {
+		int base = setNum * cacheLines;
+		int t1Size = t1Size(setNum);
+		byte from = (t1Size > 0 && (t1Size > targets[setNum] || t1Size == cacheLines)) ? T1 : T2;
+		int victim = -1;
+		long oldest = Long.MAX_VALUE;
+		for (int i = 0; i < cacheLines; i++) {
+			// a slot the policy was never told about can always go
+			byte list = list(base + i);
+			if (list == FREE) {
+				return i;
+			}
+			long stamp = stamps.stampOf(setNum, i);
+			if (list == from && stamp < oldest) {
+				oldest = stamp;
+				victim = i;
+			}
+		}
+		return (victim != -1) ? victim : stamps.oldest(setNum);
+	}
+
+	/**
+	 * Moves the element to the most recently used end of T2. A slot that is no
+	 * longer in T1 or T2 is left alone.
+	 * 
+	 * @param setNum
+	 *            index of set which needs to be updated.
+	 * @param index
+	 *            inside the set to be updated.
+	 */
+	@Override
+	public void update(int setNum, int index) {
+		int slot = setNum * cacheLines + index;
+		if (LISTS.compareAndSet(lists, slot, T1, T2) || list(slot) == T2) {
+			stamps.touch(setNum, index);
+		}
+	}
+
+	/**
+	 * Puts a new key in T1, or in T2 if it is found in a ghost list, adapting
+	 * the target of T1 to the ghost list it was found in.
+	 */
+	@Override
+	public void onInsert(int setNum, int index, int hash) {
+		byte list = T1;
+		int b1Size = ghostSizes[2 * setNum + B1];
+		int b2Size = ghostSizes[2 * setNum + B2];
+		if (removeGhost(setNum, B1, hash)) {
+			targets[setNum] = Math.min(cacheLines, targets[setNum] + Math.max(b2Size / b1Size, 1));
+			list = T2;
+		} else if (removeGhost(setNum, B2, hash)) {
+			targets[setNum] = Math.max(0, targets[setNum] - Math.max(b1Size / b2Size, 1));
+			list = T2;
+		}
+		setList(setNum * cacheLines + index, list);
+		stamps.touch(setNum, index);
+	}
+
+	/**
+	 * Remembers the hash of the evicted key in the ghost list of its list.
+	 */
+	@Override
+	public void onEvict(int setNum, int index, int hash) {
+		int slot = setNum * cacheLines + index;
+		addGhost(setNum, (list(slot) == T2) ? B2 : B1, hash);
+		setList(slot, FREE);
+	}
+
+	/**
+	 * Frees the slot without remembering the key.
+	 */
+	@Override
+	public void onRemove(int setNum, int index) {
+		setList(setNum * cacheLines + index, FREE);
+	}
+
+	/**
+	 * @param setNum the set number.
+	 * @return the number of elements of the set in T1.
+	 */
+	public int t1Size(int setNum) {
+		return sizeOf(setNum, T1);
+	}
+
+	/**
+	 * @param setNum the set number.
+	 * @return the number of elements of the set in T2.
+	 */
+	public int t2Size(int setNum) {
+		return sizeOf(setNum, T2);
+	}
+
+	private int sizeOf(int setNum, byte list) {
+		int base = setNum * cacheLines;
+		int size = 0;
+		for (int i = 0; i < cacheLines; i++) {
+			if (list(base + i) == list) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * The list of a slot. Hits change it without the lock of the set.
+	 */
+	private byte list(int slot) {
+		return (byte) LISTS.getOpaque(lists, slot);
+	}
+
+	private void setList(int slot, byte list) {
+		LISTS.setOpaque(lists, slot, list);
+	}
+
+	/**
+	 * Adds the hash to the ghost ring, overwriting its oldest entry if full.
+	 */
+	private void addGhost(int setNum, int ghost, int hash) {
+		int ring = 2 * setNum + ghost;
+		int base = ring * cacheLines;
+		int next = ghostNext[ring];
+		if (!ghostUsed[base + next]) {
+			ghostSizes[ring]++;
+		}
+		ghosts[base + next] = hash;
+		ghostUsed[base + next] = true;
+		ghostNext[ring] = (next + 1 == cacheLines) ? 0 : next + 1;
+	}
+
+	/**
+	 * Removes the hash from the ghost ring.
+	 * 
+	 * @return true if the hash was found.
+	 */
+	private boolean removeGhost(int setNum, int ghost, int hash) {
+		int ring = 2 * setNum + ghost;
+		int base = ring * cacheLines;
+		for (int i = base; i < base + cacheLines; i++) {
+			if (ghostUsed[i] && ghosts[i] == hash) {
+				ghostUsed[i] = false;
+				ghostSizes[ring]--;
+				return true;
+			}
+		}
+		return false;
+	}
+}
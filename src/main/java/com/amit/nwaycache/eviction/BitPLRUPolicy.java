@@ -0,0 +1,78 @@
+package com.amit.nwaycache.eviction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Implements <tt>bit-PLRU</tt> (also known as MRU-bit or NRU), a "pseudo
+ * least-recently used" policy with one bit per way. An access sets the bit of
+ * the way; when that would set the bits of all the ways, the others are
+ * cleared, starting a new round. The first way with a clear bit, i.e. not used
+ * in the current round, is evicted. Both operations are a few bit operations
+ * on one word.
+ * <p>
+ * The bits of a set are packed in one <code>long</code>, so the policy keeps 8
+ * bytes per set and supports up to 64 ways. Accesses update the word with a
+ * plain read and write, without the set lock; a concurrent access of the same
+ * set may be lost, which only makes the approximation a little coarser.
+ * 
+ * @author Amit
+ *
+ */
+public final class BitPLRUPolicy implements EvictionPolicy {
+
+	private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Name of the policy.
+	 */
+	public static final String POLICY_NAME = "BitPLRU";
+
+	/**
+	 * The used bits of every set.
+	 */
+	private final long[] bits;
+
+	/**
+	 * A bit for every way of a set.
+	 */
+	private final long allWays;
+
+	/**
+	 * @param numSets
+	 * @param cacheLines
+	 *            number of ways, at most 64.
+	 */
+	public BitPLRUPolicy(int numSets, int cacheLines) {
+		if (cacheLines > Long.SIZE) {
+			throw new IllegalArgumentException(POLICY_NAME + " supports at most " + Long.SIZE + " ways");
+		}
+		this.bits = new long[numSets];
+		this.allWays = (cacheLines == Long.SIZE) ? -1L : (1L << cacheLines) - 1;
+	}
+
+	/**
+	 * Chooses the first way not used in the current round.
+	 * 
+	 * @return the index of the chosen element in the set.
+	 */
+	@Override
+	public int evict(int setNum) {
+		long unused = ~(long) BITS.getOpaque(bits, setNum) & allWays;
+		return (unused == 0L) ? 0 : Long.numberOfTrailingZeros(unused);
+	}
+
+	/**
+	 * Sets the bit of the way, starting a new round if all are set.
+	 * 
+	 * @param setNum
+	 *            index of set which needs to be updated.
+	 * @param index
+	 *            inside the set to be updated.
+	 */
+	@Override
+	public void update(int setNum, int index) {
+		long used = (long) BITS.getOpaque(bits, setNum) | (1L << index);
+		BITS.setOpaque(bits, setNum, (used == allWays) ? 1L << index : used);
+	}
+}
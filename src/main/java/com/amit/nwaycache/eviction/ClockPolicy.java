@@ -0,0 +1,125 @@
+package com.amit.nwaycache.eviction;
+
+import java.util.Arrays;
+
+/**
+ * Implements <tt>CLOCK</tt> (second chance), an approximation of LRU. Every
+ * slot has a reference bit that an access sets, and every set has a clock
+ * hand. An eviction advances the hand over the set, clearing the reference
+ * bits it passes, and evicts the first slot whose bit was already clear, so an
+ * element accessed since the hand last passed gets a second chance.
+ * {@link #evict(int)} only finds that slot; the bits are cleared and the hand
+ * moved by {@link #onEvict(int, int, int)}, so a candidate the admission
+ * policy turns down costs no element its second chance.
+ * <p>
+ * A hit is a single store of one byte, without the set lock and without
+ * reading a clock; the reference bits of all sets live in one
+ * <code>byte[]</code> and the hands in one <code>int[]</code>. An eviction
+ * looks at most at every slot twice.
+ * 
+ * @author Amit
+ *
+ */
+public final class ClockPolicy implements EvictionPolicy {
+
+	/**
+	 * Name of the policy.
+	 */
+	public static final String POLICY_NAME = "CLOCK";
+
+	/**
+	 * Reference bits of all slots of all sets.
+	 */
+	private final byte[] referenced;
+
+	/**
+	 * The position of the clock hand of every set. Only moved by
+	 * {@link #onEvict(int, int, int)}, under the lock of the set.
+	 */
+	private final int[] hands;
+
+	/**
+	 * Number of slots per set.
+	 */
+	private final int cacheLines;
+
+	/**
+	 * @param numSets
+	 * @param cacheLines
+	 */
+	public ClockPolicy(int numSets, int cacheLines) {
+		this.referenced = new byte[numSets * cacheLines];
+		this.hands = new int[numSets];
+		this.cacheLines = cacheLines;
+	}
+
+	/**
+	 * Finds the first slot from the hand of the set on that was not referenced
+	 * since the hand last passed it, or the slot under the hand if all of them
+	 * were, as that is where the hand stops after clearing every bit. Nothing
+	 * is changed.
+	 * 
+	 * @return the index of the chosen element in the set.
+	 */
+	@Override
+	public int evict(int setNum) {
+		int base = setNum * cacheLines;
+		int hand = hands[setNum];
+		for (int i = 0; i < cacheLines; i++) {
+			if (referenced[base + hand] == 0) {
+				return hand;
+			}
+			hand = (hand + 1 == cacheLines) ? 0 : hand + 1;
+		}
+		return hand;
+	}
+
+	/**
+	 * Clears the reference bits the hand passed on its way to the evicted slot,
+	 * all of them if it went round the whole set, and moves the hand past the
+	 * slot.
+	 */
+	@Override
+	public void onEvict(int setNum, int index, int hash) {
+		int base = setNum * cacheLines;
+		int hand = hands[setNum];
+		if (index == hand && referenced[base + hand] != 0) {
+			Arrays.fill(referenced, base, base + cacheLines, (byte) 0);
+		} else {
+			while (hand != index) {
+				referenced[base + hand] = 0;
+				hand = (hand + 1 == cacheLines) ? 0 : hand + 1;
+			}
+		}
+		hands[setNum] = (index + 1 == cacheLines) ? 0 : index + 1;
+	}
+
+	/**
+	 * Sets the reference bit of the element.
+	 * 
+	 * @param setNum
+	 *            index of set which needs to be updated.
+	 * @param index
+	 *            inside the set to be updated.
+	 */
+	@Override
+	public void update(int setNum, int index) {
+		referenced[setNum * cacheLines + index] = 1;
+	}
+
+	/**
+	 * The reference bit of the element.
+	 */
+	@Override
+	public long stateOf(int setNum, int index) {
+		return referenced[setNum * cacheLines + index];
+	}
+
+	/**
+	 * Restores the reference bit of the element.
+	 */
+	@Override
+	public void restore(int setNum, int index, int hash, long state) {
+		referenced[setNum * cacheLines + index] = (byte) state;
+	}
+}
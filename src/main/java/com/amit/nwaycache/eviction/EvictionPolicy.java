@@ -6,6 +6,12 @@ package com.amit.nwaycache.eviction;
  * with custom replacement algorithm by implementing this interface.
  * <p>
  * The <tt>evict</tt> method returns the index of the candidate element.
+ * <p>
+ * Besides the accesses reported to <tt>update</tt>, the cache tells the policy
+ * when an element is inserted into a slot, evicted from it or removed, with the
+ * hash code of its key. Policies that only track accesses can ignore these
+ * callbacks: by default an insertion counts as an access and the others do
+ * nothing. All three are called under the write lock of the set.
  * 
  * @author Amit
  *
@@ -25,6 +31,13 @@ public interface EvictionPolicy {
 	/**
 	 * Updates the (optional) eviction list maintained by the eviction policy.
 	 * An implementation may choose to no implement this method.
+	 * <p>
+	 * On a cache-hit this method is called without holding the lock of the set,
+	 * so it can run concurrently with other updates of the same set and with
+	 * {@link #evict(int)}. Implementations should record the access with plain
+	 * single stores that stay meaningful under such races, e.g. overwriting a
+	 * per-slot time stamp, or ask for the lock with
+	 * {@link #requiresLockedUpdate()}.
 	 * 
 	 * @param setNum
 	 *            set number where updation will be made.
@@ -33,4 +46,95 @@ public interface EvictionPolicy {
 	 *            need updating.
 	 */
 	public void update(int setNum, int index);
-}
\ No newline at end of file
+
+	/**
+	 * Whether {@link #update(int, int)} must run under the write lock of the
+	 * set. A policy whose hits move elements between lists, rather than
+	 * overwrite a per slot stamp, can not take a hit on a slot that was reused
+	 * or emptied since the lookup; the cache then applies the hit under the
+	 * lock, to the slot that holds the key at that time.
+	 * 
+	 * @return false by default.
+	 */
+	public default boolean requiresLockedUpdate() {
+		return false;
+	}
+
+	/**
+	 * Called when a new key is stored in a slot, either a free one or the one
+	 * just chosen by {@link #evict(int)}. An existing key whose value is
+	 * replaced is reported to {@link #update(int, int)} instead.
+	 * 
+	 * @param setNum
+	 *            set number of the slot.
+	 * @param index
+	 *            index of the slot inside the set.
+	 * @param hash
+	 *            hash code of the new key.
+	 */
+	public default void onInsert(int setNum, int index, int hash) {
+		update(setNum, index);
+	}
+
+	/**
+	 * Called when the element chosen by {@link #evict(int)} is actually evicted,
+	 * before the new element is reported to
+	 * {@link #onInsert(int, int, int)}. The cache may still
+	 * decide not to evict after calling {@link #evict(int)}, so that method
+	 * should not change the state of the set.
+	 * 
+	 * @param setNum
+	 *            set number of the slot.
+	 * @param index
+	 *            index of the slot inside the set.
+	 * @param hash
+	 *            hash code of the evicted key.
+	 */
+	public default void onEvict(int setNum, int index, int hash) {
+	}
+
+	/**
+	 * Called when an element is removed from the cache, leaving its slot free.
+	 * 
+	 * @param setNum
+	 *            set number of the slot.
+	 * @param index
+	 *            index of the slot inside the set.
+	 */
+	public default void onRemove(int setNum, int index) {
+	}
+
+	/**
+	 * Returns the state of a slot to be kept in a snapshot of the cache. The
+	 * slots of a set are restored in increasing order of their state, so a
+	 * recency based policy returns the recency of the slot and gets its order
+	 * back without overriding {@link #restore(int, int, int, long)}.
+	 * 
+	 * @param setNum
+	 *            set number of the slot.
+	 * @param index
+	 *            index of the slot inside the set.
+	 * @return the state of the slot, 0 by default.
+	 */
+	public default long stateOf(int setNum, int index) {
+		return 0L;
+	}
+
+	/**
+	 * Called for every slot restored from a snapshot of the cache, in
+	 * increasing order of the states {@link #stateOf(int, int)} returned for
+	 * the slots of the set. By default the slot is reported as a new key.
+	 * 
+	 * @param setNum
+	 *            set number of the slot.
+	 * @param index
+	 *            index of the slot inside the set.
+	 * @param hash
+	 *            hash code of the restored key.
+	 * @param state
+	 *            the state of the slot when the snapshot was taken.
+	 */
+	public default void restore(int setNum, int index, int hash, long state) {
+		onInsert(setNum, index, hash);
+	}
+}
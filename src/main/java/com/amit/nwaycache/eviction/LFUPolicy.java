@@ -0,0 +1,126 @@
+package com.amit.nwaycache.eviction;
+
+/**
+ * Implements <tt>LFU</tt> or the "Least-Frequently used" replacement policy
+ * with aging. Every slot has an 8 bit access counter that saturates at 255;
+ * the element with the smallest count is evicted, the first one on a tie.
+ * After <tt>16 * ways</tt> accesses to a set all its counters are halved, so
+ * an element that was popular long ago does not stay in the cache forever.
+ * <p>
+ * The counters of all the sets live in one <code>byte[]</code>, one byte per
+ * slot. A hit is a read and a store of that byte, without the set lock and
+ * without reading a clock; a racing hit of the same slot may be lost, which
+ * only makes the count a little lower. A newly inserted element starts from a
+ * count of 1, whatever the previous element of the slot had.
+ * 
+ * @author Amit
+ *
+ */
+public final class LFUPolicy implements EvictionPolicy {
+
+	/**
+	 * Name of the policy.
+	 */
+	public static final String POLICY_NAME = "LFU";
+
+	/**
+	 * Accesses per way after which the counters of a set are halved.
+	 */
+	static final int AGING_PERIOD = 16;
+
+	/**
+	 * Access counters of all slots of all sets, unsigned.
+	 */
+	private final byte[] counts;
+
+	/**
+	 * Accesses of every set since its counters were last halved.
+	 */
+	private final int[] ticks;
+
+	/**
+	 * Number of slots per set.
+	 */
+	private final int cacheLines;
+
+	/**
+	 * @param numSets
+	 * @param cacheLines
+	 */
+	public LFUPolicy(int numSets, int cacheLines) {
+		this.counts = new byte[numSets * cacheLines];
+		this.ticks = new int[numSets];
+		this.cacheLines = cacheLines;
+	}
+
+	/**
+	 * Chooses the element with the smallest access count.
+	 * 
+	 * @return the index of the least frequently used element in the set.
+	 */
+	@Override
+	public int evict(int setNum) {
+		int base = setNum * cacheLines;
+		int index = 0;
+		int min = Integer.MAX_VALUE;
+		for (int i = 0; i < cacheLines; i++) {
+			int count = counts[base + i] & 0xFF;
+			if (count < min) {
+				min = count;
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Counts an access of the element, halving the counters of the set once
+	 * every aging period.
+	 * 
+	 * @param setNum
+	 *            index of set which needs to be updated.
+	 * @param index
+	 *            inside the set to be updated.
+	 */
+	@Override
+	public void update(int setNum, int index) {
+		int base = setNum * cacheLines;
+		int count = counts[base + index] & 0xFF;
+		if (count < 0xFF) {
+			counts[base + index] = (byte) (count + 1);
+		}
+		int tick = ticks[setNum] + 1;
+		if (tick >= AGING_PERIOD * cacheLines) {
+			tick = 0;
+			for (int i = base; i < base + cacheLines; i++) {
+				counts[i] = (byte) ((counts[i] & 0xFF) >>> 1);
+			}
+		}
+		ticks[setNum] = tick;
+	}
+
+	/**
+	 * Starts the count of the new element afresh.
+	 */
+	@Override
+	public void onInsert(int setNum, int index, int hash) {
+		counts[setNum * cacheLines + index] = 0;
+		update(setNum, index);
+	}
+
+	/**
+	 * The access count of the element.
+	 */
+	@Override
+	public long stateOf(int setNum, int index) {
+		return counts[setNum * cacheLines + index] & 0xFF;
+	}
+
+	/**
+	 * Restores the access count of the element.
+	 */
+	@Override
+	public void restore(int setNum, int index, int hash, long state) {
+		counts[setNum * cacheLines + index] = (byte) Math.min(state, 0xFF);
+	}
+}
@@ -1,12 +1,5 @@
 package com.amit.nwaycache.eviction;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
-import com.amit.nwaycache.model.ElementStats;
-
 /**
  * Implements <tt>MRU</tt> or the "Most-Recently used" replacement policy. The
  * element whose last access time was most recent among all in the set will be
@@ -18,10 +11,10 @@ import com.amit.nwaycache.model.ElementStats;
 public final class MRUPolicy implements EvictionPolicy {
 
 	/**
-	 * This list contains the access / update statistics to be used for eviction
+	 * The access / update stamps of every slot, to be used for eviction
 	 * algorithm.
 	 */
-	private List<List<ElementStats>> evictionList;
+	private final RecencyStamps stamps;
 
 	/**
 	 * Name of the policy.
@@ -29,19 +22,23 @@ public final class MRUPolicy implements EvictionPolicy {
 	public static final String POLICY_NAME = "MRU";
 
 	/**
+	 * Creates the policy with {@link RecencyClock#NANO_TIME} stamps.
 	 * 
 	 * @param numSets
 	 * @param cacheLines
 	 */
 	public MRUPolicy(int numSets, int cacheLines) {
-		evictionList = new ArrayList<List<ElementStats>>();
-		for (int i = 0; i < numSets; i++) {
-			List<ElementStats> list = new ArrayList<>(cacheLines);
-			for (int j = 0; j < cacheLines; j++) {
-				list.add(new ElementStats());
-			}
-			evictionList.add(list);
-		}
+		this(numSets, cacheLines, RecencyClock.NANO_TIME);
+	}
+
+	/**
+	 * @param numSets
+	 * @param cacheLines
+	 * @param clock
+	 *            source of the access stamps.
+	 */
+	public MRUPolicy(int numSets, int cacheLines, RecencyClock clock) {
+		stamps = new RecencyStamps(numSets, cacheLines, clock);
 	}
 
 	/**
@@ -53,10 +50,7 @@ public final class MRUPolicy implements EvictionPolicy {
 	 */
 	@Override
 	public int evict(int setNum) {
-		List<ElementStats> setElements = evictionList.get(setNum);
-		ElementStats element = Collections.max(setElements,
-				new ElementStatsComparator());
-		return element.getIndex();
+		return stamps.newest(setNum);
 	}
 
 	/**
@@ -69,33 +63,15 @@ public final class MRUPolicy implements EvictionPolicy {
 	 */
 	@Override
 	public void update(int setNum, int index) {
-		List<ElementStats> setElements = evictionList.get(setNum);
-		ElementStats stats = setElements.get(index);
-		if (stats.getLastUpdated() == 0L) {
-			stats.setIndex(index);
-			stats.setLastUpdated(System.nanoTime());
-		} else {
-			stats.setLastUpdated(System.nanoTime());
-		}
+		stamps.touch(setNum, index);
 	}
 
 	/**
-	 * Comparator for ElementStats objects.
-	 * 
-	 * @author Amit
-	 *
+	 * The access stamp of the element, so that a restored set is replayed from
+	 * its least to its most recently used element.
 	 */
-	class ElementStatsComparator implements Comparator<ElementStats> {
-		@Override
-		public int compare(ElementStats o1, ElementStats o2) {
-			if (o1.getLastUpdated() == 0L)
-				return -1;
-			if (o2.getLastUpdated() == 0L)
-				return 1;
-			if (o1 == o2)
-				return 0;
-			long diff = o1.getLastUpdated() - o2.getLastUpdated();
-			return (diff == 0) ? 0 : (diff > 0) ? 1 : -1;
-		}
+	@Override
+	public long stateOf(int setNum, int index) {
+		return stamps.stampOf(setNum, index);
 	}
 }
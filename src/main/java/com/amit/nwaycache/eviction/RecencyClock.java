@@ -0,0 +1,23 @@
+package com.amit.nwaycache.eviction;
+
+/**
+ * Source of the access stamps used by the recency based eviction policies
+ * ({@link LRUPolicy}, {@link MRUPolicy}).
+ * 
+ * @author Amit
+ *
+ */
+public enum RecencyClock {
+	/**
+	 * Stamps are read from {@link System#nanoTime()}. Two accesses within the
+	 * same clock tick get the same stamp.
+	 */
+	NANO_TIME,
+
+	/**
+	 * Stamps come from a monotonic counter kept per set. Every access gets a
+	 * distinct stamp, so the ordering is exact, and no clock is read on the hot
+	 * path.
+	 */
+	LOGICAL
+}
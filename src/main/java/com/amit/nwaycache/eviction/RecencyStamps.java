@@ -0,0 +1,128 @@
+package com.amit.nwaycache.eviction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Flat table of per-slot access stamps shared by the recency based policies.
+ * The stamp of slot <tt>index</tt> of set <tt>setNum</tt> lives at
+ * <tt>setNum * cacheLines + index</tt> of a single <code>long[]</code>, so an
+ * update is one store and a scan of a set walks adjacent memory without
+ * allocating anything. A stamp of <code>0</code> means the slot was never
+ * used.
+ * <p>
+ * Stamps are taken from {@link System#nanoTime()} or, with
+ * {@link RecencyClock#LOGICAL}, from a counter per set that is bumped on every
+ * access.
+ *
+ * @author Amit
+ *
+ */
+final class RecencyStamps {
+
+	/**
+	 * Opaque access keeps the racy stores of concurrent readers atomic without
+	 * paying for a memory fence.
+	 */
+	private static final VarHandle STAMPS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private static final VarHandle CLOCKS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Access stamps of all slots of all sets.
+	 */
+	private final long[] stamps;
+
+	/**
+	 * Number of slots per set.
+	 */
+	private final int cacheLines;
+
+	/**
+	 * Per set access counters, <code>null</code> unless the logical clock is
+	 * used.
+	 */
+	private final long[] clocks;
+
+	/**
+	 * @param numSets    number of sets in the cache.
+	 * @param cacheLines number of slots per set.
+	 * @param clock      source of the access stamps.
+	 */
+	RecencyStamps(int numSets, int cacheLines, RecencyClock clock) {
+		this.stamps = new long[numSets * cacheLines];
+		this.cacheLines = cacheLines;
+		this.clocks = (clock == RecencyClock.LOGICAL) ? new long[numSets] : null;
+	}
+
+	/**
+	 * Records an access of the slot.
+	 *
+	 * @param setNum set number of the slot.
+	 * @param index  index of the slot inside the set.
+	 */
+	void touch(int setNum, int index) {
+		long stamp;
+		if (clocks != null) {
+			// the counter starts at 1 so that 0 still means "never used"
+			stamp = (long) CLOCKS.getAndAdd(clocks, setNum, 1L) + 1L;
+		} else {
+			stamp = System.nanoTime();
+		}
+		STAMPS.setOpaque(stamps, setNum * cacheLines + index, stamp);
+	}
+
+	/**
+	 * @param setNum set number of the slot.
+	 * @param index  index of the slot inside the set.
+	 * @return the last access stamp of the slot, 0 if never used.
+	 */
+	long stampOf(int setNum, int index) {
+		return (long) STAMPS.getOpaque(stamps, setNum * cacheLines + index);
+	}
+
+	/**
+	 * Returns the index of the least recently accessed slot of the set. A slot
+	 * that was never used is returned first.
+	 *
+	 * @param setNum the set number.
+	 * @return the index of the oldest slot in the set.
+	 */
+	int oldest(int setNum) {
+		int base = setNum * cacheLines;
+		int index = 0;
+		long oldest = Long.MAX_VALUE;
+		for (int i = 0; i < cacheLines; i++) {
+			long stamp = (long) STAMPS.getOpaque(stamps, base + i);
+			if (stamp == 0L) {
+				return i;
+			}
+			if (stamp < oldest) {
+				oldest = stamp;
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index of the most recently accessed slot of the set. Slots
+	 * that were never used are skipped.
+	 *
+	 * @param setNum the set number.
+	 * @return the index of the newest slot in the set.
+	 */
+	int newest(int setNum) {
+		int base = setNum * cacheLines;
+		int index = 0;
+		long newest = Long.MIN_VALUE;
+		for (int i = 0; i < cacheLines; i++) {
+			long stamp = (long) STAMPS.getOpaque(stamps, base + i);
+			if (stamp != 0L && stamp > newest) {
+				newest = stamp;
+				index = i;
+			}
+		}
+		return index;
+	}
+}
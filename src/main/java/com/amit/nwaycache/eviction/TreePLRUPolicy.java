@@ -0,0 +1,109 @@
+package com.amit.nwaycache.eviction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Implements <tt>tree-PLRU</tt>, the "pseudo least-recently used" policy of
+ * hardware caches. The ways of a set are the leaves of a binary tree whose
+ * <tt>ways - 1</tt> inner nodes hold one bit each, pointing to the half of the
+ * subtree that was used less recently. An access flips the bits on the path
+ * from the root to the way to point away from it; an eviction follows the bits
+ * from the root down to a leaf. Both are <tt>O(log ways)</tt>.
+ * <p>
+ * The whole tree of a set is packed in one <code>long</code> (node
+ * <tt>n</tt>, with the root at 1 and the children of <tt>n</tt> at
+ * <tt>2n</tt> and <tt>2n + 1</tt>, is bit <tt>n</tt>), so the policy keeps 8
+ * bytes per set instead of 8 bytes per slot, and supports up to 64 ways. When
+ * the number of ways is not a power of two the tree is built for the next one
+ * and the eviction never walks into a subtree of missing ways.
+ * <p>
+ * Accesses update the word with a plain read and write, without the set lock;
+ * a concurrent access of the same set may be lost, which only makes the
+ * approximation a little coarser.
+ * 
+ * @author Amit
+ *
+ */
+public final class TreePLRUPolicy implements EvictionPolicy {
+
+	private static final VarHandle TREES = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Name of the policy.
+	 */
+	public static final String POLICY_NAME = "TreePLRU";
+
+	/**
+	 * The tree bits of every set.
+	 */
+	private final long[] trees;
+
+	/**
+	 * Number of ways of a set.
+	 */
+	private final int cacheLines;
+
+	/**
+	 * Number of leaves of the tree, the smallest power of two not smaller than
+	 * <code>cacheLines</code>.
+	 */
+	private final int leaves;
+
+	/**
+	 * @param numSets
+	 * @param cacheLines
+	 *            number of ways, at most 64.
+	 */
+	public TreePLRUPolicy(int numSets, int cacheLines) {
+		if (cacheLines > Long.SIZE) {
+			throw new IllegalArgumentException(POLICY_NAME + " supports at most " + Long.SIZE + " ways");
+		}
+		this.trees = new long[numSets];
+		this.cacheLines = cacheLines;
+		this.leaves = Integer.highestOneBit(cacheLines - 1) << 1;
+	}
+
+	/**
+	 * Follows the tree bits from the root to the pseudo least recently used
+	 * way.
+	 * 
+	 * @return the index of the pseudo least recently used element in the set.
+	 */
+	@Override
+	public int evict(int setNum) {
+		long tree = (long) TREES.getOpaque(trees, setNum);
+		int node = 1;
+		int first = 0;
+		for (int size = leaves; size > 1; size >>>= 1) {
+			int half = size >>> 1;
+			// the bit points to the older half, unless that half has no ways
+			if ((tree & (1L << node)) != 0 && first + half < cacheLines) {
+				node = 2 * node + 1;
+				first += half;
+			} else {
+				node = 2 * node;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Points the bits on the path to the way away from it.
+	 * 
+	 * @param setNum
+	 *            index of set which needs to be updated.
+	 * @param index
+	 *            inside the set to be updated.
+	 */
+	@Override
+	public void update(int setNum, int index) {
+		long tree = (long) TREES.getOpaque(trees, setNum);
+		for (int node = leaves + index; node > 1; node >>>= 1) {
+			long bit = 1L << (node >>> 1);
+			// a left child makes its parent point right, and the other way round
+			tree = ((node & 1) == 0) ? tree | bit : tree & ~bit;
+		}
+		TREES.setOpaque(trees, setNum, tree);
+	}
+}
@@ -0,0 +1,108 @@
+package com.amit.nwaycache.expiry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that reads {@link System#nanoTime()} once per tick on a background
+ * thread and hands out the cached value, so that the expiry checks on the hot
+ * paths are a volatile read instead of a clock read. The time it returns lags
+ * behind the real time by up to one tick.
+ * <p>
+ * Clocks are shared: all the caches with the same tick get the same clock, and
+ * all the clocks tick on one daemon thread that is started with the first
+ * clock and stops once the last one is closed.
+ * 
+ * @author Amit
+ *
+ */
+public final class CoarseClock implements AutoCloseable {
+
+	/**
+	 * Open clocks by their tick in nanoseconds; guarded by the class.
+	 */
+	private static final Map<Long, CoarseClock> CLOCKS = new HashMap<>();
+
+	private static ScheduledThreadPoolExecutor ticker;
+
+	private final long tickNanos;
+
+	private final ScheduledFuture<?> task;
+
+	private int users;
+
+	private volatile long nanos;
+
+	private CoarseClock(long tickNanos) {
+		this.tickNanos = tickNanos;
+		this.nanos = System.nanoTime();
+		this.task = ticker.scheduleAtFixedRate(() -> nanos = System.nanoTime(), tickNanos, tickNanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the clock of the given tick, starting it if no cache uses it yet.
+	 * Every call must be paired with a {@link #close()}.
+	 * 
+	 * @param tick
+	 *            the resolution of the clock.
+	 * @param unit
+	 *            unit of the tick.
+	 * @return the shared clock.
+	 */
+	public static synchronized CoarseClock acquire(long tick, TimeUnit unit) {
+		long tickNanos = unit.toNanos(tick);
+		if (ticker == null) {
+			ticker = newScheduler("nwaycache-clock");
+		}
+		CoarseClock clock = CLOCKS.computeIfAbsent(tickNanos, CoarseClock::new);
+		clock.users++;
+		return clock;
+	}
+
+	/**
+	 * Creates a single daemon thread scheduler whose thread exits when it has
+	 * nothing scheduled, so that it can be shared by caches without a shutdown.
+	 * 
+	 * @param name
+	 *            name of the thread.
+	 * @return the scheduler.
+	 */
+	public static ScheduledThreadPoolExecutor newScheduler(String name) {
+		ThreadFactory factory = r -> {
+			Thread thread = new Thread(r, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, factory);
+		scheduler.setRemoveOnCancelPolicy(true);
+		scheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+		scheduler.allowCoreThreadTimeOut(true);
+		return scheduler;
+	}
+
+	/**
+	 * @return the value of {@link System#nanoTime()} at the last tick.
+	 */
+	public long nanoTime() {
+		return nanos;
+	}
+
+	/**
+	 * Releases the clock; once the last user has released it the clock stops
+	 * moving.
+	 */
+	@Override
+	public void close() {
+		synchronized (CoarseClock.class) {
+			if (users > 0 && --users == 0) {
+				task.cancel(false);
+				CLOCKS.remove(tickNanos);
+			}
+		}
+	}
+}
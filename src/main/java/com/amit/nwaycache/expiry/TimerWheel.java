@@ -0,0 +1,109 @@
+package com.amit.nwaycache.expiry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * A hashed timer wheel of integer ids, e.g. cache set numbers. Time is cut in
+ * ticks, and the wheel has a bucket per tick for one rotation; an id scheduled
+ * for a deadline is marked in the bucket of the tick the deadline falls in,
+ * and {@link #advance(long, IntConsumer)} hands out the ids of every bucket the
+ * time has passed. A bucket is a bitmap of all the ids, so scheduling an id
+ * twice costs nothing and memory stays fixed at <tt>buckets * ids</tt> bits.
+ * <p>
+ * Deadlines further away than one rotation are put in the last bucket of the
+ * rotation; the owner is expected to look at the id when it comes out and
+ * schedule it again. Ids are handed out no earlier than their deadline, and at
+ * most one tick later when the wheel is advanced every tick.
+ * <p>
+ * {@link #schedule(int, long)} may be called from any thread,
+ * {@link #advance(long, IntConsumer)} from one thread at a time.
+ * 
+ * @author Amit
+ *
+ */
+public final class TimerWheel {
+
+	private final AtomicLongArray[] buckets;
+
+	private final long tickNanos;
+
+	/**
+	 * The time tick 0 starts at.
+	 */
+	private final long origin;
+
+	/**
+	 * The last tick handed out.
+	 */
+	private volatile long cursor;
+
+	/**
+	 * @param ids
+	 *            number of ids, which go from 0 to <code>ids - 1</code>.
+	 * @param buckets
+	 *            number of ticks of a rotation.
+	 * @param tickNanos
+	 *            length of a tick.
+	 * @param now
+	 *            the current time, in {@link System#nanoTime()} terms.
+	 */
+	public TimerWheel(int ids, int buckets, long tickNanos, long now) {
+		this.buckets = new AtomicLongArray[buckets];
+		for (int i = 0; i < buckets; i++) {
+			this.buckets[i] = new AtomicLongArray((ids + 63) >>> 6);
+		}
+		this.tickNanos = tickNanos;
+		this.origin = now;
+	}
+
+	/**
+	 * Schedules the id to be handed out once the deadline has passed.
+	 * 
+	 * @param id
+	 *            the id.
+	 * @param deadline
+	 *            the deadline, in {@link System#nanoTime()} terms.
+	 */
+	public void schedule(int id, long deadline) {
+		long current = cursor;
+		// round up, so that the id never comes out before its deadline
+		long tick = Math.floorDiv(deadline - origin + tickNanos - 1, tickNanos);
+		tick = Math.max(current + 1, Math.min(tick, current + buckets.length));
+		AtomicLongArray bucket = buckets[(int) (tick % buckets.length)];
+		long bit = 1L << id;
+		if ((bucket.get(id >>> 6) & bit) == 0) {
+			bucket.getAndAccumulate(id >>> 6, bit, (word, b) -> word | b);
+		}
+	}
+
+	/**
+	 * Hands out the ids of all the ticks that have passed since the last call.
+	 * 
+	 * @param now
+	 *            the current time, in {@link System#nanoTime()} terms.
+	 * @param expired
+	 *            called with every id due.
+	 */
+	public void advance(long now, IntConsumer expired) {
+		long target = Math.floorDiv(now - origin, tickNanos);
+		if (target <= cursor) {
+			return;
+		}
+		// a bucket only needs to be drained once however late we are
+		long from = Math.max(cursor + 1, target - buckets.length + 1);
+		// moved first, so that ids scheduled while draining land after target
+		cursor = target;
+		for (long tick = from; tick <= target; tick++) {
+			AtomicLongArray bucket = buckets[(int) (tick % buckets.length)];
+			for (int w = 0; w < bucket.length(); w++) {
+				long word = (bucket.get(w) != 0) ? bucket.getAndSet(w, 0) : 0;
+				while (word != 0) {
+					int bit = Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					expired.accept((w << 6) + bit);
+				}
+			}
+		}
+	}
+}
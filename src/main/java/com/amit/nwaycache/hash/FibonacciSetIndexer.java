@@ -0,0 +1,34 @@
+package com.amit.nwaycache.hash;
+
+/**
+ * Fibonacci (multiplicative) hashing: the hash code is multiplied by
+ * 2<sup>32</sup> / &phi; and the high bits of the product pick the set. A
+ * single multiplication spreads sequential ids and strided keys evenly over the
+ * sets, but hash codes that differ only in their high bits still collide.
+ * 
+ * @author Amit
+ *
+ */
+public class FibonacciSetIndexer extends MixingSetIndexer {
+
+	/**
+	 * 2<sup>32</sup> divided by the golden ratio, rounded to odd.
+	 */
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+	/**
+	 * @param numSets
+	 *            number of sets of the cache.
+	 */
+	public FibonacciSetIndexer(int numSets) {
+		super(numSets);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int mix(int hash) {
+		return hash * GOLDEN_RATIO;
+	}
+}
@@ -0,0 +1,42 @@
+package com.amit.nwaycache.hash;
+
+/**
+ * Base class of the indexers that scramble the hash code before picking the
+ * set. The scrambled hash is reduced to a set with a multiply and a shift
+ * (<code>(mixed * numSets) &gt;&gt;&gt; 32</code>, unsigned), which uses the
+ * well mixed high bits, costs no division and, for a power of two number of
+ * sets, is simply the top bits of the mixed hash.
+ * 
+ * @author Amit
+ *
+ */
+public abstract class MixingSetIndexer implements SetIndexer {
+
+	private final long numSets;
+
+	/**
+	 * @param numSets
+	 *            number of sets of the cache.
+	 */
+	protected MixingSetIndexer(int numSets) {
+		this.numSets = numSets;
+	}
+
+	/**
+	 * Scrambles the hash code so that every bit of it affects the high bits of
+	 * the result.
+	 * 
+	 * @param hash
+	 *            the hash code.
+	 * @return the scrambled hash.
+	 */
+	protected abstract int mix(int hash);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int setOf(int hash) {
+		return (int) (((mix(hash) & 0xFFFFFFFFL) * numSets) >>> 32);
+	}
+}
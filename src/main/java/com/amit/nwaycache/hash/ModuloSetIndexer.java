@@ -0,0 +1,45 @@
+package com.amit.nwaycache.hash;
+
+/**
+ * The default indexer: the hash code modulo the number of sets, so keys with
+ * consecutive hash codes fill consecutive sets. Negative hash codes are mapped
+ * with {@link Math#floorMod(int, int)}. When the number of sets is a power of
+ * two the modulo is replaced by a mask of the low bits.
+ * <p>
+ * The hash code is used as is: hash codes that differ only in their high bits,
+ * or are all multiples of the same power of two, end up in the same few sets.
+ * Use {@link FibonacciSetIndexer} or {@link MurmurSetIndexer} for such keys.
+ * 
+ * @author Amit
+ *
+ */
+public class ModuloSetIndexer implements SetIndexer {
+
+	private final int numSets;
+
+	/**
+	 * <code>numSets - 1</code> if the number of sets is a power of two, -1
+	 * otherwise.
+	 */
+	private final int mask;
+
+	/**
+	 * @param numSets
+	 *            number of sets of the cache.
+	 */
+	public ModuloSetIndexer(int numSets) {
+		this.numSets = numSets;
+		this.mask = (Integer.bitCount(numSets) == 1) ? numSets - 1 : -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int setOf(int hash) {
+		if (mask != -1) {
+			return hash & mask;
+		}
+		return Math.floorMod(hash, numSets);
+	}
+}
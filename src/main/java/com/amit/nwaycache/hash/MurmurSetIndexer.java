@@ -0,0 +1,33 @@
+package com.amit.nwaycache.hash;
+
+/**
+ * Scrambles the hash code with the 32 bit finalizer of MurmurHash3, so that
+ * every input bit affects every output bit. Costs two multiplications and three
+ * shifts more than the modulo, and fixes even the poorest hash codes.
+ * 
+ * @author Amit
+ *
+ */
+public class MurmurSetIndexer extends MixingSetIndexer {
+
+	/**
+	 * @param numSets
+	 *            number of sets of the cache.
+	 */
+	public MurmurSetIndexer(int numSets) {
+		super(numSets);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
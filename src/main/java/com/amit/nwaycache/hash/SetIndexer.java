@@ -0,0 +1,28 @@
+package com.amit.nwaycache.hash;
+
+/**
+ * SetIndexer maps the hash code of a key to the set the key is stored in. The
+ * cache creates one instance per cache through a constructor taking the number
+ * of sets, <code>(int numSets)</code>, so an implementation can precompute
+ * whatever it needs for the reduction.
+ * <p>
+ * How well the indexer spreads the hash codes decides how evenly the sets are
+ * used: hash codes that cluster into a few sets make those sets thrash while
+ * the others stay empty.
+ * 
+ * @author Amit
+ *
+ */
+public interface SetIndexer {
+
+	/**
+	 * Returns the set of the given hash code.
+	 * 
+	 * @param hash
+	 *            hash code of the key, any <code>int</code> including negative
+	 *            ones.
+	 * @return the set number, from 0 (inclusive) to the number of sets
+	 *         (exclusive).
+	 */
+	public int setOf(int hash);
+}
@@ -0,0 +1,133 @@
+package com.amit.nwaycache.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The latency histograms of one cache instance: per operation latency, lock
+ * wait time, eviction policy time and probe length. A cache that does not
+ * record metrics has no instance of this class at all, so the only cost left on
+ * its hot paths is a null check.
+ * 
+ * @author Amit
+ *
+ */
+public class CacheMetrics implements CacheMetricsMXBean {
+
+	private final LatencyHistogram getLatency = new LatencyHistogram();
+	private final LatencyHistogram putLatency = new LatencyHistogram();
+	private final LatencyHistogram removeLatency = new LatencyHistogram();
+	private final LatencyHistogram lockWait = new LatencyHistogram();
+	private final LatencyHistogram evictLatency = new LatencyHistogram();
+	private final LatencyHistogram probeLength = new LatencyHistogram();
+
+	private ObjectName objectName;
+
+	/**
+	 * @param nanos  duration of the get.
+	 * @param probes slots examined by the lookup.
+	 */
+	public void recordGet(long nanos, int probes) {
+		getLatency.record(nanos);
+		probeLength.record(probes);
+	}
+
+	/**
+	 * @param nanos duration of the put.
+	 */
+	public void recordPut(long nanos) {
+		putLatency.record(nanos);
+	}
+
+	/**
+	 * @param nanos duration of the remove.
+	 */
+	public void recordRemove(long nanos) {
+		removeLatency.record(nanos);
+	}
+
+	/**
+	 * @param nanos time spent waiting for a lock.
+	 */
+	public void recordLockWait(long nanos) {
+		lockWait.record(nanos);
+	}
+
+	/**
+	 * @param nanos duration of the eviction policy call.
+	 */
+	public void recordEvict(long nanos) {
+		evictLatency.record(nanos);
+	}
+
+	/**
+	 * @return a copy of all the histograms.
+	 */
+	public MetricsSnapshot snapshot() {
+		return new MetricsSnapshot(getLatency.snapshot(), putLatency.snapshot(), removeLatency.snapshot(),
+				lockWait.snapshot(), evictLatency.snapshot(), probeLength.snapshot());
+	}
+
+	/**
+	 * Discards all the recorded values.
+	 */
+	public void reset() {
+		getLatency.reset();
+		putLatency.reset();
+		removeLatency.reset();
+		lockWait.reset();
+		evictLatency.reset();
+		probeLength.reset();
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server as
+	 * <tt>com.amit.nwaycache:type=CacheMetrics,name=&lt;name&gt;</tt>.
+	 * 
+	 * @param name the cache name.
+	 * @throws JMException if the name is invalid or already registered.
+	 */
+	public void register(String name) throws JMException {
+		objectName = MBeans.register(this, "CacheMetrics", name);
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if registered.
+	 * 
+	 * @throws JMException if the unregistration fails.
+	 */
+	public void unregister() throws JMException {
+		MBeans.unregister(objectName);
+		objectName = null;
+	}
+
+	@Override
+	public HistogramSnapshot getGetLatency() {
+		return getLatency.snapshot();
+	}
+
+	@Override
+	public HistogramSnapshot getPutLatency() {
+		return putLatency.snapshot();
+	}
+
+	@Override
+	public HistogramSnapshot getRemoveLatency() {
+		return removeLatency.snapshot();
+	}
+
+	@Override
+	public HistogramSnapshot getLockWait() {
+		return lockWait.snapshot();
+	}
+
+	@Override
+	public HistogramSnapshot getEvictLatency() {
+		return evictLatency.snapshot();
+	}
+
+	@Override
+	public HistogramSnapshot getProbeLength() {
+		return probeLength.snapshot();
+	}
+}
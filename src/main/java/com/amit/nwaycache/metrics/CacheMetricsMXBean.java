@@ -0,0 +1,41 @@
+package com.amit.nwaycache.metrics;
+
+/**
+ * JMX view of the {@link CacheMetrics} of a cache. Every attribute is a fresh
+ * {@link HistogramSnapshot}; latencies and lock waits are in nanoseconds.
+ * 
+ * @author Amit
+ *
+ */
+public interface CacheMetricsMXBean {
+
+	/**
+	 * @return latency of <code>get</code>.
+	 */
+	public HistogramSnapshot getGetLatency();
+
+	/**
+	 * @return latency of <code>put</code>.
+	 */
+	public HistogramSnapshot getPutLatency();
+
+	/**
+	 * @return latency of <code>remove</code>.
+	 */
+	public HistogramSnapshot getRemoveLatency();
+
+	/**
+	 * @return time spent waiting for a set lock.
+	 */
+	public HistogramSnapshot getLockWait();
+
+	/**
+	 * @return time spent in <code>EvictionPolicy.evict</code>.
+	 */
+	public HistogramSnapshot getEvictLatency();
+
+	/**
+	 * @return number of slots examined per lookup.
+	 */
+	public HistogramSnapshot getProbeLength();
+}
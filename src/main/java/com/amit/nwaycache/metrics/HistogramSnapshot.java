@@ -0,0 +1,118 @@
+package com.amit.nwaycache.metrics;
+
+/**
+ * An immutable copy of a {@link LatencyHistogram}. The getters make it usable
+ * as an MXBean attribute type, so the common percentiles show up in any JMX
+ * console.
+ * 
+ * @author Amit
+ *
+ */
+public class HistogramSnapshot {
+
+	/**
+	 * A snapshot with no values.
+	 */
+	static final HistogramSnapshot EMPTY = new HistogramSnapshot(new long[LatencyHistogram.BUCKETS], 0, 0);
+
+	private final long[] counts;
+
+	private final long count;
+
+	private final long sum;
+
+	private final long max;
+
+	HistogramSnapshot(long[] counts, long sum, long max) {
+		this.counts = counts;
+		long total = 0;
+		for (long c : counts) {
+			total += c;
+		}
+		this.count = total;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * @return the number of recorded values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the largest recorded value, or 0 if there is none.
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @return the mean of the recorded values, or 0 if there is none.
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of the recorded values
+	 * fall, to the precision of the histogram buckets.
+	 * 
+	 * @param percentile the percentile, between 0 and 100.
+	 * @return the value at the percentile, or 0 if there is none.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(LatencyHistogram.highestValueOf(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @return the median.
+	 */
+	public long getP50() {
+		return getValueAtPercentile(50);
+	}
+
+	/**
+	 * @return the 90th percentile.
+	 */
+	public long getP90() {
+		return getValueAtPercentile(90);
+	}
+
+	/**
+	 * @return the 99th percentile.
+	 */
+	public long getP99() {
+		return getValueAtPercentile(99);
+	}
+
+	/**
+	 * @return the 99.9th percentile.
+	 */
+	public long getP999() {
+		return getValueAtPercentile(99.9);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("[count=%s, mean=%.1f, p50=%s, p90=%s, p99=%s, p999=%s, max=%s]", count, getMean(),
+				getP50(), getP90(), getP99(), getP999(), max);
+	}
+}
@@ -0,0 +1,104 @@
+package com.amit.nwaycache.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent log-linear histogram of non-negative <code>long</code> values,
+ * in the style of HdrHistogram. Values below 64 are counted exactly; above
+ * that every power of two range is split into 32 linear buckets, so a value is
+ * reported with a relative error of at most 1/32 (about 3%) over the whole
+ * <code>long</code> range, with a fixed footprint of 1888 counters.
+ * <p>
+ * Recording is a bucket index computation and one atomic add, with no locking
+ * and no allocation.
+ * 
+ * @author Amit
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * log2 of the number of linear buckets per power of two.
+	 */
+	static final int SUB_BUCKET_BITS = 5;
+
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Number of buckets needed to cover every positive <code>long</code>.
+	 */
+	static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder sum = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records one value. Negative values are recorded as 0.
+	 * 
+	 * @param value the value, e.g. a duration in nanoseconds.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucketOf(value));
+		sum.add(value);
+		if (value > max.get()) {
+			max.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	/**
+	 * Takes a copy of the histogram. Values recorded while the copy is made may
+	 * or may not be included.
+	 * 
+	 * @return the snapshot.
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = counts.get(i);
+		}
+		return new HistogramSnapshot(copy, sum.sum(), max.get());
+	}
+
+	/**
+	 * Discards all the recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * @return the bucket the value is counted in.
+	 */
+	static int bucketOf(long value) {
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent < SUB_BUCKET_BITS) {
+			return (int) value;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * @return the largest value counted in the bucket.
+	 */
+	static long highestValueOf(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,51 @@
+package com.amit.nwaycache.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registration of the metrics MBeans with the platform MBean server.
+ * 
+ * @author Amit
+ *
+ */
+final class MBeans {
+
+	/**
+	 * JMX domain the metrics are registered under.
+	 */
+	static final String JMX_DOMAIN = "com.amit.nwaycache";
+
+	private MBeans() {
+	}
+
+	/**
+	 * Registers the bean as
+	 * <tt>com.amit.nwaycache:type=&lt;type&gt;,name=&lt;name&gt;</tt>.
+	 * 
+	 * @return the name the bean is registered under.
+	 * @throws JMException if the name is invalid or already registered.
+	 */
+	static ObjectName register(Object bean, String type, String name) throws JMException {
+		ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+		return objectName;
+	}
+
+	/**
+	 * Unregisters the bean of the given name, if it is registered.
+	 * 
+	 * @throws JMException if the unregistration fails.
+	 */
+	static void unregister(ObjectName objectName) throws JMException {
+		if (objectName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package com.amit.nwaycache.metrics;
+
+/**
+ * A copy of all the {@link CacheMetrics} of a cache, taken at one point in
+ * time. Latencies and lock waits are in nanoseconds.
+ * 
+ * @author Amit
+ *
+ */
+public class MetricsSnapshot {
+
+	/**
+	 * The snapshot of a cache that does not record metrics.
+	 */
+	public static final MetricsSnapshot EMPTY = new MetricsSnapshot(HistogramSnapshot.EMPTY,
+			HistogramSnapshot.EMPTY, HistogramSnapshot.EMPTY, HistogramSnapshot.EMPTY, HistogramSnapshot.EMPTY,
+			HistogramSnapshot.EMPTY);
+
+	private final HistogramSnapshot getLatency;
+	private final HistogramSnapshot putLatency;
+	private final HistogramSnapshot removeLatency;
+	private final HistogramSnapshot lockWait;
+	private final HistogramSnapshot evictLatency;
+	private final HistogramSnapshot probeLength;
+
+	MetricsSnapshot(HistogramSnapshot getLatency, HistogramSnapshot putLatency, HistogramSnapshot removeLatency,
+			HistogramSnapshot lockWait, HistogramSnapshot evictLatency, HistogramSnapshot probeLength) {
+		this.getLatency = getLatency;
+		this.putLatency = putLatency;
+		this.removeLatency = removeLatency;
+		this.lockWait = lockWait;
+		this.evictLatency = evictLatency;
+		this.probeLength = probeLength;
+	}
+
+	/**
+	 * @return the getLatency
+	 */
+	public HistogramSnapshot getGetLatency() {
+		return getLatency;
+	}
+
+	/**
+	 * @return the putLatency
+	 */
+	public HistogramSnapshot getPutLatency() {
+		return putLatency;
+	}
+
+	/**
+	 * @return the removeLatency
+	 */
+	public HistogramSnapshot getRemoveLatency() {
+		return removeLatency;
+	}
+
+	/**
+	 * @return the lockWait
+	 */
+	public HistogramSnapshot getLockWait() {
+		return lockWait;
+	}
+
+	/**
+	 * @return the evictLatency
+	 */
+	public HistogramSnapshot getEvictLatency() {
+		return evictLatency;
+	}
+
+	/**
+	 * @return the probeLength
+	 */
+	public HistogramSnapshot getProbeLength() {
+		return probeLength;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("Metrics [get=%s, put=%s, remove=%s, lockWait=%s, evict=%s, probeLength=%s]",
+				getLatency, putLatency, removeLatency, lockWait, evictLatency, probeLength);
+	}
+}
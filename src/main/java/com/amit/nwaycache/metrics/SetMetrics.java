@@ -0,0 +1,216 @@
+package com.amit.nwaycache.metrics;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per set counters of one cache instance: occupancy, evictions, misses and
+ * conflict misses. A skewed hash spread shows up as a few sets with most of
+ * the evictions and misses while other sets stay empty.
+ * <p>
+ * A miss is counted as a conflict miss when its hash is one of the last
+ * <code>cacheLines</code> hashes evicted from its set, i.e. the key would most
+ * likely still be cached had the set been larger. This is an estimate: it
+ * also counts capacity misses when every set is under pressure, and it misses
+ * keys whose hashes collide.
+ * <p>
+ * Occupancy, evictions and the ghost hashes are only written under the write
+ * lock of the set; misses are counted without it. Recording is a few array
+ * writes and, on a miss, a scan of the ghost hashes of one set.
+ * 
+ * @author Amit
+ *
+ */
+public class SetMetrics implements SetMetricsMXBean {
+
+	/**
+	 * Number of sets listed by {@link #getHottestSets()}.
+	 */
+	static final int HOTTEST = 10;
+
+	private final int numSets;
+
+	private final int cacheLines;
+
+	private final AtomicIntegerArray occupancy;
+
+	private final AtomicLongArray evictions;
+
+	private final AtomicLongArray misses;
+
+	private final AtomicLongArray conflictMisses;
+
+	/**
+	 * The hashes of the last evicted elements, <code>cacheLines</code> per set.
+	 */
+	private final int[] ghosts;
+
+	/**
+	 * Number of evictions recorded per set since the last clear, to tell the
+	 * used ghost entries from the empty ones.
+	 */
+	private final long[] ghostWrites;
+
+	private ObjectName objectName;
+
+	/**
+	 * @param numSets    number of sets of the cache.
+	 * @param cacheLines number of slots per set.
+	 */
+	public SetMetrics(int numSets, int cacheLines) {
+		this.numSets = numSets;
+		this.cacheLines = cacheLines;
+		this.occupancy = new AtomicIntegerArray(numSets);
+		this.evictions = new AtomicLongArray(numSets);
+		this.misses = new AtomicLongArray(numSets);
+		this.conflictMisses = new AtomicLongArray(numSets);
+		this.ghosts = new int[numSets * cacheLines];
+		this.ghostWrites = new long[numSets];
+	}
+
+	/**
+	 * Records an element stored in a free slot. The caller holds the write lock
+	 * of the set.
+	 */
+	public void recordInsert(int setNum) {
+		occupancy.set(setNum, occupancy.get(setNum) + 1);
+	}
+
+	/**
+	 * Records an element removed from the set. The caller holds the write lock
+	 * of the set.
+	 */
+	public void recordRemove(int setNum) {
+		occupancy.set(setNum, occupancy.get(setNum) - 1);
+	}
+
+	/**
+	 * Records the eviction of an element. The caller holds the write lock of
+	 * the set.
+	 * 
+	 * @param setNum      the set.
+	 * @param evictedHash the hash of the evicted key.
+	 */
+	public void recordEvict(int setNum, int evictedHash) {
+		evictions.set(setNum, evictions.get(setNum) + 1);
+		long writes = ghostWrites[setNum];
+		ghosts[setNum * cacheLines + (int) (writes % cacheLines)] = evictedHash;
+		ghostWrites[setNum] = writes + 1;
+	}
+
+	/**
+	 * Records a miss. May be called without the lock of the set.
+	 * 
+	 * @param setNum the set.
+	 * @param hash   the hash of the key that was not found.
+	 */
+	public void recordMiss(int setNum, int hash) {
+		misses.incrementAndGet(setNum);
+		int used = (int) Math.min(ghostWrites[setNum], cacheLines);
+		int base = setNum * cacheLines;
+		for (int i = 0; i < used; i++) {
+			if (ghosts[base + i] == hash) {
+				conflictMisses.incrementAndGet(setNum);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Forgets everything recorded. The caller holds the write locks of all the
+	 * sets.
+	 */
+	public void clear() {
+		for (int s = 0; s < numSets; s++) {
+			occupancy.set(s, 0);
+			evictions.set(s, 0);
+			misses.set(s, 0);
+			conflictMisses.set(s, 0);
+			ghostWrites[s] = 0;
+		}
+	}
+
+	/**
+	 * Copies the counters. Sets updated while the copy is made may or may not
+	 * include the update.
+	 * 
+	 * @return the snapshot.
+	 */
+	public SetMetricsSnapshot snapshot() {
+		int[] occ = new int[numSets];
+		long[] ev = new long[numSets];
+		long[] mi = new long[numSets];
+		long[] cm = new long[numSets];
+		for (int s = 0; s < numSets; s++) {
+			occ[s] = occupancy.get(s);
+			ev[s] = evictions.get(s);
+			mi[s] = misses.get(s);
+			cm[s] = conflictMisses.get(s);
+		}
+		return new SetMetricsSnapshot(cacheLines, occ, ev, mi, cm);
+	}
+
+	/**
+	 * Registers the counters with the platform MBean server as
+	 * <tt>com.amit.nwaycache:type=SetMetrics,name=&lt;name&gt;</tt>.
+	 * 
+	 * @param name the cache name.
+	 * @throws JMException if the name is invalid or already registered.
+	 */
+	public void register(String name) throws JMException {
+		objectName = MBeans.register(this, "SetMetrics", name);
+	}
+
+	/**
+	 * Removes the counters from the platform MBean server, if registered.
+	 * 
+	 * @throws JMException if the unregistration fails.
+	 */
+	public void unregister() throws JMException {
+		MBeans.unregister(objectName);
+		objectName = null;
+	}
+
+	@Override
+	public int getNumSets() {
+		return numSets;
+	}
+
+	@Override
+	public int getEmptySets() {
+		return snapshot().getEmptySets();
+	}
+
+	@Override
+	public int getFullSets() {
+		return snapshot().getFullSets();
+	}
+
+	@Override
+	public long getEvictions() {
+		return snapshot().getTotalEvictions();
+	}
+
+	@Override
+	public long getMisses() {
+		return snapshot().getTotalMisses();
+	}
+
+	@Override
+	public long getConflictMisses() {
+		return snapshot().getTotalConflictMisses();
+	}
+
+	@Override
+	public double getEvictionSkew() {
+		return snapshot().getEvictionSkew();
+	}
+
+	@Override
+	public int[] getHottestSets() {
+		return snapshot().getHottestSets(HOTTEST);
+	}
+}
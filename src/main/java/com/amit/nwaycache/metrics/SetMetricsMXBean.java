@@ -0,0 +1,51 @@
+package com.amit.nwaycache.metrics;
+
+/**
+ * JMX view of the {@link SetMetrics} of a cache.
+ * 
+ * @author Amit
+ *
+ */
+public interface SetMetricsMXBean {
+
+	/**
+	 * @return number of sets of the cache.
+	 */
+	public int getNumSets();
+
+	/**
+	 * @return number of sets holding no element.
+	 */
+	public int getEmptySets();
+
+	/**
+	 * @return number of sets with every slot used.
+	 */
+	public int getFullSets();
+
+	/**
+	 * @return evictions over all the sets.
+	 */
+	public long getEvictions();
+
+	/**
+	 * @return misses over all the sets.
+	 */
+	public long getMisses();
+
+	/**
+	 * @return estimated conflict misses over all the sets.
+	 */
+	public long getConflictMisses();
+
+	/**
+	 * @return evictions of the most evicting set divided by the mean evictions
+	 *         per set; 1 for a perfectly even spread.
+	 */
+	public double getEvictionSkew();
+
+	/**
+	 * @return the ten sets with the most evictions and misses, hottest first.
+	 */
+	public int[] getHottestSets();
+}
@@ -0,0 +1,169 @@
+package com.amit.nwaycache.metrics;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A copy of the {@link SetMetrics} of a cache, with the distribution and top-N
+ * summaries computed from it.
+ * 
+ * @author Amit
+ *
+ */
+public class SetMetricsSnapshot {
+
+	/**
+	 * The snapshot of a cache that does not record per set metrics.
+	 */
+	public static final SetMetricsSnapshot EMPTY = new SetMetricsSnapshot(0, new int[0], new long[0], new long[0],
+			new long[0]);
+
+	private final int cacheLines;
+	private final int[] occupancy;
+	private final long[] evictions;
+	private final long[] misses;
+	private final long[] conflictMisses;
+
+	SetMetricsSnapshot(int cacheLines, int[] occupancy, long[] evictions, long[] misses, long[] conflictMisses) {
+		this.cacheLines = cacheLines;
+		this.occupancy = occupancy;
+		this.evictions = evictions;
+		this.misses = misses;
+		this.conflictMisses = conflictMisses;
+	}
+
+	/**
+	 * @return the number of sets.
+	 */
+	public int getNumSets() {
+		return occupancy.length;
+	}
+
+	/**
+	 * @return the number of elements in the set.
+	 */
+	public int getOccupancy(int setNum) {
+		return occupancy[setNum];
+	}
+
+	/**
+	 * @return the number of evictions from the set.
+	 */
+	public long getEvictions(int setNum) {
+		return evictions[setNum];
+	}
+
+	/**
+	 * @return the number of misses of the set.
+	 */
+	public long getMisses(int setNum) {
+		return misses[setNum];
+	}
+
+	/**
+	 * @return the estimated number of conflict misses of the set.
+	 */
+	public long getConflictMisses(int setNum) {
+		return conflictMisses[setNum];
+	}
+
+	/**
+	 * @return the number of sets holding no element.
+	 */
+	public int getEmptySets() {
+		int empty = 0;
+		for (int occ : occupancy) {
+			if (occ == 0)
+				empty++;
+		}
+		return empty;
+	}
+
+	/**
+	 * @return the number of sets with every slot used.
+	 */
+	public int getFullSets() {
+		int full = 0;
+		for (int occ : occupancy) {
+			if (occ >= cacheLines)
+				full++;
+		}
+		return full;
+	}
+
+	/**
+	 * @return the number of sets with each occupancy, indexed 0 to
+	 *         <code>cacheLines</code>.
+	 */
+	public int[] getOccupancyHistogram() {
+		int[] histogram = new int[cacheLines + 1];
+		for (int occ : occupancy) {
+			histogram[Math.max(0, Math.min(occ, cacheLines))]++;
+		}
+		return histogram;
+	}
+
+	/**
+	 * @return evictions over all the sets.
+	 */
+	public long getTotalEvictions() {
+		return Arrays.stream(evictions).sum();
+	}
+
+	/**
+	 * @return misses over all the sets.
+	 */
+	public long getTotalMisses() {
+		return Arrays.stream(misses).sum();
+	}
+
+	/**
+	 * @return estimated conflict misses over all the sets.
+	 */
+	public long getTotalConflictMisses() {
+		return Arrays.stream(conflictMisses).sum();
+	}
+
+	/**
+	 * @return evictions of the most evicting set divided by the mean evictions
+	 *         per set; 1 for a perfectly even spread, 0 without evictions.
+	 */
+	public double getEvictionSkew() {
+		long total = getTotalEvictions();
+		if (total == 0) {
+			return 0;
+		}
+		long max = Arrays.stream(evictions).max().getAsLong();
+		return max / ((double) total / evictions.length);
+	}
+
+	/**
+	 * Returns the sets with the most evictions and misses.
+	 * 
+	 * @param n the number of sets to return.
+	 * @return up to <code>n</code> set numbers, hottest first; sets without any
+	 *         eviction or miss are left out.
+	 */
+	public int[] getHottestSets(int n) {
+		return IntStream.range(0, occupancy.length)
+				.filter(s -> evictions[s] + misses[s] > 0)
+				.boxed()
+				.sorted((a, b) -> Long.compare(evictions[b] + misses[b], evictions[a] + misses[a]))
+				.limit(n)
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"SetMetrics [sets=%s, emptySets=%s, fullSets=%s, evictions=%s, misses=%s, conflictMisses=%s, evictionSkew=%.2f, hottestSets=%s]",
+				getNumSets(), getEmptySets(), getFullSets(), getTotalEvictions(), getTotalMisses(),
+				getTotalConflictMisses(), getEvictionSkew(), Arrays.toString(getHottestSets(SetMetrics.HOTTEST)));
+	}
+}
@@ -0,0 +1,83 @@
+package com.amit.nwaycache.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * The per tier latencies of the gets of a two-tier cache, split by where the
+ * key was found: in the first tier, in the second tier, or in neither. Also
+ * counts the elements moved between the tiers.
+ *
+ * @author Amit
+ *
+ */
+public class TieredMetrics {
+
+	private final LatencyHistogram l1HitLatency = new LatencyHistogram();
+	private final LatencyHistogram l2HitLatency = new LatencyHistogram();
+	private final LatencyHistogram missLatency = new LatencyHistogram();
+	private final LongAdder promotions = new LongAdder();
+	private final LongAdder demotions = new LongAdder();
+	private final LongAdder demotionFailures = new LongAdder();
+
+	/**
+	 * @param nanos duration of a get that hit the first tier.
+	 */
+	public void recordL1Hit(long nanos) {
+		l1HitLatency.record(nanos);
+	}
+
+	/**
+	 * @param nanos duration of a get that hit the second tier, promotion
+	 *              included.
+	 */
+	public void recordL2Hit(long nanos) {
+		l2HitLatency.record(nanos);
+		promotions.increment();
+	}
+
+	/**
+	 * @param nanos duration of a get that missed both tiers.
+	 */
+	public void recordMiss(long nanos) {
+		missLatency.record(nanos);
+	}
+
+	/**
+	 * Counts an element moved down to the second tier.
+	 */
+	public void recordDemotion() {
+		demotions.increment();
+	}
+
+	/**
+	 * Counts an element dropped because the second tier could not store it.
+	 */
+	public void recordDemotionFailure() {
+		demotionFailures.increment();
+	}
+
+	/**
+	 * @param l1Stats the statistics of the first tier.
+	 * @param l2Stats the statistics of the second tier.
+	 * @return a copy of the histograms and counters, with the statistics of
+	 *         the tiers.
+	 */
+	public TieredMetricsSnapshot snapshot(Stats l1Stats, Stats l2Stats) {
+		return new TieredMetricsSnapshot(l1Stats, l2Stats, l1HitLatency.snapshot(), l2HitLatency.snapshot(),
+				missLatency.snapshot(), promotions.sum(), demotions.sum(), demotionFailures.sum());
+	}
+
+	/**
+	 * Discards all the recorded values.
+	 */
+	public void reset() {
+		l1HitLatency.reset();
+		l2HitLatency.reset();
+		missLatency.reset();
+		promotions.reset();
+		demotions.reset();
+		demotionFailures.reset();
+	}
+}
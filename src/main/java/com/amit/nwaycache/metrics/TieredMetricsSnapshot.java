@@ -0,0 +1,137 @@
+package com.amit.nwaycache.metrics;
+
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * A copy of the {@link TieredMetrics} of a two-tier cache and of the
+ * {@link Stats} of both tiers, taken at one point in time. Latencies are in
+ * nanoseconds.
+ * <p>
+ * Every get probes the first tier; only its misses probe the second one. The
+ * hit ratio of the second tier is therefore the share of the first tier misses
+ * it served.
+ *
+ * @author Amit
+ *
+ */
+public class TieredMetricsSnapshot {
+
+	private final Stats l1Stats;
+	private final Stats l2Stats;
+	private final HistogramSnapshot l1HitLatency;
+	private final HistogramSnapshot l2HitLatency;
+	private final HistogramSnapshot missLatency;
+	private final long promotions;
+	private final long demotions;
+	private final long demotionFailures;
+
+	TieredMetricsSnapshot(Stats l1Stats, Stats l2Stats, HistogramSnapshot l1HitLatency,
+			HistogramSnapshot l2HitLatency, HistogramSnapshot missLatency, long promotions, long demotions,
+			long demotionFailures) {
+		this.l1Stats = l1Stats;
+		this.l2Stats = l2Stats;
+		this.l1HitLatency = l1HitLatency;
+		this.l2HitLatency = l2HitLatency;
+		this.missLatency = missLatency;
+		this.promotions = promotions;
+		this.demotions = demotions;
+		this.demotionFailures = demotionFailures;
+	}
+
+	private static double ratio(long hits, long misses) {
+		long lookups = hits + misses;
+		return (lookups == 0) ? 0.0 : (double) hits / lookups;
+	}
+
+	/**
+	 * @return the share of the gets served by the first tier.
+	 */
+	public double getL1HitRatio() {
+		return ratio(l1Stats.getCacheHits(), l1Stats.getCacheMisses());
+	}
+
+	/**
+	 * @return the share of the first tier misses served by the second tier.
+	 */
+	public double getL2HitRatio() {
+		return ratio(l2Stats.getCacheHits(), l2Stats.getCacheMisses());
+	}
+
+	/**
+	 * @return the share of the gets served by either tier.
+	 */
+	public double getHitRatio() {
+		return ratio(l1Stats.getCacheHits() + l2Stats.getCacheHits(), l2Stats.getCacheMisses());
+	}
+
+	/**
+	 * @return the l1Stats
+	 */
+	public Stats getL1Stats() {
+		return l1Stats;
+	}
+
+	/**
+	 * @return the l2Stats
+	 */
+	public Stats getL2Stats() {
+		return l2Stats;
+	}
+
+	/**
+	 * @return the latency of the gets that hit the first tier.
+	 */
+	public HistogramSnapshot getL1HitLatency() {
+		return l1HitLatency;
+	}
+
+	/**
+	 * @return the latency of the gets that hit the second tier.
+	 */
+	public HistogramSnapshot getL2HitLatency() {
+		return l2HitLatency;
+	}
+
+	/**
+	 * @return the latency of the gets that missed both tiers.
+	 */
+	public HistogramSnapshot getMissLatency() {
+		return missLatency;
+	}
+
+	/**
+	 * @return the number of elements moved up to the first tier.
+	 */
+	public long getPromotions() {
+		return promotions;
+	}
+
+	/**
+	 * @return the number of elements moved down to the second tier.
+	 */
+	public long getDemotions() {
+		return demotions;
+	}
+
+	/**
+	 * @return the number of elements dropped because they did not fit in the
+	 *         second tier.
+	 */
+	public long getDemotionFailures() {
+		return demotionFailures;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"TieredMetrics [l1HitRatio=%.3f, l2HitRatio=%.3f, hitRatio=%.3f, l1Hit=%s, l2Hit=%s, miss=%s, "
+						+ "promotions=%d, demotions=%d, demotionFailures=%d]",
+				getL1HitRatio(), getL2HitRatio(), getHitRatio(), l1HitLatency, l2HitLatency, missLatency, promotions,
+				demotions, demotionFailures);
+	}
+}
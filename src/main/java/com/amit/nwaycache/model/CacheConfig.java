@@ -1,6 +1,9 @@
 package com.amit.nwaycache.model;
 
+import com.amit.nwaycache.admission.AdmissionPolicy;
+import com.amit.nwaycache.codec.Codec;
 import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.hash.SetIndexer;
 
 /**
  * The CacheConfig class keeps the configuration details of a instance of the
@@ -15,6 +18,35 @@ import com.amit.nwaycache.eviction.EvictionPolicy;
  * (cacheSize / cacheLines)
  * <li>evictionPolicy - The eviction or replacement policy to be used by the
  * cache. {@link EvictionPolicy}
+ * <li>admissionPolicy - The optional filter deciding whether a new key may
+ * replace the eviction victim. {@link AdmissionPolicy}
+ * <li>setIndexer - The function mapping a key hash code to its set.
+ * {@link SetIndexer}
+ * <li>lockStripes - Number of locks the sets are spread over. Defaults to 1,
+ * i.e. one lock for the whole cache.
+ * <li>storage - The storage engine holding the slots. {@link StorageType}
+ * <li>vectorLookup - Whether the {@link StorageType#ARRAYS} engine matches
+ * hashes with SIMD instructions.
+ * <li>slotBytes, keyCodec, valueCodec - Slot size and the key / value
+ * {@link Codec}s of the {@link StorageType#OFF_HEAP} engine.
+ * <li>mappedFile - The file holding the slots of the
+ * {@link StorageType#MAPPED} engine.
+ * <li>statsEnabled - Whether the cache records its {@link Stats}.
+ * <li>name - Name of the cache, used to register it with JMX.
+ * <li>metricsEnabled, metricsJmx - Whether the cache records latency
+ * histograms and whether they are published as an MBean.
+ * <li>setMetricsEnabled - Whether the cache records per set occupancy,
+ * eviction and miss counters.
+ * <li>expiryEnabled, expireAfterWriteNanos, expireAfterAccessNanos - Whether
+ * the elements can expire, and the default time-to-live and time-to-idle.
+ * <li>expiryClockTickNanos, sweepIntervalNanos - Resolution of the expiry
+ * clock and the interval of the background sweep of expired elements.
+ * <li>refreshAfterWriteNanos, refreshThreads, refreshQueueSize - Age at which
+ * a hit reloads an element in the background, and the bounds of the executor
+ * running the reloads.
+ * <li>writeBehindBatchSize, writeBehindFlushIntervalNanos - Number of changes
+ * per call to the backing store of a write-behind cache, and the time between
+ * the background flushes.
  * </ul>
  * 
  * @author Amit
@@ -42,6 +74,129 @@ public class CacheConfig {
 	 */
 	private EvictionPolicy evictionPolicy;
 
+	/**
+	 * The admission filter of new keys, or null to always admit.
+	 */
+	private AdmissionPolicy admissionPolicy;
+
+	/**
+	 * The class mapping hash codes to sets.
+	 */
+	private SetIndexer setIndexer;
+
+	/**
+	 * Number of locks guarding the sets. Set <code>s</code> is guarded by lock
+	 * <code>s % lockStripes</code>.
+	 */
+	private int lockStripes = 1;
+
+	/**
+	 * The storage engine holding the slots.
+	 */
+	private StorageType storage = StorageType.ELEMENTS;
+
+	/**
+	 * Whether a set is probed with the Vector API instead of a scalar loop.
+	 */
+	private boolean vectorLookup;
+
+	/**
+	 * Size of an off-heap slot in bytes, header included.
+	 */
+	private int slotBytes = 128;
+
+	/**
+	 * Codec of the keys of an off-heap cache.
+	 */
+	private Codec<?> keyCodec;
+
+	/**
+	 * Codec of the values of an off-heap cache.
+	 */
+	private Codec<?> valueCodec;
+
+	/**
+	 * File of the slots of a memory-mapped cache.
+	 */
+	private String mappedFile;
+
+	/**
+	 * Whether the cache records its statistics.
+	 */
+	private boolean statsEnabled = true;
+
+	/**
+	 * Name of the cache, or null for an anonymous cache.
+	 */
+	private String name;
+
+	/**
+	 * Whether the cache records latency histograms.
+	 */
+	private boolean metricsEnabled;
+
+	/**
+	 * Whether the latency histograms are registered with the platform MBean
+	 * server.
+	 */
+	private boolean metricsJmx;
+
+	/**
+	 * Whether the cache records per set counters.
+	 */
+	private boolean setMetricsEnabled;
+
+	/**
+	 * Whether the elements can expire.
+	 */
+	private boolean expiryEnabled;
+
+	/**
+	 * Default time-to-live of the elements, 0 for none.
+	 */
+	private long expireAfterWriteNanos;
+
+	/**
+	 * Default time-to-idle of the elements, 0 for none.
+	 */
+	private long expireAfterAccessNanos;
+
+	/**
+	 * Resolution of the clock the expiry is checked against.
+	 */
+	private long expiryClockTickNanos = 1_000_000L;
+
+	/**
+	 * Interval of the background sweep of expired elements, 0 for none.
+	 */
+	private long sweepIntervalNanos;
+
+	/**
+	 * Age of an element at which a hit reloads it in the background, 0 for
+	 * never.
+	 */
+	private long refreshAfterWriteNanos;
+
+	/**
+	 * Number of threads reloading elements in the background.
+	 */
+	private int refreshThreads = 1;
+
+	/**
+	 * Number of background reloads that can wait for a thread.
+	 */
+	private int refreshQueueSize = 1024;
+
+	/**
+	 * Number of changes per call to the backing store of a write-behind cache.
+	 */
+	private int writeBehindBatchSize = 100;
+
+	/**
+	 * Time between the flushes of a write-behind cache.
+	 */
+	private long writeBehindFlushIntervalNanos = 1_000_000_000L;
+
 	/**
 	 * @param cacheSize
 	 *            number of elements in the cache
@@ -103,6 +258,36 @@ public class CacheConfig {
 		this.evictionPolicy = evictionPolicy;
 	}
 
+	/**
+	 * @return the admissionPolicy
+	 */
+	public AdmissionPolicy getAdmissionPolicy() {
+		return admissionPolicy;
+	}
+
+	/**
+	 * @param admissionPolicy
+	 *            the admissionPolicy to set
+	 */
+	public void setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+		this.admissionPolicy = admissionPolicy;
+	}
+
+	/**
+	 * @return the setIndexer
+	 */
+	public SetIndexer getSetIndexer() {
+		return setIndexer;
+	}
+
+	/**
+	 * @param setIndexer
+	 *            the setIndexer to set
+	 */
+	public void setSetIndexer(SetIndexer setIndexer) {
+		this.setIndexer = setIndexer;
+	}
+
 	/**
 	 * @return the numSets
 	 */
@@ -117,4 +302,334 @@ public class CacheConfig {
 	public void setNumSets(int numSets) {
 		this.numSets = numSets;
 	}
+
+	/**
+	 * @return the lockStripes
+	 */
+	public int getLockStripes() {
+		return lockStripes;
+	}
+
+	/**
+	 * @param lockStripes
+	 *            the lockStripes to set
+	 */
+	public void setLockStripes(int lockStripes) {
+		this.lockStripes = lockStripes;
+	}
+
+	/**
+	 * @return the storage
+	 */
+	public StorageType getStorage() {
+		return storage;
+	}
+
+	/**
+	 * @param storage
+	 *            the storage to set
+	 */
+	public void setStorage(StorageType storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * @return the vectorLookup
+	 */
+	public boolean isVectorLookup() {
+		return vectorLookup;
+	}
+
+	/**
+	 * @param vectorLookup
+	 *            the vectorLookup to set
+	 */
+	public void setVectorLookup(boolean vectorLookup) {
+		this.vectorLookup = vectorLookup;
+	}
+
+	/**
+	 * @return the slotBytes
+	 */
+	public int getSlotBytes() {
+		return slotBytes;
+	}
+
+	/**
+	 * @param slotBytes
+	 *            the slotBytes to set
+	 */
+	public void setSlotBytes(int slotBytes) {
+		this.slotBytes = slotBytes;
+	}
+
+	/**
+	 * @return the keyCodec
+	 */
+	public Codec<?> getKeyCodec() {
+		return keyCodec;
+	}
+
+	/**
+	 * @param keyCodec
+	 *            the keyCodec to set
+	 */
+	public void setKeyCodec(Codec<?> keyCodec) {
+		this.keyCodec = keyCodec;
+	}
+
+	/**
+	 * @return the valueCodec
+	 */
+	public Codec<?> getValueCodec() {
+		return valueCodec;
+	}
+
+	/**
+	 * @param valueCodec
+	 *            the valueCodec to set
+	 */
+	public void setValueCodec(Codec<?> valueCodec) {
+		this.valueCodec = valueCodec;
+	}
+
+	/**
+	 * @return the mappedFile
+	 */
+	public String getMappedFile() {
+		return mappedFile;
+	}
+
+	/**
+	 * @param mappedFile
+	 *            the mappedFile to set
+	 */
+	public void setMappedFile(String mappedFile) {
+		this.mappedFile = mappedFile;
+	}
+
+	/**
+	 * @return the statsEnabled
+	 */
+	public boolean isStatsEnabled() {
+		return statsEnabled;
+	}
+
+	/**
+	 * @param statsEnabled
+	 *            the statsEnabled to set
+	 */
+	public void setStatsEnabled(boolean statsEnabled) {
+		this.statsEnabled = statsEnabled;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param name
+	 *            the name to set
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return the metricsEnabled
+	 */
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	/**
+	 * @param metricsEnabled
+	 *            the metricsEnabled to set
+	 */
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	/**
+	 * @return the metricsJmx
+	 */
+	public boolean isMetricsJmx() {
+		return metricsJmx;
+	}
+
+	/**
+	 * @param metricsJmx
+	 *            the metricsJmx to set
+	 */
+	public void setMetricsJmx(boolean metricsJmx) {
+		this.metricsJmx = metricsJmx;
+	}
+
+	/**
+	 * @return the setMetricsEnabled
+	 */
+	public boolean isSetMetricsEnabled() {
+		return setMetricsEnabled;
+	}
+
+	/**
+	 * @param setMetricsEnabled
+	 *            the setMetricsEnabled to set
+	 */
+	public void setSetMetricsEnabled(boolean setMetricsEnabled) {
+		this.setMetricsEnabled = setMetricsEnabled;
+	}
+
+	/**
+	 * @return the expiryEnabled
+	 */
+	public boolean isExpiryEnabled() {
+		return expiryEnabled;
+	}
+
+	/**
+	 * @param expiryEnabled
+	 *            the expiryEnabled to set
+	 */
+	public void setExpiryEnabled(boolean expiryEnabled) {
+		this.expiryEnabled = expiryEnabled;
+	}
+
+	/**
+	 * @return the expireAfterWriteNanos
+	 */
+	public long getExpireAfterWriteNanos() {
+		return expireAfterWriteNanos;
+	}
+
+	/**
+	 * @param expireAfterWriteNanos
+	 *            the expireAfterWriteNanos to set
+	 */
+	public void setExpireAfterWriteNanos(long expireAfterWriteNanos) {
+		this.expireAfterWriteNanos = expireAfterWriteNanos;
+	}
+
+	/**
+	 * @return the expireAfterAccessNanos
+	 */
+	public long getExpireAfterAccessNanos() {
+		return expireAfterAccessNanos;
+	}
+
+	/**
+	 * @param expireAfterAccessNanos
+	 *            the expireAfterAccessNanos to set
+	 */
+	public void setExpireAfterAccessNanos(long expireAfterAccessNanos) {
+		this.expireAfterAccessNanos = expireAfterAccessNanos;
+	}
+
+	/**
+	 * @return the expiryClockTickNanos
+	 */
+	public long getExpiryClockTickNanos() {
+		return expiryClockTickNanos;
+	}
+
+	/**
+	 * @param expiryClockTickNanos
+	 *            the expiryClockTickNanos to set
+	 */
+	public void setExpiryClockTickNanos(long expiryClockTickNanos) {
+		this.expiryClockTickNanos = expiryClockTickNanos;
+	}
+
+	/**
+	 * @return the sweepIntervalNanos
+	 */
+	public long getSweepIntervalNanos() {
+		return sweepIntervalNanos;
+	}
+
+	/**
+	 * @param sweepIntervalNanos
+	 *            the sweepIntervalNanos to set
+	 */
+	public void setSweepIntervalNanos(long sweepIntervalNanos) {
+		this.sweepIntervalNanos = sweepIntervalNanos;
+	}
+
+	/**
+	 * @return the refreshAfterWriteNanos
+	 */
+	public long getRefreshAfterWriteNanos() {
+		return refreshAfterWriteNanos;
+	}
+
+	/**
+	 * @param refreshAfterWriteNanos
+	 *            the refreshAfterWriteNanos to set
+	 */
+	public void setRefreshAfterWriteNanos(long refreshAfterWriteNanos) {
+		this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+	}
+
+	/**
+	 * @return the refreshThreads
+	 */
+	public int getRefreshThreads() {
+		return refreshThreads;
+	}
+
+	/**
+	 * @param refreshThreads
+	 *            the refreshThreads to set
+	 */
+	public void setRefreshThreads(int refreshThreads) {
+		this.refreshThreads = refreshThreads;
+	}
+
+	/**
+	 * @return the refreshQueueSize
+	 */
+	public int getRefreshQueueSize() {
+		return refreshQueueSize;
+	}
+
+	/**
+	 * @param refreshQueueSize
+	 *            the refreshQueueSize to set
+	 */
+	public void setRefreshQueueSize(int refreshQueueSize) {
+		this.refreshQueueSize = refreshQueueSize;
+	}
+
+	/**
+	 * @return the writeBehindBatchSize
+	 */
+	public int getWriteBehindBatchSize() {
+		return writeBehindBatchSize;
+	}
+
+	/**
+	 * @param writeBehindBatchSize
+	 *            the writeBehindBatchSize to set
+	 */
+	public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+		this.writeBehindBatchSize = writeBehindBatchSize;
+	}
+
+	/**
+	 * @return the writeBehindFlushIntervalNanos
+	 */
+	public long getWriteBehindFlushIntervalNanos() {
+		return writeBehindFlushIntervalNanos;
+	}
+
+	/**
+	 * @param writeBehindFlushIntervalNanos
+	 *            the writeBehindFlushIntervalNanos to set
+	 */
+	public void setWriteBehindFlushIntervalNanos(long writeBehindFlushIntervalNanos) {
+		this.writeBehindFlushIntervalNanos = writeBehindFlushIntervalNanos;
+	}
 }
@@ -1,20 +1,37 @@
 package com.amit.nwaycache.model;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class maintains the statistics of the cache instance. Statistics can
  * help in performance and accuracy measurement of the cache.
+ * <p>
+ * The counters are {@link LongAdder}s, which spread concurrent increments over
+ * several cells instead of having every thread hit the same cache line. A copy
+ * made with {@link #clone()} sums the cells without blocking the writers, so it
+ * is cheap but not an atomic view across counters. Statistics can also be
+ * switched off, in which case the increments do nothing.
  * 
  * @author Amit
  *
  */
 public class Stats implements Cloneable {
-	private AtomicLong cacheHits;
-	private AtomicLong cacheMisses;
-	private AtomicLong numEvictions;
-	private AtomicLong numUpdates;
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final LongAdder numEvictions = new LongAdder();
+	private final LongAdder numUpdates = new LongAdder();
+	private final LongAdder numRejections = new LongAdder();
+	private final LongAdder numExpirations = new LongAdder();
+	private final LongAdder numLoads = new LongAdder();
+	private final LongAdder numLoadFailures = new LongAdder();
+	private final LongAdder totalLoadTime = new LongAdder();
+	private final LongAdder numRefreshes = new LongAdder();
+	private final LongAdder numRefreshFailures = new LongAdder();
+	private final LongAdder totalRefreshTime = new LongAdder();
+	private final LongAdder numWrites = new LongAdder();
+	private final LongAdder numWriteFailures = new LongAdder();
 	private int size;
+	private final boolean enabled;
 
 	/**
 	 * @param cacheHits
@@ -25,39 +42,141 @@ public class Stats implements Cloneable {
 	 */
 	public Stats(long cacheHits, long cacheMisses, long numEvictions,
 			long numUpdates, int size) {
-		this.cacheHits = new AtomicLong(cacheHits);
-		this.cacheMisses = new AtomicLong(cacheMisses);
-		this.numEvictions = new AtomicLong(numEvictions);
-		this.numUpdates = new AtomicLong(numUpdates);
+		this(cacheHits, cacheMisses, numEvictions, numUpdates, size, true);
+	}
+
+	/**
+	 * @param cacheHits
+	 * @param cacheMisses
+	 * @param numEvictions
+	 * @param numUpdates
+	 * @param size
+	 * @param enabled
+	 *            false to make all increments no-ops.
+	 */
+	public Stats(long cacheHits, long cacheMisses, long numEvictions,
+			long numUpdates, int size, boolean enabled) {
+		this.cacheHits.add(cacheHits);
+		this.cacheMisses.add(cacheMisses);
+		this.numEvictions.add(numEvictions);
+		this.numUpdates.add(numUpdates);
 		this.size = size;
+		this.enabled = enabled;
 	}
 
 	/**
 	 * @return the cacheHits
 	 */
 	public long getCacheHits() {
-		return cacheHits.get();
+		return cacheHits.sum();
 	}
 
 	/**
 	 * @return the cacheMisses
 	 */
 	public long getCacheMisses() {
-		return cacheMisses.get();
+		return cacheMisses.sum();
 	}
 
 	/**
 	 * @return the numEvictions
 	 */
 	public long getNumEvictions() {
-		return numEvictions.get();
+		return numEvictions.sum();
 	}
 
 	/**
 	 * @return the numUpdates
 	 */
 	public long getNumUpdates() {
-		return numUpdates.get();
+		return numUpdates.sum();
+	}
+
+	/**
+	 * @return the number of puts rejected by the admission policy
+	 */
+	public long getNumRejections() {
+		return numRejections.sum();
+	}
+
+	/**
+	 * @return the number of expired elements reclaimed
+	 */
+	public long getNumExpirations() {
+		return numExpirations.sum();
+	}
+
+	/**
+	 * @return the number of values loaded successfully by a loader
+	 */
+	public long getNumLoads() {
+		return numLoads.sum();
+	}
+
+	/**
+	 * @return the number of loads that failed
+	 */
+	public long getNumLoadFailures() {
+		return numLoadFailures.sum();
+	}
+
+	/**
+	 * @return the total time spent loading values, in nanoseconds
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime.sum();
+	}
+
+	/**
+	 * @return the mean time of a load, successful or not, in nanoseconds
+	 */
+	public double getAverageLoadPenalty() {
+		long loads = numLoads.sum() + numLoadFailures.sum();
+		return (loads == 0) ? 0.0 : (double) totalLoadTime.sum() / loads;
+	}
+
+	/**
+	 * @return the number of elements reloaded in the background
+	 */
+	public long getNumRefreshes() {
+		return numRefreshes.sum();
+	}
+
+	/**
+	 * @return the number of background reloads that failed
+	 */
+	public long getNumRefreshFailures() {
+		return numRefreshFailures.sum();
+	}
+
+	/**
+	 * @return the total time spent reloading elements in the background, in nanoseconds
+	 */
+	public long getTotalRefreshTime() {
+		return totalRefreshTime.sum();
+	}
+
+	/**
+	 * @return the mean time of a background reload, successful or not, in
+	 *         nanoseconds
+	 */
+	public double getAverageRefreshPenalty() {
+		long refreshes = numRefreshes.sum() + numRefreshFailures.sum();
+		return (refreshes == 0) ? 0.0 : (double) totalRefreshTime.sum() / refreshes;
+	}
+
+	/**
+	 * @return the number of puts and removes written to the backing store
+	 */
+	public long getNumWrites() {
+		return numWrites.sum();
+	}
+
+	/**
+	 * @return the number of batches the backing store failed to write
+	 */
+	public long getNumWriteFailures() {
+		return numWriteFailures.sum();
 	}
 
 	/**
@@ -75,6 +194,13 @@ public class Stats implements Cloneable {
 		this.size = size;
 	}
 
+	/**
+	 * @return whether the statistics are recorded.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -82,43 +208,189 @@ public class Stats implements Cloneable {
 	 */
 	@Override
 	public String toString() {
-		return String
-				.format("Stats [cacheHits=%s, cacheMisses=%s, numEvictions=%s, numUpdates=%s, size=%s]",
-						cacheHits, cacheMisses, numEvictions, numUpdates, size);
+		return String.format("Stats [cacheHits=%s, cacheMisses=%s, numEvictions=%s, numUpdates=%s, "
+				+ "numRejections=%s, numExpirations=%s, numLoads=%s, numLoadFailures=%s, totalLoadTime=%s, "
+				+ "numRefreshes=%s, numRefreshFailures=%s, totalRefreshTime=%s, numWrites=%s, "
+				+ "numWriteFailures=%s, size=%s]",
+				cacheHits, cacheMisses, numEvictions, numUpdates, numRejections, numExpirations, numLoads,
+				numLoadFailures, totalLoadTime, numRefreshes, numRefreshFailures, totalRefreshTime, numWrites,
+				numWriteFailures, size);
 	}
 
 	/**
 	 * increments the numUpdates by one.
 	 */
 	public void incrementNumUpdates() {
-		numUpdates.incrementAndGet();
+		if (enabled)
+			numUpdates.increment();
 	}
 
 	/**
 	 * increments the numEvictions by one.
 	 */
 	public void incrementNumEvictions() {
-		numEvictions.incrementAndGet();
+		if (enabled)
+			numEvictions.increment();
 	}
 
 	/**
 	 * increments the cacheHits by one.
 	 */
 	public void incrementCacheHits() {
-		cacheHits.incrementAndGet();
+		if (enabled)
+			cacheHits.increment();
 	}
 
 	/**
 	 * increments the cacheMisses by one.
 	 */
 	public void incrementCacheMisses() {
-		cacheMisses.incrementAndGet();
+		if (enabled)
+			cacheMisses.increment();
+	}
+
+	/**
+	 * increments the numRejections by one.
+	 */
+	public void incrementNumRejections() {
+		if (enabled)
+			numRejections.increment();
+	}
+
+	/**
+	 * increments the numExpirations by one.
+	 */
+	public void incrementNumExpirations() {
+		if (enabled)
+			numExpirations.increment();
+	}
+
+	/**
+	 * adds the given count to numUpdates.
+	 */
+	public void addNumUpdates(long count) {
+		if (enabled)
+			numUpdates.add(count);
+	}
+
+	/**
+	 * adds the given count to numEvictions.
+	 */
+	public void addNumEvictions(long count) {
+		if (enabled)
+			numEvictions.add(count);
+	}
+
+	/**
+	 * adds the given count to cacheHits.
+	 */
+	public void addCacheHits(long count) {
+		if (enabled)
+			cacheHits.add(count);
+	}
+
+	/**
+	 * adds the given count to cacheMisses.
+	 */
+	public void addCacheMisses(long count) {
+		if (enabled)
+			cacheMisses.add(count);
+	}
+
+	/**
+	 * adds the given count to numRejections.
+	 */
+	public void addNumRejections(long count) {
+		if (enabled)
+			numRejections.add(count);
+	}
+
+	/**
+	 * increments the numLoads by one.
+	 */
+	public void incrementNumLoads() {
+		if (enabled)
+			numLoads.increment();
+	}
+
+	/**
+	 * increments the numLoadFailures by one.
+	 */
+	public void incrementNumLoadFailures() {
+		if (enabled)
+			numLoadFailures.increment();
+	}
+
+	/**
+	 * adds the given count to totalLoadTime.
+	 */
+	public void addTotalLoadTime(long count) {
+		if (enabled)
+			totalLoadTime.add(count);
+	}
+
+	/**
+	 * increments the numRefreshes by one.
+	 */
+	public void incrementNumRefreshes() {
+		if (enabled)
+			numRefreshes.increment();
+	}
+
+	/**
+	 * increments the numRefreshFailures by one.
+	 */
+	public void incrementNumRefreshFailures() {
+		if (enabled)
+			numRefreshFailures.increment();
+	}
+
+	/**
+	 * adds the given count to totalRefreshTime.
+	 */
+	public void addTotalRefreshTime(long count) {
+		if (enabled)
+			totalRefreshTime.add(count);
+	}
+
+	/**
+	 * increments the numWrites by one.
+	 */
+	public void incrementNumWrites() {
+		if (enabled)
+			numWrites.increment();
+	}
+
+	/**
+	 * adds the given count to numWrites.
+	 */
+	public void addNumWrites(long count) {
+		if (enabled)
+			numWrites.add(count);
+	}
+
+	/**
+	 * increments the numWriteFailures by one.
+	 */
+	public void incrementNumWriteFailures() {
+		if (enabled)
+			numWriteFailures.increment();
 	}
 
 	@Override
 	public Object clone() {
-		final Stats clone = new Stats(cacheHits.get(), cacheMisses.get(),
-				numEvictions.get(), numUpdates.get(), size);
+		final Stats clone = new Stats(cacheHits.sum(), cacheMisses.sum(),
+				numEvictions.sum(), numUpdates.sum(), size, enabled);
+		clone.numRejections.add(numRejections.sum());
+		clone.numExpirations.add(numExpirations.sum());
+		clone.numLoads.add(numLoads.sum());
+		clone.numLoadFailures.add(numLoadFailures.sum());
+		clone.totalLoadTime.add(totalLoadTime.sum());
+		clone.numRefreshes.add(numRefreshes.sum());
+		clone.numRefreshFailures.add(numRefreshFailures.sum());
+		clone.totalRefreshTime.add(totalRefreshTime.sum());
+		clone.numWrites.add(numWrites.sum());
+		clone.numWriteFailures.add(numWriteFailures.sum());
 		return clone;
 	}
 	
@@ -126,9 +398,19 @@ public class Stats implements Cloneable {
 	 * Clear all statistics
 	 */
 	public void clear() {
-		cacheHits.set(0);
-		cacheMisses.set(0);
-		numEvictions.set(0);
-		numUpdates.set(0);
+		cacheHits.reset();
+		cacheMisses.reset();
+		numEvictions.reset();
+		numUpdates.reset();
+		numRejections.reset();
+		numExpirations.reset();
+		numLoads.reset();
+		numLoadFailures.reset();
+		totalLoadTime.reset();
+		numRefreshes.reset();
+		numRefreshFailures.reset();
+		totalRefreshTime.reset();
+		numWrites.reset();
+		numWriteFailures.reset();
 	}
 }
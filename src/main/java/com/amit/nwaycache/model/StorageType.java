@@ -0,0 +1,33 @@
+package com.amit.nwaycache.model;
+
+/**
+ * The storage engines available to the cache.
+ * 
+ * @author Amit
+ *
+ */
+public enum StorageType {
+	/**
+	 * One array of {@link CacheElement} objects per set. This is the default.
+	 */
+	ELEMENTS,
+
+	/**
+	 * Structure-of-arrays layout: one contiguous array each for the hashes, keys
+	 * and values of all slots. No object is allocated per put.
+	 */
+	ARRAYS,
+
+	/**
+	 * Slots of a fixed size in direct byte buffers outside the Java heap. Keys
+	 * and values are stored in their encoded form.
+	 */
+	OFF_HEAP,
+
+	/**
+	 * The slots of {@link #OFF_HEAP} in a memory-mapped file instead of direct
+	 * buffers, so the operating system pages the cold sets out to disk and the
+	 * cache can be larger than the memory given to it.
+	 */
+	MAPPED
+}
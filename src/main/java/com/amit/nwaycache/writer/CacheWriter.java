@@ -0,0 +1,35 @@
+package com.amit.nwaycache.writer;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The backing store a write-behind cache writes its puts and removes to. The
+ * calls come in batches from a single thread at a time, in the order of the
+ * changes they carry: a key is never in both collections of a flush.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+public interface CacheWriter<K, V> {
+
+	/**
+	 * Stores the mappings.
+	 * 
+	 * @param entries the latest value of every key put since the last flush.
+	 * @throws Exception if the store fails; the mappings are written again by
+	 *                   a later flush.
+	 */
+	void write(Map<K, V> entries) throws Exception;
+
+	/**
+	 * Deletes the mappings of the keys.
+	 * 
+	 * @param keys the keys removed since the last flush.
+	 * @throws Exception if the store fails; the keys are deleted again by a
+	 *                   later flush.
+	 */
+	void delete(Collection<K> keys) throws Exception;
+}
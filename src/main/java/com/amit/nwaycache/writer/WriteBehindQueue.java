@@ -0,0 +1,270 @@
+package com.amit.nwaycache.writer;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * The changes of a write-behind cache that are not in the backing store yet.
+ * The changes are coalesced per key, only the latest put or remove of a key
+ * is kept, and handed to the {@link CacheWriter} in batches: by a background
+ * thread every flush interval, as soon as a batch is full, and for a single
+ * key when the cache is about to drop a dirty element.
+ * <p>
+ * All the writer calls are made under one lock, and a change is taken out of
+ * the queue under that lock as well, so a later change of a key always
+ * reaches the writer after an earlier one. A batch the writer fails on goes
+ * back into the queue, unless the key has changed again meanwhile.
+ * <p>
+ * A change stays visible to {@link #pending(Object)} until the writer has
+ * written it, so that a load of a key can be served its latest change instead
+ * of an older value from the backing store.
+ * 
+ * @author Amit
+ *
+ * @param <K> key class of the cache element.
+ * @param <V> value class of the cache element.
+ */
+public final class WriteBehindQueue<K, V> implements AutoCloseable {
+
+	/**
+	 * The pending change of a removed key.
+	 */
+	private static final Object DELETED = new Object();
+
+	/**
+	 * Latest pending change of every dirty key: its value or {@link #DELETED}.
+	 */
+	private final ConcurrentHashMap<K, Object> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * The changes taken out of {@link #pending} and being written.
+	 */
+	private final ConcurrentHashMap<K, Object> writing = new ConcurrentHashMap<>();
+
+	private final CacheWriter<K, V> writer;
+
+	private final int batchSize;
+
+	private final Stats stats;
+
+	/**
+	 * Serializes the writer calls.
+	 */
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	/**
+	 * Whether a flush of a full batch has been handed to the flusher already.
+	 */
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	private final ScheduledExecutorService flusher;
+
+	private volatile boolean closed;
+
+	/**
+	 * @param writer        the backing store.
+	 * @param batchSize     number of changes per writer call.
+	 * @param flushInterval time between the background flushes, in
+	 *                      nanoseconds.
+	 * @param stats         where the written and failed changes are counted.
+	 */
+	public WriteBehindQueue(CacheWriter<K, V> writer, int batchSize, long flushInterval, Stats stats) {
+		this.writer = writer;
+		this.batchSize = batchSize;
+		this.stats = stats;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "nwaycache-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Queues the put of a mapping.
+	 * 
+	 * @throws IllegalStateException if the queue is closed.
+	 */
+	public void write(K key, V value) {
+		enqueue(key, value);
+	}
+
+	/**
+	 * Queues the removal of a key.
+	 * 
+	 * @throws IllegalStateException if the queue is closed.
+	 */
+	public void delete(K key) {
+		enqueue(key, DELETED);
+	}
+
+	private void enqueue(K key, Object change) {
+		if (closed) {
+			throw new IllegalStateException("the write-behind queue is closed");
+		}
+		pending.put(key, change);
+		if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+			try {
+				flusher.execute(this::flush);
+			} catch (RejectedExecutionException e) {
+				// closed meanwhile: written here, close() may have flushed already
+				flush();
+			}
+		}
+	}
+
+	/**
+	 * Looks up the change of a key that the backing store does not have yet,
+	 * queued or being written.
+	 * 
+	 * @param key the key.
+	 * @return null if the key has no such change, else an entry with the value
+	 *         of the put or a null value for a removal.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map.Entry<K, V> pending(K key) {
+		Object change = pending.get(key);
+		if (change == null) {
+			// moved to writing before it leaves pending, so not missed in between
+			change = writing.get(key);
+		}
+		if (change == null) {
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<>(key, (change == DELETED) ? null : (V) change);
+	}
+
+	/**
+	 * @return the number of keys whose changes are not written yet.
+	 */
+	public int size() {
+		return pending.size();
+	}
+
+	/**
+	 * Writes the pending change of a key, if any, in the calling thread.
+	 * 
+	 * @param key the key about to be dropped from the cache.
+	 */
+	public void flush(K key) {
+		if (!pending.containsKey(key)) {
+			return;
+		}
+		flushLock.lock();
+		try {
+			Object change = pending.get(key);
+			if (change != null && take(key, change)) {
+				Map<K, Object> batch = new LinkedHashMap<>(2);
+				batch.put(key, change);
+				writeBatch(batch);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes all the pending changes, batch by batch. Stops at the first
+	 * batch the writer fails on; the rest waits for the next flush.
+	 */
+	public void flush() {
+		flushRequested.set(false);
+		flushLock.lock();
+		try {
+			while (!pending.isEmpty()) {
+				Map<K, Object> batch = new LinkedHashMap<>();
+				Iterator<Map.Entry<K, Object>> entries = pending.entrySet().iterator();
+				while (entries.hasNext() && batch.size() < batchSize) {
+					Map.Entry<K, Object> entry = entries.next();
+					if (take(entry.getKey(), entry.getValue())) {
+						batch.put(entry.getKey(), entry.getValue());
+					}
+				}
+				if (!writeBatch(batch)) {
+					return;
+				}
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Moves a change from the queue to the changes being written, unless the
+	 * key has changed again. The caller must hold the flush lock.
+	 * 
+	 * @return whether the change was taken.
+	 */
+	private boolean take(K key, Object change) {
+		writing.put(key, change);
+		if (pending.remove(key, change)) {
+			return true;
+		}
+		writing.remove(key, change);
+		return false;
+	}
+
+	/**
+	 * Hands a batch to the writer, putting it back into the queue if the
+	 * writer fails. The caller must hold the flush lock.
+	 * 
+	 * @return whether the writer succeeded.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean writeBatch(Map<K, Object> batch) {
+		Map<K, V> writes = new LinkedHashMap<>();
+		List<K> deletes = new ArrayList<>();
+		for (Map.Entry<K, Object> entry : batch.entrySet()) {
+			if (entry.getValue() == DELETED) {
+				deletes.add(entry.getKey());
+			} else {
+				writes.put(entry.getKey(), (V) entry.getValue());
+			}
+		}
+		try {
+			if (!writes.isEmpty()) {
+				writer.write(writes);
+			}
+			if (!deletes.isEmpty()) {
+				writer.delete(deletes);
+			}
+			stats.addNumWrites(batch.size());
+			for (Map.Entry<K, Object> entry : batch.entrySet()) {
+				writing.remove(entry.getKey(), entry.getValue());
+			}
+			return true;
+		} catch (Exception e) {
+			stats.incrementNumWriteFailures();
+			// a newer change of a key replaces the failed one
+			for (Map.Entry<K, Object> entry : batch.entrySet()) {
+				pending.putIfAbsent(entry.getKey(), entry.getValue());
+				writing.remove(entry.getKey(), entry.getValue());
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Stops the background flushes and writes what is still pending. Later
+	 * changes are refused.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		flusher.shutdownNow();
+		flush();
+	}
+}
@@ -0,0 +1,168 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+import com.amit.nwaycache.eviction.ARCPolicy;
+
+/**
+ * All the keys of these tests are multiples of 16, so they share set 0 of a
+ * cache of 4 sets of 4 ways.
+ * 
+ * @author Amit
+ *
+ */
+public class ARCPolicyTest {
+
+	private NWayCache<Integer, String> cache;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeEach
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "16");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.evictionPolicy.implClass", "com.amit.nwaycache.eviction.ARCPolicy");
+		cache = NWayCacheImpl.getCache(props);
+		// 0 and 16 are hit again and move to T2; 32 and 48 stay in T1
+		cache.put(0, "Zero");
+		cache.put(16, "Sixteen");
+		cache.get(0);
+		cache.get(16);
+		cache.put(32, "Thirty Two");
+		cache.put(48, "Forty Eight");
+	}
+
+	/**
+	 * Keys seen once are evicted before keys seen twice, however recent.
+	 */
+	@Test
+	public final void testScanDoesNotFlushFrequentKeys() {
+		for (int key = 64; key <= 96; key += 16) {
+			cache.put(key, "Scan");
+		}
+		assertNotNull(cache.get(0));
+		assertNotNull(cache.get(16));
+		assertNull(cache.get(32));
+		assertNull(cache.get(48));
+		assertNull(cache.get(64));
+	}
+
+	/**
+	 * A key coming back from the T1 ghost list grows the target of T1, after
+	 * which T2 gives up an element instead of T1.
+	 */
+	@Test
+	public final void testGhostHitAdaptsTarget() {
+		cache.put(64, "Sixty Four");
+		cache.put(80, "Eighty");
+		cache.put(96, "Ninety Six");
+		// 32 was evicted from T1 and is still in its ghost list
+		cache.put(32, "Thirty Two");
+		cache.put(112, "One Hundred Twelve");
+		// T1 holds one element, its new target: the oldest of T2 goes instead
+		assertNotNull(cache.get(96));
+		assertNull(cache.get(0));
+		assertNotNull(cache.get(16));
+		assertNotNull(cache.get(32));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.eviction.ARCPolicy#onRemove(int, int)}.
+	 */
+	@Test
+	public final void testRemovedSlotIsReused() {
+		cache.remove(16);
+		cache.put(64, "Sixty Four");
+		cache.put(80, "Eighty");
+		assertNotNull(cache.get(0));
+		assertNotNull(cache.get(64));
+		assertNull(cache.get(32));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.eviction.ARCPolicy#update(int, int)}: a hit
+	 * needs no lock, promotes an element of T1 and leaves a free slot free.
+	 */
+	@Test
+	public final void testHitWithoutLock() {
+		ARCPolicy policy = new ARCPolicy(1, 4);
+		assertFalse(policy.requiresLockedUpdate());
+		policy.onInsert(0, 0, 0);
+		policy.onInsert(0, 1, 16);
+		assertEquals(2, policy.t1Size(0));
+		policy.update(0, 0);
+		assertEquals(1, policy.t1Size(0));
+		assertEquals(1, policy.t2Size(0));
+		// a hit arriving after its slot was emptied
+		policy.onRemove(0, 1);
+		policy.update(0, 1);
+		assertEquals(0, policy.t1Size(0));
+		assertEquals(1, policy.t2Size(0));
+	}
+
+	/**
+	 * Hits racing with removes on the same set never put an empty slot back
+	 * in T1 or T2.
+	 */
+	@Test
+	public final void testConcurrentHitsKeepListsConsistent() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "8");
+		props.setProperty("cache.lineSize", "8");
+		props.setProperty("cache.evictionPolicy.implClass", "com.amit.nwaycache.eviction.ARCPolicy");
+		NWayCache<Integer, String> shared = NWayCacheImpl.getCache(props);
+		ARCPolicy policy = (ARCPolicy) shared.getCachePolicy();
+		AtomicBoolean running = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> readers = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				readers.add(executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (running.get()) {
+						shared.get(random.nextInt(8));
+					}
+				}));
+			}
+			long deadline = System.currentTimeMillis() + 500;
+			while (System.currentTimeMillis() < deadline) {
+				for (int key = 0; key < 8; key++) {
+					shared.put(key, "v");
+				}
+				for (int key = 0; key < 8; key++) {
+					shared.remove(key);
+				}
+				// the readers still hit away, but only on keys that are gone
+				assertEquals(0, policy.t1Size(0) + policy.t2Size(0));
+			}
+			running.set(false);
+			for (Future<?> reader : readers) {
+				reader.get();
+			}
+		} finally {
+			running.set(false);
+			executor.shutdown();
+		}
+	}
+}
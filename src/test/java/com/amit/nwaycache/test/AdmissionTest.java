@@ -0,0 +1,121 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.admission.CountMinSketch;
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * @author Amit
+ *
+ */
+public class AdmissionTest {
+
+	private static final int HOT_KEYS = 32;
+
+	/**
+	 * A working set accessed a few times per round, interleaved with a sweep of
+	 * keys that are never seen again. Plain LRU lets the sweep flush the hot
+	 * keys every round; with TinyLFU the sweep is not admitted.
+	 */
+	@Test
+	public final void testScanResistance() throws Exception {
+		int lruHits = hotHits(null);
+		int tinyLfuHits = hotHits("com.amit.nwaycache.admission.TinyLFUAdmission");
+		assertEquals(0, lruHits);
+		assertTrue(tinyLfuHits >= HOT_KEYS * 3 / 4, "TinyLFU hot hits: " + tinyLfuHits);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#put(Object, Object)}.
+	 */
+	@Test
+	public final void testRejectionCounted() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "8");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.admission.implClass", "com.amit.nwaycache.admission.TinyLFUAdmission");
+		NWayCache<Integer, Integer> cache = NWayCacheImpl.getCache(props);
+		for (int key = 0; key < 8; key += 2) {
+			cache.put(key, key);
+			cache.get(key);
+			cache.get(key);
+		}
+		// a key seen once can not take the place of a key seen three times
+		cache.put(100, 100);
+		assertEquals(null, cache.get(100));
+		assertEquals(1, cache.getStats().getNumRejections());
+		assertEquals(4, cache.getStats().getNumUpdates());
+		// once it is popular enough it gets in
+		cache.get(100);
+		cache.get(100);
+		cache.get(100);
+		cache.put(100, 100);
+		assertEquals(Integer.valueOf(100), cache.get(100));
+		assertEquals(1, cache.getStats().getNumEvictions());
+	}
+
+	/**
+	 * Test method for {@link CountMinSketch#increment(int)}.
+	 */
+	@Test
+	public final void testSketchAging() {
+		CountMinSketch sketch = new CountMinSketch(16);
+		for (int i = 0; i < 20; i++) {
+			sketch.increment(42);
+		}
+		// saturated at 15
+		assertEquals(15, sketch.frequency(42));
+		assertEquals(0, sketch.frequency(43));
+		// 160 increments age the sketch, halving every counter
+		for (int i = 0; i < 160; i++) {
+			sketch.increment(1000 + i);
+		}
+		assertTrue(sketch.frequency(42) <= 7, "aged frequency " + sketch.frequency(42));
+	}
+
+	/**
+	 * @return the hot keys found at the start of the last round.
+	 */
+	private static int hotHits(String admission) throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "64");
+		props.setProperty("cache.lineSize", "4");
+		if (admission != null) {
+			props.setProperty("cache.admission.implClass", admission);
+		}
+		NWayCache<Integer, Integer> cache = NWayCacheImpl.getCache(props);
+		int scanKey = 1000;
+		int hits = 0;
+		for (int round = 0; round < 50; round++) {
+			hits = 0;
+			for (int access = 0; access < 3; access++) {
+				for (int key = 0; key < HOT_KEYS; key++) {
+					// only the first access of a round shows what survived the sweep
+					if (getOrPut(cache, key) && access == 0) {
+						hits++;
+					}
+				}
+			}
+			for (int i = 0; i < 128; i++) {
+				getOrPut(cache, scanKey++);
+			}
+		}
+		return hits;
+	}
+
+	private static boolean getOrPut(NWayCache<Integer, Integer> cache, int key) {
+		if (cache.get(key) != null) {
+			return true;
+		}
+		cache.put(key, key);
+		return false;
+	}
+}
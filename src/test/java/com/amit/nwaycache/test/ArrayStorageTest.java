@@ -0,0 +1,131 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Tests the cache with the structure-of-arrays storage engine.
+ * 
+ * @author Amit
+ *
+ */
+public class ArrayStorageTest {
+
+	private NWayCache<Integer, String> cache;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeEach
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "16");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.storage", "arrays");
+		cache = NWayCacheImpl.getCache(props);
+		cache.put(0, "Zero");
+		cache.put(16, "Sixteen");
+		cache.put(32, "Thirty Two");
+		cache.put(48, "Forty Eight");
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterEach
+	public void tearDown() throws Exception {
+		cache.clear();
+		cache = null;
+	}
+
+	@Test
+	public final void testGetAndReplace() {
+		assertEquals("Sixteen", cache.get(16));
+		cache.put(16, "SIXTEEN");
+		assertEquals("SIXTEEN", cache.get(16));
+		assertNull(cache.get(64));
+	}
+
+	@Test
+	public final void testEvict() {
+		cache.get(0);
+		cache.put(64, "Sixty Four");
+		assertNotNull(cache.get(0));
+		// key 16 is the least recently used one
+		assertNull(cache.get(16));
+		assertEquals(1, cache.getStats().getNumEvictions());
+	}
+
+	/**
+	 * A put of a key that is already cached must replace it even when an empty
+	 * slot comes first in the set.
+	 */
+	@Test
+	public final void testReplaceAfterRemove() {
+		assertTrue(cache.remove(0));
+		cache.put(32, "THIRTY TWO");
+		assertTrue(cache.remove(32));
+		assertNull(cache.get(32));
+		assertFalse(cache.remove(32));
+	}
+
+	@Test
+	public final void testClear() {
+		cache.clear();
+		assertNull(cache.get(0));
+		assertNull(cache.get(48));
+	}
+
+	/**
+	 * Probes wide sets through the Vector API, including the slots past the last
+	 * whole vector of a set. Without the Vector API the configuration is
+	 * refused.
+	 */
+	@Test
+	public final void testVectorLookup() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "200");
+		props.setProperty("cache.lineSize", "20");
+		props.setProperty("cache.storage", "arrays");
+		props.setProperty("cache.lookup.vector", "true");
+		if (!vectorAvailable()) {
+			assertThrows(IllegalArgumentException.class, () -> NWayCacheImpl.getCache(props));
+			return;
+		}
+		NWayCache<Integer, String> wideCache = NWayCacheImpl.getCache(props);
+		for (int key = 0; key < 200; key++) {
+			wideCache.put(key, "v" + key);
+		}
+		for (int key = 0; key < 200; key++) {
+			assertEquals("v" + key, wideCache.get(key));
+		}
+		assertNull(wideCache.get(200));
+		assertEquals(0, wideCache.getStats().getNumEvictions());
+	}
+
+	/**
+	 * @return whether the build includes the vector engine (mvn -Pvector) and
+	 *         the JVM has the incubator module.
+	 */
+	private static boolean vectorAvailable() {
+		try {
+			Class.forName("com.amit.nwaycache.cache.VectorSlotStore");
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+		return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+	}
+}
@@ -0,0 +1,144 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.AsyncNWayCache;
+import com.amit.nwaycache.cache.CacheLoaderException;
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * @author Amit
+ *
+ */
+public class AsyncCacheTest {
+
+	private ExecutorService executor;
+
+	private AsyncNWayCache<String, String> cache;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "64");
+		props.setProperty("cache.lineSize", "4");
+		NWayCache<String, String> sync = NWayCacheImpl.getCache(props);
+		executor = Executors.newCachedThreadPool();
+		cache = new AsyncNWayCache<>(sync, executor);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.AsyncNWayCache#getOrLoadAsync(Object, com.amit.nwaycache.cache.CacheLoader)}.
+	 */
+	@Test
+	public final void testGetOrLoadAsync() throws Exception {
+		assertEquals(null, cache.getAsync("one").get());
+		CompletableFuture<String> loaded = cache.getOrLoadAsync("one", String::toUpperCase);
+		assertEquals("ONE", loaded.get());
+		CompletableFuture<String> hit = cache.getOrLoadAsync("one", key -> "other");
+		assertTrue(hit.isDone());
+		assertEquals("ONE", hit.get());
+		assertEquals("ONE", cache.synchronous().get("one"));
+		cache.putAsync("two", "TWO").get();
+		assertEquals("TWO", cache.getAsync("two").get());
+		assertTrue(cache.removeAsync("two").get());
+		assertEquals(1, cache.synchronous().getStats().getNumLoads());
+	}
+
+	/**
+	 * Asynchronous and synchronous misses on one key share the load.
+	 */
+	@Test
+	public final void testMissesShareOneFuture() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> first = cache.getOrLoadAsync("hot", key -> {
+			loads.incrementAndGet();
+			release.await();
+			return "value";
+		});
+		CompletableFuture<String> second = cache.getOrLoadAsync("hot", key -> {
+			loads.incrementAndGet();
+			return "other";
+		});
+		CompletableFuture<String> sync = CompletableFuture
+				.supplyAsync(() -> cache.synchronous().get("hot", key -> "sync"));
+		assertTrue(!first.isDone() && !second.isDone());
+		release.countDown();
+		assertEquals("value", first.get());
+		assertEquals("value", second.get());
+		assertEquals("value", sync.get());
+		assertEquals(1, loads.get());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.AsyncNWayCache#getOrLoadAsync(Object, com.amit.nwaycache.cache.CacheLoader)}.
+	 */
+	@Test
+	public final void testLoadFailure() throws Exception {
+		IOException failure = new IOException("backend down");
+		ExecutionException e = assertThrows(ExecutionException.class, () -> cache.getOrLoadAsync("one", key -> {
+			throw failure;
+		}).get());
+		assertTrue(e.getCause() instanceof CacheLoaderException);
+		assertSame(failure, e.getCause().getCause());
+		assertEquals(1, cache.synchronous().getStats().getNumLoadFailures());
+		// the failure is not remembered
+		assertEquals("ONE", cache.getOrLoadAsync("one", key -> "ONE").get());
+		executor.shutdown();
+		e = assertThrows(ExecutionException.class, () -> cache.getOrLoadAsync("two", key -> "TWO").get());
+		assertTrue(e.getCause() instanceof RejectedExecutionException);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.AsyncNWayCache#getAsync(Object)}: the
+	 * loader of the cache runs on the executor, not in the calling thread.
+	 */
+	@Test
+	public final void testGetAsyncLoadsOnExecutor() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "64");
+		props.setProperty("cache.lineSize", "4");
+		CountDownLatch release = new CountDownLatch(1);
+		Thread caller = Thread.currentThread();
+		NWayCache<String, String> sync = NWayCacheImpl.getCache(props, key -> {
+			assertTrue(Thread.currentThread() != caller);
+			release.await();
+			return key.toUpperCase();
+		});
+		AsyncNWayCache<String, String> loading = new AsyncNWayCache<>(sync, executor);
+		CompletableFuture<String> miss = loading.getAsync("one");
+		assertTrue(!miss.isDone());
+		release.countDown();
+		assertEquals("ONE", miss.get());
+		CompletableFuture<String> hit = loading.getAsync("one");
+		assertTrue(hit.isDone());
+		assertEquals("ONE", hit.get());
+		assertEquals(1, sync.getStats().getNumLoads());
+	}
+}
@@ -0,0 +1,90 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * Tests the bulk operations of the cache.
+ * 
+ * @author Amit
+ *
+ */
+public class BulkOperationsTest {
+
+	private NWayCache<Integer, String> cache;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeEach
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "256");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.lockStripes", "8");
+		cache = NWayCacheImpl.getCache(props);
+		Map<Integer, String> entries = new HashMap<>();
+		for (int key = 0; key < 200; key++) {
+			entries.put(key, "v" + key);
+		}
+		cache.putAll(entries);
+	}
+
+	@Test
+	public final void testPutAllAndGetAll() {
+		assertEquals(200, cache.getStats().getNumUpdates());
+		List<Integer> keys = new ArrayList<>();
+		for (int key = 150; key < 250; key++) {
+			keys.add(key);
+		}
+		Map<Integer, String> found = cache.getAll(keys);
+		assertEquals(50, found.size());
+		for (int key = 150; key < 200; key++) {
+			assertEquals("v" + key, found.get(key));
+		}
+		Stats stats = cache.getStats();
+		assertEquals(50, stats.getCacheHits());
+		assertEquals(50, stats.getCacheMisses());
+	}
+
+	@Test
+	public final void testPutAllEvicts() {
+		Map<Integer, String> entries = new HashMap<>();
+		// 8 more keys for set 0, which is already full
+		for (int key = 256; key < 256 + 8 * 64; key += 64) {
+			entries.put(key, "v" + key);
+		}
+		cache.putAll(entries);
+		assertEquals(8, cache.getStats().getNumEvictions());
+		assertNull(cache.get(0));
+	}
+
+	@Test
+	public final void testRemoveAll() {
+		assertEquals(3, cache.removeAll(Arrays.asList(1, 2, 3, 500)));
+		assertNull(cache.get(2));
+		assertEquals("v4", cache.get(4));
+	}
+
+	@Test
+	public final void testNullKey() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			cache.getAll(Arrays.asList(1, null));
+		});
+	}
+}
@@ -0,0 +1,165 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * @author Amit
+ *
+ */
+public class ExpiryTest {
+
+	private static NWayCache<Integer, String> newCache(String... props) throws Exception {
+		Properties cacheProps = new Properties();
+		cacheProps.setProperty("cache.size", "8");
+		cacheProps.setProperty("cache.lineSize", "4");
+		for (int i = 0; i < props.length; i += 2) {
+			cacheProps.setProperty(props[i], props[i + 1]);
+		}
+		return NWayCacheImpl.getCache(cacheProps);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#get(Object)}.
+	 */
+	@Test
+	public final void testExpireAfterWrite() throws Exception {
+		try (NWayCache<Integer, String> cache = newCache("cache.expireAfterWrite", "50")) {
+			cache.put(1, "One");
+			assertEquals("One", cache.get(1));
+			Thread.sleep(100);
+			assertNull(cache.get(1));
+			assertEquals(1, cache.getStats().getCacheMisses());
+			// an expired key is not there to be removed
+			assertFalse(cache.remove(1));
+			assertEquals(1, cache.getStats().getNumExpirations());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#get(Object)}.
+	 */
+	@Test
+	public final void testExpireAfterAccess() throws Exception {
+		try (NWayCache<Integer, String> cache = newCache("cache.expireAfterAccess", "200")) {
+			cache.put(1, "One");
+			cache.put(3, "Three");
+			for (int i = 0; i < 4; i++) {
+				Thread.sleep(80);
+				assertEquals("One", cache.get(1));
+			}
+			// 3 was idle all along, 1 was kept alive by the gets
+			assertNull(cache.get(3));
+			Thread.sleep(300);
+			assertNull(cache.get(1));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#put(Object, Object, long, long, TimeUnit)}.
+	 */
+	@Test
+	public final void testExpiredSlotReusedFirst() throws Exception {
+		try (NWayCache<Integer, String> cache = newCache("cache.expiry.enabled", "true")) {
+			// a full set of even keys, one of them short-lived
+			cache.put(0, "Zero");
+			cache.put(2, "Two", 50, 0, TimeUnit.MILLISECONDS);
+			cache.put(4, "Four");
+			cache.put(6, "Six");
+			Thread.sleep(100);
+			cache.put(8, "Eight");
+			// the expired slot took the new key, so nothing was evicted
+			assertEquals(0, cache.getStats().getNumEvictions());
+			assertEquals(1, cache.getStats().getNumExpirations());
+			for (int key : Arrays.asList(0, 4, 6, 8)) {
+				assertTrue(cache.get(key) != null, "key " + key);
+			}
+			assertNull(cache.get(2));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#put(Object, Object, long, long, TimeUnit)}.
+	 */
+	@Test
+	public final void testBackgroundSweep() throws Exception {
+		try (NWayCache<Integer, String> cache = newCache("cache.expireAfterWrite", "20",
+				"cache.expiry.sweepInterval", "10")) {
+			for (int key = 0; key < 8; key++) {
+				cache.put(key, "v" + key);
+			}
+			cache.put(100, "Hundred", 0, 0, TimeUnit.MILLISECONDS);
+			long deadline = System.currentTimeMillis() + 5000;
+			while (cache.getStats().getNumExpirations() < 7 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			// reclaimed without a single get or put touching the sets
+			assertEquals(7, cache.getStats().getNumExpirations());
+			assertEquals("Hundred", cache.get(100));
+		}
+	}
+
+	/**
+	 * All the caches tick on one clock thread and are swept on one sweeper
+	 * thread, and a closed cache leaves the others running.
+	 */
+	@Test
+	public final void testSharedClockAndSweeper() throws Exception {
+		List<NWayCache<Integer, String>> caches = new ArrayList<>();
+		try {
+			for (int i = 0; i < 4; i++) {
+				caches.add(newCache("cache.expireAfterWrite", "20", "cache.expiry.sweepInterval", "10"));
+			}
+			for (NWayCache<Integer, String> cache : caches) {
+				cache.put(1, "One");
+			}
+			assertTrue(threads("nwaycache-clock") <= 1);
+			assertTrue(threads("nwaycache-sweeper") <= 1);
+
+			caches.remove(0).close();
+			NWayCache<Integer, String> cache = caches.get(0);
+			long deadline = System.currentTimeMillis() + 5000;
+			while (cache.getStats().getNumExpirations() < 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, cache.getStats().getNumExpirations());
+		} finally {
+			for (NWayCache<Integer, String> cache : caches) {
+				cache.close();
+			}
+		}
+	}
+
+	private static long threads(String name) {
+		return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals(name)).count();
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#put(Object, Object, long, long, TimeUnit)}.
+	 */
+	@Test
+	public final void testExpiryDisabled() throws Exception {
+		try (NWayCache<Integer, String> cache = newCache()) {
+			assertThrows(IllegalStateException.class, () -> cache.put(1, "One", 1, 0, TimeUnit.SECONDS));
+		}
+	}
+}
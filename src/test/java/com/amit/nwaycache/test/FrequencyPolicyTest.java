@@ -0,0 +1,123 @@
+package com.amit.nwaycache.test;
+
+import static com.amit.nwaycache.test.PolicyTests.fullSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.eviction.ClockPolicy;
+import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.eviction.LFUPolicy;
+
+/**
+ * @author Amit
+ *
+ */
+public class FrequencyPolicyTest {
+
+	/**
+	 * Test method for {@link com.amit.nwaycache.eviction.LFUPolicy#evict(int)}.
+	 */
+	@Test
+	public final void testLFUEvict() throws Exception {
+		NWayCache<Integer, String> cache = fullSet(LFUPolicy.class);
+		cache.get(0);
+		cache.get(0);
+		cache.get(16);
+		cache.get(48);
+		cache.put(64, "Sixty Four");
+		// key 32 was used least often
+		assertNull(cache.get(32));
+		assertNotNull(cache.get(0));
+		assertNotNull(cache.get(16));
+		assertNotNull(cache.get(48));
+		assertNotNull(cache.get(64));
+	}
+
+	/**
+	 * Slot 0 was used a lot long ago, slot 1 a little less but recently. The
+	 * halving makes the old popularity count for less.
+	 */
+	@Test
+	public final void testLFUAging() {
+		EvictionPolicy policy = new LFUPolicy(1, 2);
+		for (int i = 0; i < 30; i++) {
+			policy.update(0, 0);
+		}
+		// the 32nd access of the set halves its counters: 30 -> 15, 2 -> 1
+		policy.update(0, 1);
+		policy.update(0, 1);
+		for (int i = 0; i < 20; i++) {
+			policy.update(0, 1);
+		}
+		assertEquals(0, policy.evict(0));
+	}
+
+	/**
+	 * Test method for {@link com.amit.nwaycache.eviction.ClockPolicy#evict(int)}.
+	 */
+	@Test
+	public final void testClockEvict() throws Exception {
+		NWayCache<Integer, String> cache = fullSet(ClockPolicy.class);
+		// every slot is referenced: the hand clears them all and takes slot 0
+		cache.put(64, "Sixty Four");
+		assertNull(cache.get(0));
+		// key 16 gets a second chance, key 32 does not
+		cache.get(16);
+		cache.put(80, "Eighty");
+		assertNotNull(cache.get(16));
+		assertNull(cache.get(32));
+		assertNotNull(cache.get(48));
+	}
+
+	/**
+	 * A key the admission policy turns down must not cost the elements the
+	 * hand would have passed their second chance.
+	 */
+	@Test
+	public final void testClockRejectedCandidate() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.admission.implClass", "com.amit.nwaycache.admission.TinyLFUAdmission");
+		NWayCache<Integer, String> cache = fullSet(ClockPolicy.class, props);
+		for (int key = 0; key < 64; key += 16) {
+			cache.get(key);
+			cache.get(key);
+		}
+		// seen once, so not admitted in place of slot 0
+		cache.put(64, "Sixty Four");
+		assertNull(cache.get(64));
+		assertEquals(1, cache.getStats().getNumRejections());
+		// every slot is still referenced: the hand clears them all and takes slot 0
+		cache.get(64);
+		cache.get(64);
+		cache.put(64, "Sixty Four");
+		assertNotNull(cache.get(64));
+		assertNull(cache.get(0));
+		assertNotNull(cache.get(16));
+		assertNotNull(cache.get(32));
+		assertNotNull(cache.get(48));
+	}
+
+	/**
+	 * Test method for {@link com.amit.nwaycache.eviction.ClockPolicy#evict(int)}.
+	 */
+	@Test
+	public final void testClockEvictIsPure() {
+		EvictionPolicy policy = new ClockPolicy(1, 4);
+		policy.update(0, 0);
+		policy.update(0, 1);
+		assertEquals(2, policy.evict(0));
+		assertEquals(2, policy.evict(0));
+		assertEquals(1L, policy.stateOf(0, 0));
+		policy.onEvict(0, 2, 0);
+		assertEquals(0L, policy.stateOf(0, 0));
+		assertEquals(0L, policy.stateOf(0, 1));
+		// the hand is past slot 2
+		assertEquals(3, policy.evict(0));
+	}
+}
@@ -6,6 +6,8 @@ package com.amit.nwaycache.test;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import java.util.Properties;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -70,4 +72,29 @@ public class LRUPolicyTest {
 		value = cache.get(16);
 		assertNull(value);
 	}
+
+	/**
+	 * Test method for {@link com.amit.nwaycache.eviction.LRUPolicy#evict(int)}
+	 * with {@link com.amit.nwaycache.eviction.RecencyClock#LOGICAL} stamps.
+	 */
+	@Test
+	public final void testEvictWithLogicalClock() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "16");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.evictionPolicy.clock", "logical");
+		NWayCache<Integer, String> logicalCache = NWayCacheImpl.getCache(props);
+		logicalCache.put(0, "Zero");
+		logicalCache.put(16, "Sixteen");
+		logicalCache.put(32, "Thirty Two");
+		logicalCache.put(48, "Forty Eight");
+		// back to back accesses must still be ordered exactly
+		logicalCache.get(16);
+		logicalCache.get(0);
+		logicalCache.put(64, "Sixty Four");
+		assertNotNull(logicalCache.get(0));
+		assertNotNull(logicalCache.get(16));
+		// key 32 must have got evicted
+		assertNull(logicalCache.get(32));
+	}
 }
@@ -0,0 +1,128 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.CacheLoaderException;
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * @author Amit
+ *
+ */
+public class LoaderTest {
+
+	private static NWayCache<String, String> newCache() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "64");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.lockStripes", "4");
+		return NWayCacheImpl.getCache(props);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#get(Object, com.amit.nwaycache.cache.CacheLoader)}.
+	 */
+	@Test
+	public final void testLoadOnMiss() throws Exception {
+		NWayCache<String, String> cache = newCache();
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals("ONE", cache.get("one", key -> {
+			loads.incrementAndGet();
+			return key.toUpperCase();
+		}));
+		assertEquals("ONE", cache.get("one", key -> {
+			loads.incrementAndGet();
+			return "other";
+		}));
+		assertEquals(1, loads.get());
+		assertEquals("ONE", cache.get("one"));
+		assertEquals(1, cache.getStats().getNumLoads());
+		assertTrue(cache.getStats().getTotalLoadTime() > 0);
+	}
+
+	/**
+	 * Concurrent misses on one key run the loader once.
+	 */
+	@Test
+	public final void testConcurrentMissesCoalesced() throws Exception {
+		NWayCache<String, String> cache = newCache();
+		int threads = 8;
+		AtomicInteger loads = new AtomicInteger();
+		CyclicBarrier start = new CyclicBarrier(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return cache.get("hot", key -> {
+						loads.incrementAndGet();
+						Thread.sleep(200);
+						return "value";
+					});
+				}));
+			}
+			for (Future<String> result : results) {
+				assertEquals("value", result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getStats().getNumLoads());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#get(Object, com.amit.nwaycache.cache.CacheLoader)}.
+	 */
+	@Test
+	public final void testLoadFailure() throws Exception {
+		NWayCache<String, String> cache = newCache();
+		IOException failure = new IOException("backend down");
+		CacheLoaderException e = assertThrows(CacheLoaderException.class, () -> cache.get("one", key -> {
+			throw failure;
+		}));
+		assertSame(failure, e.getCause());
+		IllegalStateException unchecked = new IllegalStateException();
+		assertSame(unchecked, assertThrows(IllegalStateException.class, () -> cache.get("one", key -> {
+			throw unchecked;
+		})));
+		assertNull(cache.get("one"));
+		assertEquals(2, cache.getStats().getNumLoadFailures());
+		// the failed load is not remembered
+		assertEquals("ONE", cache.get("one", key -> "ONE"));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCache#computeIfAbsent(Object, java.util.function.Function)}.
+	 */
+	@Test
+	public final void testComputeIfAbsent() throws Exception {
+		NWayCache<String, String> cache = newCache();
+		assertNull(cache.computeIfAbsent("one", key -> null));
+		assertNull(cache.get("one"));
+		assertEquals("ONE", cache.computeIfAbsent("one", String::toUpperCase));
+		assertEquals("ONE", cache.computeIfAbsent("one", key -> "other"));
+		assertEquals(2, cache.getStats().getNumLoads());
+	}
+}
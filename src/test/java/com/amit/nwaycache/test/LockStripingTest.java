@@ -0,0 +1,237 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+import com.amit.nwaycache.model.Stats;
+
+/**
+ * @author Amit
+ *
+ */
+public class LockStripingTest {
+
+	private static final int THREADS = 8;
+
+	private static final int KEYS_PER_THREAD = 128;
+
+	private NWayCache<Integer, String> cache;
+
+	private ExecutorService executor;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeEach
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "1024");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.lockStripes", "16");
+		cache = NWayCacheImpl.getCache(props);
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterEach
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		cache.clear();
+		cache = null;
+	}
+
+	/**
+	 * Every thread works on its own keys; 1024 keys spread evenly over 256 sets
+	 * of 4 slots, so nothing may be lost or evicted.
+	 */
+	@Test
+	public final void testConcurrentPutAndGet() throws Exception {
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			final int first = t * KEYS_PER_THREAD;
+			futures.add(executor.submit(() -> {
+				for (int key = first; key < first + KEYS_PER_THREAD; key++) {
+					cache.put(key, "v" + key);
+				}
+				for (int key = first; key < first + KEYS_PER_THREAD; key++) {
+					assertEquals("v" + key, cache.get(key));
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		Stats stats = cache.getStats();
+		assertEquals(THREADS * KEYS_PER_THREAD, stats.getCacheHits());
+		assertEquals(0, stats.getCacheMisses());
+	}
+
+	/**
+	 * With <tt>cache.stats.enabled=false</tt> the cache works as usual but no
+	 * counter moves.
+	 */
+	@Test
+	public final void testStatsDisabled() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "16");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.stats.enabled", "false");
+		NWayCache<Integer, String> quiet = NWayCacheImpl.getCache(props);
+		quiet.put(1, "one");
+		assertEquals("one", quiet.get(1));
+		assertEquals(null, quiet.get(2));
+		Stats stats = quiet.getStats();
+		assertEquals(false, stats.isEnabled());
+		assertEquals(0, stats.getCacheHits());
+		assertEquals(0, stats.getCacheMisses());
+		assertEquals(0, stats.getNumUpdates());
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#getCache(Properties)}.
+	 */
+	@Test
+	public final void testInvalidLockStripes() {
+		Properties props = new Properties();
+		props.setProperty("cache.lockStripes", "0");
+		assertThrows(IllegalArgumentException.class, () -> {
+			NWayCacheImpl.getCache(props);
+		});
+	}
+
+	/**
+	 * The reader is stopped in the middle of its optimistic scan, after it
+	 * matched the key and before it read the value, while the slot is given to
+	 * another key. The stamp no longer validates, so the scan is repeated under
+	 * the read lock and finds the key gone instead of returning the value of
+	 * the other key.
+	 */
+	@Test
+	public final void testOptimisticReadRetried() throws Exception {
+		for (String storage : new String[] { "elements", "arrays" }) {
+			Properties props = new Properties();
+			props.setProperty("cache.size", "4");
+			props.setProperty("cache.lineSize", "4");
+			props.setProperty("cache.storage", storage);
+			NWayCache<Probe, String> single = NWayCacheImpl.getCache(props);
+			for (int id = 0; id < 4; id++) {
+				single.put(new Probe(id), id + "/0");
+			}
+			CountDownLatch matched = new CountDownLatch(1);
+			CountDownLatch replaced = new CountDownLatch(1);
+			Probe probe = new Probe(2);
+			probe.onMatch = () -> {
+				matched.countDown();
+				try {
+					replaced.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			};
+			Future<String> read = executor.submit(() -> single.get(probe));
+			assertTrue(matched.await(10, TimeUnit.SECONDS));
+			single.remove(new Probe(2));
+			// takes the slot key 2 left free
+			single.put(new Probe(5), "5/0");
+			replaced.countDown();
+			assertNull(read.get(10, TimeUnit.SECONDS), storage);
+			assertEquals("5/0", single.get(new Probe(5)), storage);
+		}
+	}
+
+	/**
+	 * Writers keep replacing the keys of two small sets while a reader probes
+	 * them, so that optimistic scans keep failing validation. Every value
+	 * names the key it was stored under; the reader must never get the value
+	 * of another key, whole or in part.
+	 */
+	@Test
+	public final void testReadsRacingReplacements() throws Exception {
+		for (String storage : new String[] { "elements", "arrays" }) {
+			Properties props = new Properties();
+			props.setProperty("cache.size", "8");
+			props.setProperty("cache.lineSize", "4");
+			props.setProperty("cache.storage", storage);
+			NWayCache<Integer, String> small = NWayCacheImpl.getCache(props);
+			AtomicBoolean running = new AtomicBoolean(true);
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < 2; t++) {
+				final int writer = t;
+				writers.add(executor.submit(() -> {
+					for (int round = 0; running.get(); round++) {
+						for (int key = writer; key < 32; key += 2) {
+							small.put(key, key + "/" + round);
+						}
+					}
+				}));
+			}
+			try {
+				for (int i = 0; i < 200_000; i++) {
+					int key = i & 31;
+					String value = small.get(key);
+					if (value != null) {
+						assertEquals(Integer.toString(key), value.substring(0, value.indexOf('/')), storage);
+					}
+				}
+			} finally {
+				running.set(false);
+			}
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+		}
+	}
+
+	/**
+	 * A key that can hold up the thread comparing it with a stored key, once.
+	 */
+	private static final class Probe {
+
+		private final int id;
+
+		private volatile Runnable onMatch;
+
+		Probe(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Probe) || ((Probe) obj).id != id) {
+				return false;
+			}
+			Runnable hook = onMatch;
+			if (hook != null) {
+				onMatch = null;
+				hook.run();
+			}
+			return true;
+		}
+	}
+}
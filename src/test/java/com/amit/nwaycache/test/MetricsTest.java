@@ -0,0 +1,170 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+import com.amit.nwaycache.metrics.HistogramSnapshot;
+import com.amit.nwaycache.metrics.LatencyHistogram;
+import com.amit.nwaycache.metrics.MetricsSnapshot;
+import com.amit.nwaycache.metrics.SetMetricsSnapshot;
+
+/**
+ * @author Amit
+ *
+ */
+public class MetricsTest {
+
+	private static final String NAME = "metricsTest";
+
+	private NWayCache<Integer, String> cache;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeEach
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "8");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.name", NAME);
+		props.setProperty("cache.metrics.enabled", "true");
+		props.setProperty("cache.setMetrics.enabled", "true");
+		props.setProperty("cache.metrics.jmx", "true");
+		cache = NWayCacheImpl.getCache(props);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterEach
+	public void tearDown() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : server.queryNames(new ObjectName("com.amit.nwaycache:*"), null)) {
+			server.unregisterMBean(name);
+		}
+		cache = null;
+	}
+
+	/**
+	 * Every operation is recorded once; the ten puts into a set of four ways
+	 * evict six times.
+	 */
+	@Test
+	public final void testOperationsRecorded() {
+		for (int key = 0; key < 20; key += 2) {
+			cache.put(key, "v" + key);
+		}
+		cache.get(18);
+		cache.get(1);
+		cache.remove(18);
+		MetricsSnapshot metrics = cache.getMetrics();
+		assertEquals(10, metrics.getPutLatency().getCount());
+		assertEquals(2, metrics.getGetLatency().getCount());
+		assertEquals(1, metrics.getRemoveLatency().getCount());
+		assertEquals(6, metrics.getEvictLatency().getCount());
+		assertEquals(11, metrics.getLockWait().getCount());
+		// the miss scanned all four ways
+		assertEquals(4, metrics.getProbeLength().getMax());
+
+		cache.clear();
+		assertEquals(0, cache.getMetrics().getPutLatency().getCount());
+	}
+
+	/**
+	 * Even keys all land in set 0 of the two sets: it thrashes while set 1 stays
+	 * empty. A miss on a key evicted a moment ago is a conflict miss, a miss on a
+	 * key evicted long ago is not.
+	 */
+	@Test
+	public final void testSetMetrics() throws Exception {
+		for (int key = 0; key < 20; key += 2) {
+			cache.put(key, "v" + key);
+		}
+		assertEquals(null, cache.get(10));
+		assertEquals(null, cache.get(0));
+		assertEquals(null, cache.get(1));
+		cache.remove(18);
+		SetMetricsSnapshot sets = cache.getSetMetrics();
+		assertEquals(2, sets.getNumSets());
+		assertEquals(3, sets.getOccupancy(0));
+		assertEquals(0, sets.getOccupancy(1));
+		assertEquals(6, sets.getEvictions(0));
+		assertEquals(2, sets.getMisses(0));
+		assertEquals(1, sets.getConflictMisses(0));
+		assertEquals(0, sets.getConflictMisses(1));
+		assertEquals(1, sets.getEmptySets());
+		assertEquals(2.0, sets.getEvictionSkew(), 0.001);
+		assertEquals(0, sets.getHottestSets(1)[0]);
+
+		ObjectName name = new ObjectName("com.amit.nwaycache:type=SetMetrics,name=" + ObjectName.quote(NAME));
+		assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ConflictMisses"));
+
+		cache.clear();
+		assertEquals(0, cache.getSetMetrics().getTotalEvictions());
+	}
+
+	/**
+	 * Test method for {@link LatencyHistogram#snapshot()}.
+	 */
+	@Test
+	public final void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++) {
+			histogram.record(value);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(100000, snapshot.getCount());
+		assertEquals(100000, snapshot.getMax());
+		assertEquals(50000.5, snapshot.getMean(), 0.001);
+		assertWithin(50000, snapshot.getP50());
+		assertWithin(99000, snapshot.getP99());
+		assertWithin(99900, snapshot.getP999());
+		assertEquals(100000, snapshot.getValueAtPercentile(100));
+	}
+
+	/**
+	 * The histograms are readable through the platform MBean server.
+	 */
+	@Test
+	public final void testJmx() throws Exception {
+		cache.put(1, "one");
+		ObjectName name = new ObjectName("com.amit.nwaycache:type=CacheMetrics,name=" + ObjectName.quote(NAME));
+		CompositeData put = (CompositeData) ManagementFactory.getPlatformMBeanServer().getAttribute(name,
+				"PutLatency");
+		assertEquals(1L, put.get("count"));
+	}
+
+	/**
+	 * Without <tt>cache.metrics.enabled</tt> nothing is recorded.
+	 */
+	@Test
+	public final void testDisabled() throws Exception {
+		NWayCache<Integer, String> plain = NWayCacheImpl.getCache(new Properties());
+		plain.put(1, "one");
+		assertEquals(0, plain.getMetrics().getPutLatency().getCount());
+
+		Properties props = new Properties();
+		props.setProperty("cache.metrics.jmx", "true");
+		assertThrows(IllegalArgumentException.class, () -> {
+			NWayCacheImpl.getCache(props);
+		});
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(Math.abs(actual - expected) <= expected / 32, expected + " ~ " + actual);
+	}
+}
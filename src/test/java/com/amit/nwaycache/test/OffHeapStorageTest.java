@@ -0,0 +1,114 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Tests the cache with the off-heap storage engine.
+ * 
+ * @author Amit
+ *
+ */
+public class OffHeapStorageTest {
+
+	private NWayCache<String, String> cache;
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@BeforeEach
+	public void setUp() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "16");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.storage", "OFF_HEAP");
+		props.setProperty("cache.offHeap.slotBytes", "64");
+		props.setProperty("cache.offHeap.keyCodec", "com.amit.nwaycache.codec.StringCodec");
+		props.setProperty("cache.offHeap.valueCodec", "com.amit.nwaycache.codec.StringCodec");
+		cache = NWayCacheImpl.getCache(props);
+	}
+
+	/**
+	 * @throws java.lang.Exception
+	 */
+	@AfterEach
+	public void tearDown() throws Exception {
+		cache.clear();
+		cache = null;
+	}
+
+	@Test
+	public final void testPutGetRemove() {
+		cache.put("one", "One");
+		cache.put("two", "Two");
+		assertEquals("One", cache.get("one"));
+		cache.put("one", "ONE");
+		assertEquals("ONE", cache.get("one"));
+		assertTrue(cache.remove("one"));
+		assertNull(cache.get("one"));
+		assertEquals("Two", cache.get("two"));
+		// empty keys and values are valid entries
+		cache.put("", "");
+		assertEquals("", cache.get(""));
+	}
+
+	@Test
+	public final void testEvict() {
+		for (int i = 0; i < 100; i++) {
+			cache.put("key" + i, "value" + i);
+		}
+		// the most recent key of every set is still there
+		assertEquals("value99", cache.get("key99"));
+		assertTrue(cache.getStats().getNumEvictions() > 0);
+	}
+
+	@Test
+	public final void testEntryTooLarge() {
+		String large = "x".repeat(64);
+		assertThrows(IllegalArgumentException.class, () -> {
+			cache.put("large", large);
+		});
+		assertNull(cache.get("large"));
+		assertEquals(0, cache.getStats().getNumUpdates());
+	}
+
+	/**
+	 * An entry too large for a slot leaves a full cache as it was.
+	 */
+	@Test
+	public final void testEntryTooLargeEvictsNothing() {
+		for (int i = 0; i < 100; i++) {
+			cache.put("key" + i, "value" + i);
+		}
+		long evictions = cache.getStats().getNumEvictions();
+		assertThrows(IllegalArgumentException.class, () -> {
+			cache.put("large", "x".repeat(64));
+		});
+		assertEquals(evictions, cache.getStats().getNumEvictions());
+		int cached = 0;
+		for (int i = 0; i < 100; i++) {
+			cached += (cache.get("key" + i) != null) ? 1 : 0;
+		}
+		assertEquals(16, cached);
+	}
+
+	@Test
+	public final void testMissingCodec() {
+		Properties props = new Properties();
+		props.setProperty("cache.storage", "OFF_HEAP");
+		assertThrows(IllegalArgumentException.class, () -> {
+			NWayCacheImpl.getCache(props);
+		});
+	}
+}
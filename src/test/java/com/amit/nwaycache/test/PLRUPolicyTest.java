@@ -0,0 +1,86 @@
+package com.amit.nwaycache.test;
+
+import static com.amit.nwaycache.test.PolicyTests.fullSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.eviction.BitPLRUPolicy;
+import com.amit.nwaycache.eviction.EvictionPolicy;
+import com.amit.nwaycache.eviction.TreePLRUPolicy;
+
+/**
+ * @author Amit
+ *
+ */
+public class PLRUPolicyTest {
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.eviction.TreePLRUPolicy#evict(int)}.
+	 */
+	@Test
+	public final void testTreePLRUEvict() throws Exception {
+		NWayCache<Integer, String> cache = fullSet(TreePLRUPolicy.class);
+		// the tree points away from the last filled slot, to slot 0
+		cache.get(0);
+		// now the root points to the right half, where slot 2 is older
+		cache.put(64, "Sixty Four");
+		assertNotNull(cache.get(0));
+		assertNotNull(cache.get(16));
+		assertNull(cache.get(32));
+		assertNotNull(cache.get(48));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.eviction.BitPLRUPolicy#evict(int)}.
+	 */
+	@Test
+	public final void testBitPLRUEvict() throws Exception {
+		NWayCache<Integer, String> cache = fullSet(BitPLRUPolicy.class);
+		// filling slot 3 started a new round, then 0 is used in it
+		cache.get(0);
+		cache.put(64, "Sixty Four");
+		assertNotNull(cache.get(0));
+		assertNull(cache.get(16));
+	}
+
+	/**
+	 * With 6 ways the tree is built for 8, and the eviction must never pick one
+	 * of the two missing ways.
+	 */
+	@Test
+	public final void testTreePLRUWithOddWays() {
+		EvictionPolicy policy = new TreePLRUPolicy(1, 6);
+		for (int round = 0; round < 20; round++) {
+			int victim = policy.evict(0);
+			assertEquals(true, victim >= 0 && victim < 6, "victim " + victim);
+			policy.update(0, victim);
+		}
+		// touching every way but one leaves that one as the victim
+		for (int index : new int[] { 5, 0, 1, 2, 3 }) {
+			policy.update(0, index);
+		}
+		assertEquals(4, policy.evict(0));
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.eviction.TreePLRUPolicy#TreePLRUPolicy(int, int)}.
+	 */
+	@Test
+	public final void testTooManyWays() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new TreePLRUPolicy(1, 65);
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new BitPLRUPolicy(1, 65);
+		});
+		assertEquals(0, new BitPLRUPolicy(1, 64).evict(0));
+	}
+}
@@ -0,0 +1,41 @@
+package com.amit.nwaycache.test;
+
+import java.util.Properties;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * Caches shared by the tests of the eviction policies.
+ * 
+ * @author Amit
+ *
+ */
+final class PolicyTests {
+
+	private PolicyTests() {
+	}
+
+	/**
+	 * A cache of 4 sets of 4 ways with set 0 filled with keys 0, 16, 32 and 48.
+	 */
+	static NWayCache<Integer, String> fullSet(Class<?> policy) throws Exception {
+		return fullSet(policy, new Properties());
+	}
+
+	/**
+	 * A cache of 4 sets of 4 ways with set 0 filled with keys 0, 16, 32 and 48,
+	 * configured with further properties.
+	 */
+	static NWayCache<Integer, String> fullSet(Class<?> policy, Properties props) throws Exception {
+		props.setProperty("cache.size", "16");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.evictionPolicy.implClass", policy.getName());
+		NWayCache<Integer, String> cache = NWayCacheImpl.getCache(props);
+		cache.put(0, "Zero");
+		cache.put(16, "Sixteen");
+		cache.put(32, "Thirty Two");
+		cache.put(48, "Forty Eight");
+		return cache;
+	}
+}
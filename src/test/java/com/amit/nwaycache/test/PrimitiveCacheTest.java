@@ -0,0 +1,62 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.IntIntNWayCache;
+import com.amit.nwaycache.cache.LongObjectNWayCache;
+
+/**
+ * Tests the primitive key caches.
+ * 
+ * @author Amit
+ *
+ */
+public class PrimitiveCacheTest {
+
+	@Test
+	public final void testLongObjectCache() throws Exception {
+		LongObjectNWayCache<String> cache = LongObjectNWayCache.getCache();
+		cache.put(0L, "Zero");
+		cache.put(16L, "Sixteen");
+		cache.put(32L, "Thirty Two");
+		cache.put(48L, "Forty Eight");
+		assertEquals("Zero", cache.get(0L));
+		cache.put(64L, "Sixty Four");
+		// key 16 is the least recently used one
+		assertNull(cache.get(16L));
+		assertEquals("Sixty Four", cache.get(64L));
+		assertTrue(cache.remove(0L));
+		assertFalse(cache.remove(0L));
+		assertNull(cache.get(0L));
+		assertEquals(1, cache.getStats().getNumEvictions());
+		assertThrows(IllegalArgumentException.class, () -> {
+			cache.put(1L, null);
+		});
+	}
+
+	@Test
+	public final void testIntIntCache() throws Exception {
+		IntIntNWayCache cache = IntIntNWayCache.getCache();
+		cache.put(0, 100);
+		cache.put(16, 116);
+		cache.put(32, 132);
+		cache.put(48, 148);
+		assertEquals(100, cache.get(0, -1));
+		cache.put(64, 164);
+		// key 16 is the least recently used one
+		assertEquals(-1, cache.get(16, -1));
+		assertEquals(164, cache.get(64, -1));
+		cache.put(64, 0);
+		assertEquals(0, cache.get(64, -1));
+		assertTrue(cache.remove(64));
+		assertEquals(-1, cache.get(64, -1));
+		cache.clear();
+		assertEquals(-1, cache.get(0, -1));
+	}
+}
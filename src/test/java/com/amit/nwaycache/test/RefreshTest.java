@@ -0,0 +1,146 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.CacheLoader;
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+
+/**
+ * @author Amit
+ *
+ */
+public class RefreshTest {
+
+	private static NWayCache<String, String> newCache(CacheLoader<String, String> loader) throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "64");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.refreshAfterWrite", "50");
+		return NWayCacheImpl.getCache(props, loader);
+	}
+
+	private static void await(LongSupplier counter, long expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (counter.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * Test method for {@link com.amit.nwaycache.cache.NWayCacheImpl#get(Object)}.
+	 */
+	@Test
+	public final void testRefreshAfterWrite() throws Exception {
+		AtomicInteger version = new AtomicInteger();
+		try (NWayCache<String, String> cache = newCache(key -> key + version.incrementAndGet())) {
+			assertEquals("a1", cache.get("a"));
+			assertEquals("a1", cache.get("a"));
+			Thread.sleep(100);
+			// the stale value is served while the new one loads
+			assertEquals("a1", cache.get("a"));
+			await(() -> cache.getStats().getNumRefreshes(), 1);
+			assertEquals("a2", cache.get("a"));
+			assertEquals(1, cache.getStats().getNumLoads());
+			assertEquals(1, cache.getStats().getNumRefreshes());
+			assertTrue(cache.getStats().getTotalRefreshTime() > 0);
+		}
+	}
+
+	/**
+	 * Many hits on a stale key reload it once.
+	 */
+	@Test
+	public final void testOneRefreshPerKey() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		try (NWayCache<String, String> cache = newCache(key -> {
+			if (loads.incrementAndGet() > 1) {
+				release.await();
+			}
+			return key;
+		})) {
+			cache.get("a");
+			Thread.sleep(100);
+			for (int i = 0; i < 100; i++) {
+				assertEquals("a", cache.get("a"));
+			}
+			release.countDown();
+			await(() -> cache.getStats().getNumRefreshes(), 1);
+			assertEquals(2, loads.get());
+		}
+	}
+
+	/**
+	 * A failed reload keeps the old value.
+	 */
+	@Test
+	public final void testRefreshFailure() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		try (NWayCache<String, String> cache = newCache(key -> {
+			if (loads.incrementAndGet() > 1) {
+				throw new IOException("backend down");
+			}
+			return key;
+		})) {
+			cache.get("a");
+			Thread.sleep(100);
+			cache.get("a");
+			await(() -> cache.getStats().getNumRefreshFailures(), 1);
+			assertEquals(1, cache.getStats().getNumRefreshFailures());
+			assertEquals("a", cache.get("a"));
+			// the next reload waits for another refresh interval
+			for (int i = 0; i < 10; i++) {
+				cache.get("a");
+			}
+			assertEquals(2, loads.get());
+		}
+	}
+
+	/**
+	 * A put while a reload runs is not overwritten by the reloaded value.
+	 */
+	@Test
+	public final void testReloadKeepsConcurrentPut() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try (NWayCache<String, String> cache = newCache(key -> {
+			if (loads.incrementAndGet() > 1) {
+				started.countDown();
+				release.await();
+				return "reloaded";
+			}
+			return "loaded";
+		})) {
+			assertEquals("loaded", cache.get("a"));
+			Thread.sleep(100);
+			assertEquals("loaded", cache.get("a"));
+			started.await();
+			cache.put("a", "put");
+			release.countDown();
+			await(() -> cache.getStats().getNumRefreshes(), 1);
+			Thread.sleep(20);
+			assertEquals("put", cache.get("a"));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#getCache(Properties, CacheLoader)}.
+	 */
+	@Test
+	public final void testRefreshRequiresLoader() {
+		assertThrows(IllegalArgumentException.class, () -> newCache(null));
+	}
+}
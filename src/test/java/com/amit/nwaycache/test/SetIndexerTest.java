@@ -0,0 +1,95 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+import com.amit.nwaycache.hash.FibonacciSetIndexer;
+import com.amit.nwaycache.hash.ModuloSetIndexer;
+import com.amit.nwaycache.hash.MurmurSetIndexer;
+import com.amit.nwaycache.hash.SetIndexer;
+
+/**
+ * @author Amit
+ *
+ */
+public class SetIndexerTest {
+
+	private static final int[] HASHES = { 0, 1, -1, 63, 64, Integer.MAX_VALUE, Integer.MIN_VALUE, -12345 };
+
+	/**
+	 * Every indexer maps every hash code, negative ones included, into range.
+	 */
+	@Test
+	public final void testRange() {
+		for (int numSets : new int[] { 1, 3, 64, 100 }) {
+			for (SetIndexer indexer : new SetIndexer[] { new ModuloSetIndexer(numSets),
+					new FibonacciSetIndexer(numSets), new MurmurSetIndexer(numSets) }) {
+				for (int hash : HASHES) {
+					int setNum = indexer.setOf(hash);
+					assertTrue(setNum >= 0 && setNum < numSets, indexer + " " + hash + " -> " + setNum);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The mask of the power of two fast path gives the same sets as the modulo.
+	 */
+	@Test
+	public final void testModuloMask() {
+		SetIndexer indexer = new ModuloSetIndexer(64);
+		for (int hash : HASHES) {
+			assertEquals(Math.floorMod(hash, 64), indexer.setOf(hash));
+		}
+		assertEquals(2, new ModuloSetIndexer(3).setOf(-1));
+	}
+
+	/**
+	 * Keys that are all multiples of the number of sets share one set with the
+	 * modulo, and are spread by the mixing indexers.
+	 */
+	@Test
+	public final void testSpread() {
+		assertEquals(1, setsUsed(new ModuloSetIndexer(64)));
+		assertTrue(setsUsed(new FibonacciSetIndexer(64)) > 32);
+		assertTrue(setsUsed(new MurmurSetIndexer(64)) > 32);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#getCache(Properties)}.
+	 */
+	@Test
+	public final void testConfiguredIndexer() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "256");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.setIndexer.implClass", "com.amit.nwaycache.hash.MurmurSetIndexer");
+		props.setProperty("cache.setMetrics.enabled", "true");
+		NWayCache<Integer, Integer> cache = NWayCacheImpl.getCache(props);
+		for (int i = 0; i < 64; i++) {
+			cache.put(-i * 64, i);
+		}
+		assertEquals(Integer.valueOf(5), cache.get(-5 * 64));
+		assertTrue(cache.getSetMetrics().getTotalEvictions() < 60);
+	}
+
+	private static int setsUsed(SetIndexer indexer) {
+		boolean[] used = new boolean[64];
+		int count = 0;
+		for (int i = 0; i < 256; i++) {
+			int setNum = indexer.setOf(i * 64);
+			if (!used[setNum]) {
+				used[setNum] = true;
+				count++;
+			}
+		}
+		return count;
+	}
+}
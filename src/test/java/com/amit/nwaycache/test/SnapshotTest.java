@@ -0,0 +1,123 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+import com.amit.nwaycache.codec.IntegerCodec;
+import com.amit.nwaycache.codec.StringCodec;
+
+/**
+ * @author Amit
+ *
+ */
+public class SnapshotTest {
+
+	private static final IntegerCodec KEYS = new IntegerCodec();
+
+	private static final StringCodec VALUES = new StringCodec();
+
+	@TempDir
+	Path dir;
+
+	private static NWayCache<Integer, String> newCache(String size, String lineSize) throws Exception {
+		Properties props = new Properties();
+		props.setProperty("cache.size", size);
+		props.setProperty("cache.lineSize", lineSize);
+		return NWayCacheImpl.getCache(props);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#restore(Path, com.amit.nwaycache.codec.Codec, com.amit.nwaycache.codec.Codec)}.
+	 */
+	@Test
+	public final void testRoundTrip() throws Exception {
+		Path file = dir.resolve("cache.snapshot");
+		NWayCache<Integer, String> cache = newCache("64", "4");
+		for (int key = 0; key < 40; key++) {
+			cache.put(key, "v" + key);
+		}
+		assertEquals(40, cache.snapshot(file, KEYS, VALUES));
+		assertFalse(Files.exists(dir.resolve("cache.snapshot.tmp")));
+
+		NWayCache<Integer, String> restored = newCache("64", "4");
+		assertEquals(40, restored.restore(file, KEYS, VALUES));
+		for (int key = 0; key < 40; key++) {
+			assertEquals("v" + key, restored.get(key));
+		}
+	}
+
+	/**
+	 * The eviction order of a set survives the restore.
+	 */
+	@Test
+	public final void testEvictionOrderRestored() throws Exception {
+		Path file = dir.resolve("cache.snapshot");
+		NWayCache<Integer, String> cache = newCache("4", "4");
+		for (int key = 0; key < 4; key++) {
+			cache.put(key, "v" + key);
+		}
+		cache.get(0);
+		cache.get(1);
+		cache.snapshot(file, KEYS, VALUES);
+
+		NWayCache<Integer, String> restored = newCache("4", "4");
+		restored.restore(file, KEYS, VALUES);
+		restored.put(4, "v4");
+		// 2 was the least recently used when the snapshot was taken
+		assertNull(restored.get(2));
+		assertEquals("v3", restored.get(3));
+		assertEquals("v0", restored.get(0));
+	}
+
+	/**
+	 * A snapshot restored into a cache of another geometry is put element by
+	 * element.
+	 */
+	@Test
+	public final void testOtherGeometry() throws Exception {
+		Path file = dir.resolve("cache.snapshot");
+		NWayCache<Integer, String> cache = newCache("16", "4");
+		for (int key = 0; key < 16; key++) {
+			cache.put(key, "v" + key);
+		}
+		cache.snapshot(file, KEYS, VALUES);
+
+		NWayCache<Integer, String> restored = newCache("32", "2");
+		assertEquals(16, restored.restore(file, KEYS, VALUES));
+		for (int key = 0; key < 16; key++) {
+			assertEquals("v" + key, restored.get(key));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#restore(Path, com.amit.nwaycache.codec.Codec, com.amit.nwaycache.codec.Codec)}.
+	 */
+	@Test
+	public final void testNotASnapshot() throws Exception {
+		Path file = dir.resolve("garbage");
+		Files.write(file, new byte[100]);
+		NWayCache<Integer, String> cache = newCache("16", "4");
+		assertThrows(IOException.class, () -> cache.restore(file, KEYS, VALUES));
+
+		cache.put(1, "One");
+		cache.snapshot(file, KEYS, VALUES);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+		assertThrows(IOException.class, () -> cache.restore(file, KEYS, VALUES));
+	}
+}
@@ -0,0 +1,229 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.amit.nwaycache.cache.TieredNWayCache;
+import com.amit.nwaycache.eviction.LFUPolicy;
+import com.amit.nwaycache.eviction.LRUPolicy;
+import com.amit.nwaycache.metrics.TieredMetricsSnapshot;
+
+/**
+ * @author Amit
+ *
+ */
+public class TieredCacheTest {
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * One set of four in the first tier, an off-heap second tier.
+	 */
+	private static Properties tieredProps(String l2Size, String l2LineSize) {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "4");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.l2.size", l2Size);
+		props.setProperty("cache.l2.lineSize", l2LineSize);
+		props.setProperty("cache.l2.storage", "OFF_HEAP");
+		props.setProperty("cache.l2.offHeap.keyCodec", "com.amit.nwaycache.codec.IntegerCodec");
+		props.setProperty("cache.l2.offHeap.valueCodec", "com.amit.nwaycache.codec.StringCodec");
+		return props;
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.TieredNWayCache#get(Object)}.
+	 */
+	@Test
+	public final void testDemoteAndPromote() throws Exception {
+		try (TieredNWayCache<Integer, String> cache = TieredNWayCache.getCache(tieredProps("64", "4"))) {
+			for (int key = 0; key < 8; key++) {
+				cache.put(key, "v" + key);
+			}
+			// 0 to 3 were evicted from the first tier into the second
+			assertEquals("v0", cache.get(0));
+			assertEquals("v0", cache.get(0));
+			for (int key = 1; key < 8; key++) {
+				assertEquals("v" + key, cache.get(key));
+			}
+			assertNull(cache.get(100));
+
+			TieredMetricsSnapshot metrics = cache.getTieredMetrics();
+			assertEquals(1, metrics.getL1Stats().getCacheHits());
+			assertEquals(8, metrics.getL2Stats().getCacheHits());
+			assertEquals(8, metrics.getPromotions());
+			assertEquals(1, metrics.getMissLatency().getCount());
+			assertEquals(9, metrics.getL1HitLatency().getCount() + metrics.getL2HitLatency().getCount());
+			// 4 demoted by the puts, 1 for each promotion into the full set
+			assertEquals(12, metrics.getDemotions());
+			assertEquals(9.0 / 10, metrics.getHitRatio(), 1e-9);
+			assertEquals(8.0 / 9, metrics.getL2HitRatio(), 1e-9);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.TieredNWayCache#getAll(java.util.Collection)}.
+	 */
+	@Test
+	public final void testGetAll() throws Exception {
+		try (TieredNWayCache<Integer, String> cache = TieredNWayCache.getCache(tieredProps("64", "4"))) {
+			for (int key = 0; key < 8; key++) {
+				cache.put(key, "v" + key);
+			}
+			Map<Integer, String> found = cache.getAll(List.of(0, 1, 2, 3, 4, 5, 6, 7, 100));
+			assertEquals(8, found.size());
+			for (int key = 0; key < 8; key++) {
+				assertEquals("v" + key, found.get(key));
+			}
+			TieredMetricsSnapshot metrics = cache.getTieredMetrics();
+			// 4 to 7 found by the batch lookup, only 0 to 3 promoted
+			assertEquals(4, metrics.getL1HitLatency().getCount());
+			assertEquals(4, metrics.getL2HitLatency().getCount());
+			assertEquals(4, metrics.getPromotions());
+			assertEquals(1, metrics.getMissLatency().getCount());
+		}
+	}
+
+	/**
+	 * A key removed while other threads get it is not promoted back from the
+	 * second tier.
+	 */
+	@Test
+	public final void testConcurrentRemoveAndGet() throws Exception {
+		try (TieredNWayCache<Integer, String> cache = TieredNWayCache.getCache(tieredProps("64", "4"))) {
+			AtomicInteger round = new AtomicInteger();
+			AtomicInteger done = new AtomicInteger();
+			AtomicBoolean running = new AtomicBoolean(true);
+			Thread[] readers = new Thread[2];
+			for (int i = 0; i < readers.length; i++) {
+				readers[i] = new Thread(() -> {
+					for (int seen = 0; running.get();) {
+						if (round.get() != seen) {
+							seen = round.get();
+							cache.get(0);
+							done.incrementAndGet();
+						}
+					}
+				});
+				readers[i].start();
+			}
+			try {
+				long end = System.currentTimeMillis() + 500;
+				for (int n = 1; System.currentTimeMillis() < end; n++) {
+					cache.put(0, "v0");
+					// pushes 0 down to the second tier
+					for (int key = 1; key <= 4; key++) {
+						cache.put(n * 4 + key, "v");
+					}
+					done.set(0);
+					round.set(n);
+					cache.remove(0);
+					while (done.get() < readers.length) {
+						Thread.onSpinWait();
+					}
+					assertNull(cache.get(0), "round " + n);
+				}
+			} finally {
+				running.set(false);
+				for (Thread reader : readers) {
+					reader.join();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A put replaces the value demoted to the second tier.
+	 */
+	@Test
+	public final void testPutReplacesDemotedValue() throws Exception {
+		try (TieredNWayCache<Integer, String> cache = TieredNWayCache.getCache(tieredProps("64", "4"))) {
+			for (int key = 0; key < 5; key++) {
+				cache.put(key, "v" + key);
+			}
+			cache.put(0, "new");
+			for (int key = 10; key < 14; key++) {
+				cache.put(key, "v" + key);
+			}
+			assertEquals("new", cache.get(0));
+			assertTrue(cache.remove(1));
+			assertFalse(cache.remove(1));
+			assertNull(cache.get(1));
+		}
+	}
+
+	/**
+	 * Each tier evicts with its own policy.
+	 */
+	@Test
+	public final void testPolicyPerTier() throws Exception {
+		Properties props = tieredProps("4", "4");
+		props.setProperty("cache.l2.evictionPolicy.implClass", "com.amit.nwaycache.eviction.LFUPolicy");
+		try (TieredNWayCache<Integer, String> cache = TieredNWayCache.getCache(props)) {
+			assertTrue(cache.getCachePolicy() instanceof LRUPolicy);
+			assertTrue(cache.getL2CachePolicy() instanceof LFUPolicy);
+			for (int key = 0; key < 12; key++) {
+				cache.put(key, "v" + key);
+			}
+			// the second tier holds four of the eight keys demoted into it
+			int found = 0;
+			for (int key = 0; key < 8; key++) {
+				found += (cache.get(key) != null) ? 1 : 0;
+			}
+			assertTrue(found >= 4, "found " + found);
+			assertEquals(0, cache.getTieredMetrics().getDemotionFailures());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.TieredNWayCache#getCache(Properties)}.
+	 */
+	@Test
+	public final void testMappedSecondTier() throws Exception {
+		Path file = dir.resolve("l2.slots");
+		Properties props = tieredProps("1024", "8");
+		props.setProperty("cache.l2.storage", "MAPPED");
+		props.setProperty("cache.l2.mapped.file", file.toString());
+		try (TieredNWayCache<Integer, String> cache = TieredNWayCache.getCache(props)) {
+			assertEquals(1024 * 128, Files.size(file));
+			for (int key = 0; key < 100; key++) {
+				cache.put(key, "v" + key);
+			}
+			for (int key = 0; key < 100; key++) {
+				assertEquals("v" + key, cache.get(key));
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.TieredNWayCache#getCache(Properties)}.
+	 */
+	@Test
+	public final void testSecondTierRequired() {
+		Properties props = new Properties();
+		props.setProperty("cache.size", "4");
+		props.setProperty("cache.lineSize", "4");
+		assertThrows(IllegalArgumentException.class, () -> TieredNWayCache.getCache(props));
+		props.setProperty("cache.l2.storage", "MAPPED");
+		assertThrows(IllegalArgumentException.class, () -> TieredNWayCache.getCache(props));
+	}
+}
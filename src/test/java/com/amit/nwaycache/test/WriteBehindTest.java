@@ -0,0 +1,272 @@
+package com.amit.nwaycache.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.amit.nwaycache.cache.NWayCache;
+import com.amit.nwaycache.cache.NWayCacheImpl;
+import com.amit.nwaycache.writer.CacheWriter;
+
+/**
+ * @author Amit
+ *
+ */
+public class WriteBehindTest {
+
+	/**
+	 * An in-memory backing store that can be told to fail.
+	 */
+	private static class MapWriter implements CacheWriter<Integer, String> {
+		final Map<Integer, String> store = new ConcurrentHashMap<>();
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		volatile Runnable onWrite;
+
+		@Override
+		public void write(Map<Integer, String> entries) throws Exception {
+			if (onWrite != null) {
+				onWrite.run();
+			}
+			call();
+			store.putAll(entries);
+		}
+
+		@Override
+		public void delete(Collection<Integer> keys) throws Exception {
+			call();
+			store.keySet().removeAll(keys);
+		}
+
+		private void call() throws Exception {
+			calls.incrementAndGet();
+			if (failures.getAndDecrement() > 0) {
+				throw new Exception("store down");
+			}
+		}
+	}
+
+	private static NWayCache<Integer, String> newCache(MapWriter writer, String batchSize, String flushInterval)
+			throws Exception {
+		return newCache(writer, batchSize, flushInterval, new Properties());
+	}
+
+	private static NWayCache<Integer, String> newCache(MapWriter writer, String batchSize, String flushInterval,
+			Properties props) throws Exception {
+		props.setProperty("cache.size", "4");
+		props.setProperty("cache.lineSize", "4");
+		props.setProperty("cache.writeBehind.batchSize", batchSize);
+		props.setProperty("cache.writeBehind.flushInterval", flushInterval);
+		return NWayCacheImpl.getCache(props, null, writer);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * The changes of a key are coalesced and written on close.
+	 */
+	@Test
+	public final void testCoalescedPerKey() throws Exception {
+		MapWriter writer = new MapWriter();
+		writer.store.put(3, "Three");
+		NWayCache<Integer, String> cache = newCache(writer, "100", "3600000");
+		cache.put(1, "One");
+		cache.put(1, "Uno");
+		cache.put(2, "Two");
+		cache.remove(2);
+		cache.remove(3);
+		assertEquals(0, writer.calls.get());
+		cache.close();
+		assertEquals(Map.of(1, "Uno"), writer.store);
+		// one write and one delete call
+		assertEquals(2, writer.calls.get());
+		assertEquals(3, cache.getStats().getNumWrites());
+	}
+
+	/**
+	 * A full batch is written without waiting for the flush interval.
+	 */
+	@Test
+	public final void testFlushedByBatchSize() throws Exception {
+		MapWriter writer = new MapWriter();
+		try (NWayCache<Integer, String> cache = newCache(writer, "3", "3600000")) {
+			cache.put(1, "One");
+			cache.put(2, "Two");
+			assertTrue(writer.store.isEmpty());
+			cache.put(3, "Three");
+			await(() -> writer.store.size() == 3);
+			assertEquals(3, writer.store.size());
+		}
+	}
+
+	/**
+	 * The element chosen by the eviction policy is written before it is
+	 * dropped.
+	 */
+	@Test
+	public final void testEvictedElementFlushed() throws Exception {
+		MapWriter writer = new MapWriter();
+		try (NWayCache<Integer, String> cache = newCache(writer, "100", "3600000")) {
+			for (int key = 0; key < 4; key++) {
+				cache.put(key, "v" + key);
+			}
+			cache.get(1);
+			cache.get(2);
+			cache.get(3);
+			cache.put(4, "v4");
+			// 0 was the least recently used
+			assertEquals(Map.of(0, "v0"), writer.store);
+		}
+	}
+
+	/**
+	 * The evicted element is written once the set lock is released: another
+	 * thread can use the set while the writer runs.
+	 */
+	@Test
+	public final void testEvictedElementFlushedOutsideLock() throws Exception {
+		MapWriter writer = new MapWriter();
+		try (NWayCache<Integer, String> cache = newCache(writer, "100", "3600000")) {
+			for (int key = 0; key < 4; key++) {
+				cache.put(key, "v" + key);
+			}
+			writer.onWrite = () -> {
+				try {
+					CompletableFuture.runAsync(() -> cache.get(1)).get(5, TimeUnit.SECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException("the set is locked", e);
+				}
+			};
+			cache.put(4, "v4");
+			assertEquals(Map.of(0, "v0"), writer.store);
+			assertEquals(0, cache.getStats().getNumWriteFailures());
+		}
+	}
+
+	/**
+	 * A key rejected by the admission policy in a bulk put is written through,
+	 * as it is by a single put.
+	 */
+	@Test
+	public final void testRejectedByPutAllFlushed() throws Exception {
+		MapWriter writer = new MapWriter();
+		Properties props = new Properties();
+		props.setProperty("cache.admission.implClass", "com.amit.nwaycache.admission.TinyLFUAdmission");
+		try (NWayCache<Integer, String> cache = newCache(writer, "100", "3600000", props)) {
+			for (int key = 0; key < 4; key++) {
+				cache.put(key, "v" + key);
+				cache.get(key);
+				cache.get(key);
+			}
+			cache.putAll(Map.of(100, "Hundred"));
+			assertEquals(1, cache.getStats().getNumRejections());
+			assertEquals(Map.of(100, "Hundred"), writer.store);
+		}
+	}
+
+	/**
+	 * A load of an evicted key while its value is on the way to the backing
+	 * store gets that value, not the older one in the store.
+	 */
+	@Test
+	public final void testLoadRacingEviction() throws Exception {
+		MapWriter writer = new MapWriter();
+		writer.store.put(0, "old");
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try (NWayCache<Integer, String> cache = newCache(writer, "3", "3600000")) {
+			for (int key = 1; key < 4; key++) {
+				cache.put(key, "v" + key);
+			}
+			await(() -> writer.store.size() == 4);
+			cache.put(0, "v0");
+			cache.get(1);
+			cache.get(2);
+			cache.get(3);
+			writer.onWrite = () -> {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			};
+			// evicts 0 and blocks in the writer
+			Thread evictor = new Thread(() -> cache.put(4, "v4"));
+			evictor.start();
+			assertTrue(writing.await(5, TimeUnit.SECONDS));
+			assertEquals("old", writer.store.get(0));
+			assertEquals("v0", cache.get(0, writer.store::get));
+			release.countDown();
+			evictor.join();
+			assertEquals("v0", writer.store.get(0));
+			assertEquals(0, cache.getStats().getNumLoads());
+		}
+	}
+
+	/**
+	 * A removed or cleared key is not loaded back from the backing store before
+	 * its change is written.
+	 */
+	@Test
+	public final void testPendingChangeServedBeforeLoad() throws Exception {
+		MapWriter writer = new MapWriter();
+		writer.store.put(1, "One");
+		try (NWayCache<Integer, String> cache = newCache(writer, "100", "3600000")) {
+			cache.put(1, "One");
+			cache.remove(1);
+			assertNull(cache.get(1, writer.store::get));
+			cache.put(2, "Two");
+			cache.clear();
+			assertEquals("Two", cache.get(2, writer.store::get));
+			assertEquals(0, cache.getStats().getNumLoads());
+		}
+		assertEquals(Map.of(2, "Two"), writer.store);
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.amit.nwaycache.cache.NWayCacheImpl#close()}.
+	 */
+	@Test
+	public final void testPutAfterClose() throws Exception {
+		NWayCache<Integer, String> cache = newCache(new MapWriter(), "1", "3600000");
+		cache.close();
+		assertThrows(IllegalStateException.class, () -> cache.put(1, "One"));
+		assertThrows(IllegalStateException.class, () -> cache.remove(1));
+	}
+
+	/**
+	 * A failed batch is written again by the next flush.
+	 */
+	@Test
+	public final void testRetriedAfterFailure() throws Exception {
+		MapWriter writer = new MapWriter();
+		writer.failures.set(1);
+		try (NWayCache<Integer, String> cache = newCache(writer, "100", "20")) {
+			cache.put(1, "One");
+			await(() -> writer.store.size() == 1);
+			assertEquals("One", writer.store.get(1));
+			assertEquals(1, cache.getStats().getNumWriteFailures());
+			assertEquals(1, cache.getStats().getNumWrites());
+		}
+	}
+}